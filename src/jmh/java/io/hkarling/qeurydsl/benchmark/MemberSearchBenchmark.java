@@ -0,0 +1,153 @@
+package io.hkarling.qeurydsl.benchmark;
+
+import io.hkarling.qeurydsl.QeurydslApplication;
+import io.hkarling.qeurydsl.config.QuerydslProperties;
+import io.hkarling.qeurydsl.dto.MemberSearchCondition;
+import io.hkarling.qeurydsl.dto.MemberTeamDTO;
+import io.hkarling.qeurydsl.entity.Member;
+import io.hkarling.qeurydsl.repository.MemberJpaRepository;
+import io.hkarling.qeurydsl.repository.MemberRepository;
+import io.hkarling.qeurydsl.repository.MemberTestRepository;
+import io.hkarling.qeurydsl.repository.TeamNameDictionary;
+import io.hkarling.qeurydsl.seed.MemberDataGenerator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Repository 검색/페이징 메서드 비교. in-memory H2 에 members 건을 생성해 두고 selectivity 별 조건으로 호출한다.
+ * Throughput 과 SampleTime(p99 등 백분위)을 함께 측정하고, build.gradle 의 jmh task 가 -prof gc 로 연산당 할당량을 같이 낸다.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx8g"})
+public class MemberSearchBenchmark {
+
+    /**
+     * 조건별로 결과 건수가 1건 ~ 전체의 10% 정도까지 퍼지도록 고른다.
+     * 전체 조회는 10M 에서 List 로 다 담을 수 없으므로 제외한다.
+     */
+    public enum Selectivity {
+        USERNAME, // 1건
+        TEAM_AGE, // 가장 큰 팀의 10살 구간
+        TEAM, // 가장 큰 팀 (Zipf 1.0 이라 수 %)
+        AGE // 10살 구간, 약 10%
+    }
+
+    @Param({"10000", "1000000", "10000000"})
+    public long members;
+
+    @Param({"USERNAME", "TEAM_AGE", "TEAM", "AGE"})
+    public Selectivity selectivity;
+
+    private ConfigurableApplicationContext context;
+    private TransactionTemplate readOnly;
+    private MemberJpaRepository memberJpaRepository;
+    private MemberRepository memberRepository;
+    private MemberTestRepository memberTestRepository;
+
+    private MemberSearchCondition condition;
+    private final Pageable pageable = PageRequest.of(1, 20);
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(QeurydslApplication.class)
+            .web(WebApplicationType.NONE)
+            .run("--spring.profiles.active=bench"); // application-bench.yml: in-memory H2, SQL 로그 끔
+
+        QuerydslProperties.Seed seed = new QuerydslProperties.Seed();
+        seed.setMembers(members);
+        seed.setTeams((int) Math.max(10, members / 2_000));
+        seed.setTeamSkew(1.0);
+        seed.setThreads(4);
+        context.getBean(MemberDataGenerator.class).generate(seed);
+        context.getBean(TeamNameDictionary.class).reload(); // JDBC 로 넣은 팀은 변경 이벤트가 없다.
+
+        readOnly = new TransactionTemplate(context.getBean(PlatformTransactionManager.class));
+        readOnly.setReadOnly(true);
+        memberJpaRepository = context.getBean(MemberJpaRepository.class);
+        memberRepository = context.getBean(MemberRepository.class);
+        memberTestRepository = context.getBean(MemberTestRepository.class);
+        condition = condition(selectivity, members);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    private static MemberSearchCondition condition(Selectivity selectivity, long members) {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        switch (selectivity) {
+            case USERNAME:
+                condition.setUsername("member" + members / 2);
+                break;
+            case TEAM_AGE:
+                condition.setTeamName("teamA");
+                condition.setAgeGoe(30);
+                condition.setAgeLoe(39);
+                break;
+            case TEAM:
+                condition.setTeamName("teamA");
+                break;
+            case AGE:
+                condition.setAgeGoe(30);
+                condition.setAgeLoe(39);
+                break;
+        }
+        return condition;
+    }
+
+    @Benchmark
+    public List<MemberTeamDTO> search() {
+        return readOnly.execute(status -> memberJpaRepository.search(condition));
+    }
+
+    @Benchmark
+    public List<MemberTeamDTO> searchByBuilder() {
+        return readOnly.execute(status -> memberJpaRepository.searchByBuilder(condition));
+    }
+
+    @Benchmark
+    public Page<MemberTeamDTO> searchPageSimple() {
+        return readOnly.execute(status -> memberRepository.searchPageSimple(condition, pageable));
+    }
+
+    @Benchmark
+    public Page<MemberTeamDTO> searchPageComplex() {
+        return readOnly.execute(status -> memberRepository.searchPageComplex(condition, pageable));
+    }
+
+    @Benchmark
+    public Page<Member> applyPagination() {
+        return readOnly.execute(status -> memberTestRepository.applyPagination(condition, pageable));
+    }
+
+    @Benchmark
+    public Page<Member> applyPagination2() {
+        return readOnly.execute(status -> memberTestRepository.applyPagination2(condition, pageable));
+    }
+}
@@ -1,21 +1,18 @@
 package io.hkarling.qeurydsl;
 
-import com.querydsl.jpa.impl.JPAQueryFactory;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
-import org.springframework.context.annotation.Bean;
-
-import javax.persistence.EntityManager;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@ConfigurationPropertiesScan
+@EnableScheduling // 통계 재계산 등 주기 작업
 public class QeurydslApplication {
 
     public static void main(String[] args) {
         SpringApplication.run(QeurydslApplication.class, args);
     }
 
-//    @Bean
-//    JPAQueryFactory jpaQueryFactory(EntityManager em) {
-//        return new JPAQueryFactory(em); // Bean 으로 등록하면 그냥 주입 가능하지.
-//    }
+    // JPAQueryFactory 는 config.QuerydslConfig 에서 Bean 으로 등록한다.
 }
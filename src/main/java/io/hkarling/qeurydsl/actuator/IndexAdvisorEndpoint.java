@@ -0,0 +1,28 @@
+package io.hkarling.qeurydsl.actuator;
+
+import io.hkarling.qeurydsl.repository.MemberIndexAdvisor;
+import io.hkarling.qeurydsl.repository.MemberIndexAdvisor.Advice;
+import java.util.List;
+import java.util.stream.Collectors;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+/**
+ * /actuator/indexadvisor : 테이블 전체를 읽거나 인덱스 없이 정렬하는 검색 쿼리 모양. ?all=true 이면 모든 모양의 실행 계획
+ */
+@Component
+@Endpoint(id = "indexadvisor")
+@RequiredArgsConstructor
+public class IndexAdvisorEndpoint {
+
+    private final MemberIndexAdvisor indexAdvisor;
+
+    @ReadOperation
+    public List<Advice> advice(@Nullable Boolean all) {
+        List<Advice> advice = indexAdvisor.analyze();
+        return Boolean.TRUE.equals(all) ? advice : advice.stream().filter(Advice::isProblem).collect(Collectors.toList());
+    }
+}
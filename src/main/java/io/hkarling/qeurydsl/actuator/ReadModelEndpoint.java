@@ -0,0 +1,38 @@
+package io.hkarling.qeurydsl.actuator;
+
+import io.hkarling.qeurydsl.repository.MemberTeamReadModel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * POST /actuator/readmodel : member_team_view 읽기 모델을 member/team 에서 다시 만든다.
+ */
+@Component
+@Endpoint(id = "readmodel")
+@RequiredArgsConstructor
+public class ReadModelEndpoint {
+
+    private final MemberTeamReadModel readModel;
+
+    @WriteOperation
+    public RebuildResult rebuild() {
+        long started = System.currentTimeMillis();
+        long rows = readModel.rebuild();
+        return new RebuildResult(rows, System.currentTimeMillis() - started);
+    }
+
+    @Getter
+    public static class RebuildResult {
+
+        private final long rows;
+        private final long millis;
+
+        private RebuildResult(long rows, long millis) {
+            this.rows = rows;
+            this.millis = millis;
+        }
+    }
+}
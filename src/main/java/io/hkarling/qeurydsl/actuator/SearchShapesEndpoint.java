@@ -0,0 +1,77 @@
+package io.hkarling.qeurydsl.actuator;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import io.hkarling.qeurydsl.repository.support.RepositoryMetrics;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * /actuator/searchshapes : repository 쿼리를 (method, shape, phase) 별로 모아 누적 시간이 큰 순서로 보여준다.
+ * 개별 값은 /actuator/metrics/repository.query?tag=shape:... 로도 볼 수 있다.
+ */
+@Component
+@Endpoint(id = "searchshapes")
+@RequiredArgsConstructor
+public class SearchShapesEndpoint {
+
+    private final MeterRegistry registry;
+
+    @ReadOperation
+    public List<ShapeStats> shapes() {
+        List<ShapeStats> result = new ArrayList<>();
+        for (Timer timer : registry.find(RepositoryMetrics.QUERY_TIMER).timers()) {
+            Meter.Id id = timer.getId();
+            DistributionSummary rows = registry.find(RepositoryMetrics.QUERY_ROWS).tags(id.getTagsAsIterable()).summary();
+            result.add(new ShapeStats(id, timer, rows));
+        }
+        result.sort(Comparator.comparingDouble(ShapeStats::getTotalMillis).reversed());
+        return result;
+    }
+
+    @Getter
+    public static class ShapeStats {
+
+        private final String method;
+        private final String shape;
+        private final String phase;
+        private final long count;
+        private final double totalMillis;
+        private final double meanMillis;
+        private final double maxMillis;
+        private final Double p99Millis;
+        private final Double meanRows;
+
+        private ShapeStats(Meter.Id id, Timer timer, DistributionSummary rows) {
+            this.method = id.getTag("method");
+            this.shape = id.getTag("shape");
+            this.phase = id.getTag("phase");
+            this.count = timer.count();
+            this.totalMillis = timer.totalTime(MILLISECONDS);
+            this.meanMillis = timer.mean(MILLISECONDS);
+            this.maxMillis = timer.max(MILLISECONDS);
+            this.p99Millis = p99(timer);
+            this.meanRows = rows == null ? null : rows.mean();
+        }
+
+        private static Double p99(Timer timer) {
+            for (ValueAtPercentile percentile : timer.takeSnapshot().percentileValues()) {
+                if (percentile.percentile() == 0.99) {
+                    return percentile.value(MILLISECONDS);
+                }
+            }
+            return null;
+        }
+    }
+}
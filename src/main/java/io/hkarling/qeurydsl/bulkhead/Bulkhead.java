@@ -0,0 +1,18 @@
+package io.hkarling.qeurydsl.bulkhead;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 컨트롤러 메서드를 지정한 구획(Lane)에서 실행한다. 구획이 가득 차면 503 + Retry-After 로 바로 응답한다.
+ *
+ * @see BulkheadInterceptor
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Bulkhead {
+
+    Lane value();
+}
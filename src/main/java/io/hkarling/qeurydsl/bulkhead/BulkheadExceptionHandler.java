@@ -0,0 +1,23 @@
+package io.hkarling.qeurydsl.bulkhead;
+
+import java.util.Map;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+@RestControllerAdvice
+public class BulkheadExceptionHandler {
+
+    /**
+     * 기다리게 하지 않고 바로 503 으로 응답한다. 클라이언트는 Retry-After(초) 이후에 다시 요청한다.
+     */
+    @ExceptionHandler(BulkheadFullException.class)
+    public ResponseEntity<Map<String, String>> bulkheadFull(BulkheadFullException e) {
+        long retryAfterSeconds = Math.max(1, (e.getRetryAfter().toMillis() + 999) / 1000);
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+            .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+            .body(Map.of("lane", e.getLane().tag(), "message", e.getMessage()));
+    }
+}
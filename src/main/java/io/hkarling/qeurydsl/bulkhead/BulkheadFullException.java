@@ -0,0 +1,17 @@
+package io.hkarling.qeurydsl.bulkhead;
+
+import java.time.Duration;
+import lombok.Getter;
+
+@Getter
+public class BulkheadFullException extends RuntimeException {
+
+    private final Lane lane;
+    private final Duration retryAfter;
+
+    public BulkheadFullException(Lane lane, String reason, Duration retryAfter) {
+        super("Lane " + lane.tag() + " is saturated: " + reason);
+        this.lane = lane;
+        this.retryAfter = retryAfter;
+    }
+}
@@ -0,0 +1,45 @@
+package io.hkarling.qeurydsl.bulkhead;
+
+import io.hkarling.qeurydsl.config.BulkheadProperties;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * {@link Bulkhead} 가 붙은 핸들러는 구획 허가를 받은 뒤 실행하고, 응답을 다 쓴 뒤(afterCompletion) 돌려준다.
+ * 스트리밍 응답도 핸들러 안에서 동기로 쓰므로 내보내는 동안 허가를 잡고 있다.
+ */
+@Component
+@RequiredArgsConstructor
+public class BulkheadInterceptor implements HandlerInterceptor {
+
+    private static final String LANE_ATTRIBUTE = BulkheadInterceptor.class.getName() + ".lane";
+
+    private final BulkheadProperties properties;
+    private final BulkheadRegistry bulkheadRegistry;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!properties.isEnabled() || !(handler instanceof HandlerMethod)) {
+            return true;
+        }
+        Bulkhead bulkhead = ((HandlerMethod) handler).getMethodAnnotation(Bulkhead.class);
+        if (bulkhead != null) {
+            bulkheadRegistry.acquire(bulkhead.value()); // 가득 차면 BulkheadFullException -> BulkheadExceptionHandler
+            request.setAttribute(LANE_ATTRIBUTE, bulkhead.value());
+        }
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        Lane lane = (Lane) request.getAttribute(LANE_ATTRIBUTE);
+        if (lane != null) {
+            request.removeAttribute(LANE_ATTRIBUTE);
+            bulkheadRegistry.release(lane);
+        }
+    }
+}
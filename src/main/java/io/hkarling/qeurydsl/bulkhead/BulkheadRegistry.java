@@ -0,0 +1,100 @@
+package io.hkarling.qeurydsl.bulkhead;
+
+import io.hkarling.qeurydsl.config.BulkheadProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.springframework.stereotype.Component;
+
+/**
+ * 구획(Lane)별 실행 허가. 구획마다 공정(fair) 세마포어 하나와 대기열 길이 제한이 있다.
+ * <ul>
+ *     <li>bulkhead.queue.wait : 허가를 받기까지 기다린 시간 (lane)</li>
+ *     <li>bulkhead.rejected : 대기열이 가득 찼거나(queue-full) 기다리다 시간이 지나(timeout) 거절한 수 (lane, reason)</li>
+ *     <li>bulkhead.active, bulkhead.waiting : 현재 실행/대기 중인 요청 수 (lane)</li>
+ * </ul>
+ */
+@Component
+public class BulkheadRegistry {
+
+    private final Map<Lane, Compartment> compartments = new EnumMap<>(Lane.class);
+
+    public BulkheadRegistry(BulkheadProperties properties, MeterRegistry registry) {
+        for (Lane lane : Lane.values()) {
+            compartments.put(lane, new Compartment(lane, properties.of(lane), registry));
+        }
+    }
+
+    /**
+     * 허가를 받을 때까지 기다린다. 받았으면 반드시 {@link #release(Lane)} 해야 한다.
+     *
+     * @throws BulkheadFullException 대기열이 가득 찼거나 timeout 안에 허가를 받지 못한 경우
+     */
+    public void acquire(Lane lane) {
+        compartments.get(lane).acquire();
+    }
+
+    public void release(Lane lane) {
+        compartments.get(lane).semaphore.release();
+    }
+
+    private static class Compartment {
+
+        private final Lane lane;
+        private final BulkheadProperties.LaneProperties properties;
+        private final Semaphore semaphore;
+        private final AtomicInteger waiting = new AtomicInteger();
+        private final Timer queueWait;
+        private final Counter queueFull;
+        private final Counter timeout;
+
+        private Compartment(Lane lane, BulkheadProperties.LaneProperties properties, MeterRegistry registry) {
+            this.lane = lane;
+            this.properties = properties;
+            this.semaphore = new Semaphore(properties.getMaxConcurrent(), true);
+            this.queueWait = Timer.builder("bulkhead.queue.wait")
+                .tag("lane", lane.tag())
+                .publishPercentiles(0.5, 0.99)
+                .register(registry);
+            this.queueFull = Counter.builder("bulkhead.rejected").tag("lane", lane.tag()).tag("reason", "queue-full").register(registry);
+            this.timeout = Counter.builder("bulkhead.rejected").tag("lane", lane.tag()).tag("reason", "timeout").register(registry);
+            Gauge.builder("bulkhead.active", semaphore, s -> properties.getMaxConcurrent() - s.availablePermits())
+                .tag("lane", lane.tag())
+                .register(registry);
+            Gauge.builder("bulkhead.waiting", waiting, AtomicInteger::get)
+                .tag("lane", lane.tag())
+                .register(registry);
+        }
+
+        private void acquire() {
+            if (waiting.incrementAndGet() > properties.getQueueDepth() && semaphore.availablePermits() == 0) {
+                waiting.decrementAndGet();
+                queueFull.increment();
+                throw new BulkheadFullException(lane, "queue-full", properties.getRetryAfter());
+            }
+
+            long start = System.nanoTime();
+            boolean acquired;
+            try {
+                acquired = semaphore.tryAcquire(properties.getTimeout().toNanos(), TimeUnit.NANOSECONDS); // 공정 세마포어라 먼저 온 순서대로
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                acquired = false;
+            } finally {
+                waiting.decrementAndGet();
+                queueWait.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+
+            if (!acquired) {
+                timeout.increment();
+                throw new BulkheadFullException(lane, "timeout", properties.getRetryAfter());
+            }
+        }
+    }
+}
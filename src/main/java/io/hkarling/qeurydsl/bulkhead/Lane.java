@@ -0,0 +1,16 @@
+package io.hkarling.qeurydsl.bulkhead;
+
+/**
+ * 요청 종류별 실행 구획. 구획마다 동시 실행 수, 대기열, 대기 시간이 따로 있어서
+ * 무거운 목록/내보내기 요청이 몰려도 페이징 요청이 쓸 커넥션이 남는다.
+ */
+public enum Lane {
+
+    INTERACTIVE, // 화면 페이징 (/v2, /v3, /v4)
+    LIST,        // 페이징 없는 전체 목록 (/v1)
+    EXPORT;      // 스트리밍 내보내기 (/v1/members/stream)
+
+    public String tag() {
+        return name().toLowerCase();
+    }
+}
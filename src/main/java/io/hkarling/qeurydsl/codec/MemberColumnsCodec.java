@@ -0,0 +1,272 @@
+package io.hkarling.qeurydsl.codec;
+
+import io.hkarling.qeurydsl.dto.MemberTeamDTO;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * MemberTeamDTO 목록의 컬럼 단위 바이너리 형식 (application/x-member-columns). JDK 외 의존성이 없어 클라이언트에서도 그대로 쓴다.
+ * <pre>
+ * magic     'M' 'C' 1
+ * rows      varint
+ * teams     varint 개수, 팀마다 (teamId zigzag varint, teamName string)  -- 응답에 나온 팀만, 처음 나온 순서
+ * memberId  rows 개, 이전 행과의 차이 zigzag varint                    -- id 순 조회면 대부분 1 byte
+ * username  rows 개, string
+ * age       rows 개, zigzag varint
+ * team      rows 개, varint (teams 번호 + 1, 팀 없음 0)
+ * string    varint (UTF-8 byte 수 + 1, null 0) + UTF-8
+ * </pre>
+ * 행마다 필드 이름을 반복하지 않고, 숫자는 텍스트 대신 varint 로, 팀 이름은 사전 번호로 쓴다.
+ */
+public final class MemberColumnsCodec {
+
+    public static final String MEDIA_TYPE = "application/x-member-columns";
+
+    private static final byte[] MAGIC = {'M', 'C', 1};
+
+    private MemberColumnsCodec() {
+    }
+
+    /**
+     * out 을 닫지 않는다.
+     */
+    public static void encode(List<MemberTeamDTO> rows, OutputStream out) throws IOException {
+        Writer writer = new Writer(out);
+        writer.bytes(MAGIC);
+        writer.varint(rows.size());
+
+        Map<Long, Integer> teamIndex = new HashMap<>();
+        List<MemberTeamDTO> teams = new ArrayList<>();
+        for (MemberTeamDTO row : rows) {
+            if (row.getTeamId() != null && teamIndex.putIfAbsent(row.getTeamId(), teamIndex.size()) == null) {
+                teams.add(row);
+            }
+        }
+        writer.varint(teams.size());
+        for (MemberTeamDTO team : teams) {
+            writer.zigzag(team.getTeamId());
+            writer.string(team.getTeamName());
+        }
+
+        long previousId = 0;
+        for (MemberTeamDTO row : rows) {
+            if (row.getMemberId() == null) {
+                throw new IllegalArgumentException("memberId is required: " + row);
+            }
+            writer.zigzag(row.getMemberId() - previousId);
+            previousId = row.getMemberId();
+        }
+        for (MemberTeamDTO row : rows) {
+            writer.string(row.getUsername());
+        }
+        for (MemberTeamDTO row : rows) {
+            writer.zigzag(row.getAge());
+        }
+        for (MemberTeamDTO row : rows) {
+            writer.varint(row.getTeamId() == null ? 0 : teamIndex.get(row.getTeamId()) + 1);
+        }
+        writer.flush();
+    }
+
+    /**
+     * in 을 닫지 않는다. 개수와 팀 번호는 읽으면서 검사하고, 잘리거나 맞지 않으면 IOException 을 던진다.
+     * 배열은 실제로 읽은 만큼만 늘리므로 개수를 크게 적은 입력으로 메모리를 미리 잡지 않는다.
+     */
+    public static List<MemberTeamDTO> decode(InputStream in) throws IOException {
+        Reader reader = new Reader(in);
+        for (byte expected : MAGIC) {
+            if (reader.read() != expected) {
+                throw new IOException("Not a " + MEDIA_TYPE + " (version 1) stream");
+            }
+        }
+        int size = reader.count("rows");
+
+        int teamCount = reader.count("teams");
+        Long[] teamIds = new Long[initialCapacity(teamCount)];
+        String[] teamNames = new String[teamIds.length];
+        for (int i = 0; i < teamCount; i++) {
+            if (i == teamIds.length) {
+                teamIds = Arrays.copyOf(teamIds, grow(i, teamCount));
+                teamNames = Arrays.copyOf(teamNames, teamIds.length);
+            }
+            teamIds[i] = reader.zigzag();
+            teamNames[i] = reader.string();
+        }
+
+        long[] memberIds = new long[initialCapacity(size)];
+        long previousId = 0;
+        for (int i = 0; i < size; i++) {
+            if (i == memberIds.length) {
+                memberIds = Arrays.copyOf(memberIds, grow(i, size));
+            }
+            previousId += reader.zigzag();
+            memberIds[i] = previousId;
+        }
+        String[] usernames = new String[size]; // 여기까지 왔으면 size 개의 id 를 읽었다.
+        for (int i = 0; i < size; i++) {
+            usernames[i] = reader.string();
+        }
+        int[] ages = new int[size];
+        for (int i = 0; i < size; i++) {
+            long age = reader.zigzag();
+            if (age < Integer.MIN_VALUE || age > Integer.MAX_VALUE) {
+                throw new IOException("Age out of range: " + age);
+            }
+            ages[i] = (int) age;
+        }
+        List<MemberTeamDTO> rows = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            long team = reader.varint() - 1;
+            if (team >= teamCount) {
+                throw new IOException("Team index " + team + " out of " + teamCount + " teams");
+            }
+            rows.add(team < 0
+                ? new MemberTeamDTO(memberIds[i], usernames[i], ages[i], null, null)
+                : new MemberTeamDTO(memberIds[i], usernames[i], ages[i], teamIds[(int) team], teamNames[(int) team]));
+        }
+        return rows;
+    }
+
+    private static int initialCapacity(int count) {
+        return Math.min(count, 1024);
+    }
+
+    private static int grow(int length, int count) {
+        return (int) Math.min(count, length * 2L);
+    }
+
+    /**
+     * BufferedOutputStream 대신 쓴다. (바이트마다 동기화하지 않는다)
+     */
+    private static class Writer {
+
+        private final OutputStream out;
+        private final byte[] buffer = new byte[8192];
+        private int position;
+
+        private Writer(OutputStream out) {
+            this.out = out;
+        }
+
+        private void write(int b) throws IOException {
+            if (position == buffer.length) {
+                flush();
+            }
+            buffer[position++] = (byte) b;
+        }
+
+        private void bytes(byte[] bytes) throws IOException {
+            if (bytes.length > buffer.length - position) {
+                flush();
+                if (bytes.length > buffer.length) {
+                    out.write(bytes);
+                    return;
+                }
+            }
+            System.arraycopy(bytes, 0, buffer, position, bytes.length);
+            position += bytes.length;
+        }
+
+        private void varint(long value) throws IOException {
+            while ((value & ~0x7FL) != 0) {
+                write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            write((int) value);
+        }
+
+        private void zigzag(long value) throws IOException {
+            varint((value << 1) ^ (value >> 63));
+        }
+
+        private void string(String value) throws IOException {
+            if (value == null) {
+                varint(0);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            varint(bytes.length + 1L);
+            bytes(bytes);
+        }
+
+        private void flush() throws IOException {
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+    }
+
+    private static class Reader {
+
+        private final InputStream in;
+        private final byte[] buffer = new byte[8192];
+        private int position;
+        private int limit;
+
+        private Reader(InputStream in) {
+            this.in = in;
+        }
+
+        private int read() throws IOException {
+            if (position == limit) {
+                limit = in.read(buffer, 0, buffer.length);
+                position = 0;
+                if (limit <= 0) {
+                    limit = 0;
+                    throw new EOFException("Truncated " + MEDIA_TYPE + " stream");
+                }
+            }
+            return buffer[position++];
+        }
+
+        private long varint() throws IOException {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = read();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IOException("Malformed varint");
+        }
+
+        private long zigzag() throws IOException {
+            long value = varint();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        /**
+         * 개수(varint). int 범위를 넘으면 잘못된 입력이다.
+         */
+        private int count(String what) throws IOException {
+            long value = varint();
+            if (value < 0 || value > Integer.MAX_VALUE) {
+                throw new IOException("Invalid " + what + " count: " + Long.toUnsignedString(value));
+            }
+            return (int) value;
+        }
+
+        private String string() throws IOException {
+            int length = count("string byte") - 1;
+            if (length < 0) {
+                return null;
+            }
+            byte[] bytes = new byte[initialCapacity(length)];
+            for (int i = 0; i < length; i++) {
+                if (i == bytes.length) {
+                    bytes = Arrays.copyOf(bytes, grow(i, length));
+                }
+                bytes[i] = (byte) read();
+            }
+            return new String(bytes, 0, length, StandardCharsets.UTF_8);
+        }
+    }
+}
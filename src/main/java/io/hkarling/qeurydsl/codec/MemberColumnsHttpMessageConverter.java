@@ -0,0 +1,64 @@
+package io.hkarling.qeurydsl.codec;
+
+import io.hkarling.qeurydsl.dto.MemberTeamDTO;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.List;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractGenericHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+
+/**
+ * {@code Accept: application/x-member-columns} 인 요청의 {@code List<MemberTeamDTO>} 응답을 {@link MemberColumnsCodec} 으로 쓴다.
+ * Jackson 을 거치지 않고 조회 결과에서 바로 쓴다.
+ * 읽기는 이 형식의 응답을 받는 클라이언트(RestTemplate 등)를 위한 것이다. 잘리거나 맞지 않는 입력은 HttpMessageNotReadableException 이 된다.
+ * 기본 응답은 JSON 이므로 컨버터 목록 끝에 등록한다. (WebConfig)
+ */
+public class MemberColumnsHttpMessageConverter extends AbstractGenericHttpMessageConverter<List<MemberTeamDTO>> {
+
+    public MemberColumnsHttpMessageConverter() {
+        super(MediaType.parseMediaType(MemberColumnsCodec.MEDIA_TYPE));
+    }
+
+    @Override
+    public boolean canRead(Type type, Class<?> contextClass, MediaType mediaType) {
+        return isMemberTeamList(type, contextClass) && canRead(mediaType);
+    }
+
+    @Override
+    public boolean canWrite(Type type, Class<?> clazz, MediaType mediaType) {
+        return isMemberTeamList(type, clazz) && canWrite(mediaType);
+    }
+
+    private static boolean isMemberTeamList(Type type, Class<?> clazz) {
+        ResolvableType resolved = type != null ? ResolvableType.forType(type) : ResolvableType.forClass(clazz);
+        return List.class.isAssignableFrom(resolved.toClass())
+            && MemberTeamDTO.class.equals(resolved.asCollection().resolveGeneric(0));
+    }
+
+    @Override
+    protected void writeInternal(List<MemberTeamDTO> rows, Type type, HttpOutputMessage outputMessage) throws IOException {
+        MemberColumnsCodec.encode(rows, outputMessage.getBody());
+    }
+
+    @Override
+    public List<MemberTeamDTO> read(Type type, Class<?> contextClass, HttpInputMessage inputMessage) {
+        return decode(inputMessage);
+    }
+
+    @Override
+    protected List<MemberTeamDTO> readInternal(Class<? extends List<MemberTeamDTO>> clazz, HttpInputMessage inputMessage) {
+        return decode(inputMessage);
+    }
+
+    private static List<MemberTeamDTO> decode(HttpInputMessage inputMessage) {
+        try {
+            return MemberColumnsCodec.decode(inputMessage.getBody());
+        } catch (IOException e) {
+            throw new HttpMessageNotReadableException("Malformed " + MemberColumnsCodec.MEDIA_TYPE + " body: " + e.getMessage(), e, inputMessage);
+        }
+    }
+}
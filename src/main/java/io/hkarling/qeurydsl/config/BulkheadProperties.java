@@ -0,0 +1,51 @@
+package io.hkarling.qeurydsl.config;
+
+import io.hkarling.qeurydsl.bulkhead.Lane;
+import java.time.Duration;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * application.yml 의 bulkhead.* 설정. 구획별 동시 실행 수의 합은 커넥션 풀 크기(기본 10) 이하로 둔다.
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "bulkhead")
+public class BulkheadProperties {
+
+    private boolean enabled = true;
+    private final LaneProperties interactive = new LaneProperties(6, 12, Duration.ofMillis(500), Duration.ofSeconds(1));
+    private final LaneProperties list = new LaneProperties(2, 4, Duration.ofSeconds(2), Duration.ofSeconds(5));
+    private final LaneProperties export = new LaneProperties(1, 1, Duration.ofSeconds(1), Duration.ofSeconds(30));
+
+    public LaneProperties of(Lane lane) {
+        switch (lane) {
+            case INTERACTIVE:
+                return interactive;
+            case LIST:
+                return list;
+            case EXPORT:
+                return export;
+            default:
+                throw new IllegalArgumentException("Unknown lane: " + lane);
+        }
+    }
+
+    @Getter
+    @Setter
+    public static class LaneProperties {
+
+        private int maxConcurrent; // 동시에 실행하는 요청 수
+        private int queueDepth; // 실행을 기다릴 수 있는 요청 수. 넘으면 바로 503
+        private Duration timeout; // 대기열에서 기다리는 최대 시간. 넘으면 503
+        private Duration retryAfter; // 503 응답의 Retry-After
+
+        public LaneProperties(int maxConcurrent, int queueDepth, Duration timeout, Duration retryAfter) {
+            this.maxConcurrent = maxConcurrent;
+            this.queueDepth = queueDepth;
+            this.timeout = timeout;
+            this.retryAfter = retryAfter;
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package io.hkarling.qeurydsl.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.hkarling.qeurydsl.routing.ReadWriteRoutingDataSource;
+import io.hkarling.qeurydsl.routing.ReadYourWritesFilter;
+import io.micrometer.core.instrument.MeterRegistry;
+import javax.sql.DataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+/**
+ * spring.datasource.replica.url 이 있으면 primary, replica 두 커넥션 풀을 만들고 읽기 전용 트랜잭션을 replica 로 보낸다.
+ * (replica 프로파일, application-replica.yml)
+ * <p>
+ * 트랜잭션이 끝나면 커넥션을 돌려줘야(hibernate.connection.handling_mode) 같은 요청의 다음 트랜잭션이 다시 고를 수 있다.
+ * OSIV 기본값(요청 끝까지 잡고 있음)이면 요청의 첫 트랜잭션이 고른 풀을 끝까지 쓴다.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "spring.datasource.replica", name = "url")
+public class DataSourceRoutingConfig {
+
+    @Bean
+    @Primary
+    @ConfigurationProperties("spring.datasource")
+    public DataSourceProperties primaryDataSourceProperties() {
+        return new DataSourceProperties();
+    }
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource() {
+        HikariDataSource dataSource = primaryDataSourceProperties().initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        return dataSource;
+    }
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.replica")
+    public DataSourceProperties replicaDataSourceProperties() {
+        return new DataSourceProperties();
+    }
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.replica.hikari")
+    public HikariDataSource replicaDataSource() {
+        HikariDataSource dataSource = replicaDataSourceProperties().initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("replica");
+        dataSource.setReadOnly(true);
+        return dataSource;
+    }
+
+    /**
+     * JPA, JdbcTemplate 등이 사용하는 DataSource.
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(MeterRegistry registry) {
+        return new ReadWriteRoutingDataSource(primaryDataSource(), replicaDataSource(), registry).lazy();
+    }
+
+    @Bean
+    public ReadYourWritesFilter readYourWritesFilter() {
+        return new ReadYourWritesFilter();
+    }
+}
@@ -0,0 +1,20 @@
+package io.hkarling.qeurydsl.config;
+
+import com.querydsl.jpa.HQLTemplates;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import javax.persistence.EntityManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class QuerydslConfig {
+
+    /**
+     * Repository 마다 new JPAQueryFactory(em) 을 만드는 대신 공유한다. (EntityManager 는 트랜잭션 단위 프록시)
+     * Templates 를 고정해 두면 쿼리를 만들 때마다 JPA 구현체를 보고 Templates 를 찾는 과정이 생략된다.
+     */
+    @Bean
+    public JPAQueryFactory jpaQueryFactory(EntityManager em) {
+        return new JPAQueryFactory(HQLTemplates.DEFAULT, em);
+    }
+}
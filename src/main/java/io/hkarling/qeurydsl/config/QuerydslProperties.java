@@ -0,0 +1,175 @@
+package io.hkarling.qeurydsl.config;
+
+import java.time.Duration;
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * application.yml 의 querydsl.* 설정
+ */
+@Getter
+@Setter
+@ConfigurationProperties(prefix = "querydsl")
+public class QuerydslProperties {
+
+    private final CountCache countCache = new CountCache();
+    private final Streaming streaming = new Streaming();
+    private final Seed seed = new Seed();
+    private final ParallelCount parallelCount = new ParallelCount();
+    private final Bulk bulk = new Bulk();
+    private final EstimatedCount estimatedCount = new EstimatedCount();
+    private final UsernameIndex usernameIndex = new UsernameIndex();
+    private final ReadModel readModel = new ReadModel();
+    private final TeamStatistics teamStatistics = new TeamStatistics();
+    private final AgeIndex ageIndex = new AgeIndex();
+    private final SearchCache searchCache = new SearchCache();
+    private final SingleFlight singleFlight = new SingleFlight();
+
+    @Getter
+    @Setter
+    public static class CountCache {
+
+        private boolean enabled = true;
+        private int maxSize = 1000;
+        private Duration ttl = Duration.ofSeconds(30);
+        private boolean invalidateOnWrite = true; // Member, Team 변경 commit 시 전체 무효화
+    }
+
+    @Getter
+    @Setter
+    public static class Streaming {
+
+        private int fetchSize = 500; // JDBC fetch size. 한 번에 JVM 으로 가져오는 row 수
+        private int flushEvery = 1000; // 응답 스트림을 flush 하는 row 간격
+    }
+
+    /**
+     * local 프로파일 기동 시 생성하는 테스트 데이터
+     */
+    @Getter
+    @Setter
+    public static class Seed {
+
+        public enum AgeDistribution {
+            SEQUENTIAL, // i 번째 회원은 ageMin + i (ageMax 를 넘으면 ageMin 부터 다시)
+            UNIFORM,
+            NORMAL
+        }
+
+        private int teams = 2;
+        private long members = 100;
+        private double teamSkew = 0; // 팀 크기 Zipf 지수. 0 이면 돌아가며 배정(i % teams), 1 이상이면 소수 팀에 몰린다.
+        private AgeDistribution ageDistribution = AgeDistribution.SEQUENTIAL;
+        private int ageMin = 0;
+        private int ageMax = 99;
+        private double ageMean = 40; // NORMAL
+        private double ageStdDev = 15; // NORMAL
+        private int usernameCardinality = 0; // 서로 다른 username 수. 0 이면 모두 유일
+        private int batchSize = 1000; // JDBC batch 크기
+        private int commitInterval = 50_000; // 이 건수마다 commit
+        private int threads = 1; // 1 보다 크면 커넥션을 여러 개 써서 병렬로 insert
+        private long randomSeed = 42;
+    }
+
+    /**
+     * 페이징 count 쿼리를 content 쿼리와 다른 커넥션에서 동시에 실행
+     */
+    @Getter
+    @Setter
+    public static class ParallelCount {
+
+        private boolean enabled = false;
+        private int threads = 4;
+        private int queueCapacity = 16; // 가득 차면 호출한 스레드에서 순서대로 실행
+        private int minIdleConnections = 2; // 커넥션 풀의 idle 커넥션이 이보다 적으면 순서대로 실행
+    }
+
+    /**
+     * MemberBulkOperations 의 id 범위 chunk. chunk 마다 commit 하므로 한 번에 잡는 lock 범위가 이 크기로 제한된다.
+     */
+    @Getter
+    @Setter
+    public static class Bulk {
+
+        private int chunkSize = 10000;
+    }
+
+    /**
+     * 페이징 total 추정 (count=estimated). 통계는 주기적으로 다시 계산한다. (MemberStatistics)
+     */
+    @Getter
+    @Setter
+    public static class EstimatedCount {
+
+        private long exactThreshold = 10_000; // 추정값이 이보다 작으면 정확한 count 쿼리를 실행한다.
+        private Duration refreshInterval = Duration.ofMinutes(5);
+    }
+
+    /**
+     * usernamePrefix, usernameContains 검색용 메모리 색인 (repository.UsernameIndex)
+     */
+    @Getter
+    @Setter
+    public static class UsernameIndex {
+
+        private boolean enabled = true; // false 이면 like 로만 조회한다.
+        private int maxCandidates = 1000; // 후보 id 가 이보다 많으면 like 로만 조회한다. (in 목록 크기)
+        private Duration reconcileInterval = Duration.ofMinutes(5); // 다시 만들어 비교하는 간격. 이벤트 없이 바뀐 username 을 찾는다.
+    }
+
+    /**
+     * member_team_view 읽기 모델 (repository.MemberTeamReadModel)
+     */
+    @Getter
+    @Setter
+    public static class ReadModel {
+
+        private boolean maintain = false; // Member/Team 변경을 같은 트랜잭션에서 반영. read 를 켤 때 함께 켠다. (읽지 않으면 쓰기 비용만 는다)
+        private boolean read = false; // 검색을 join 대신 읽기 모델에서. maintain 이 꺼져 있으면 무시한다.
+        private boolean rebuildOnStartup = true; // ddl-auto create, seed 처럼 이벤트 없이 바뀐 데이터를 기동 시 다시 채운다.
+    }
+
+    /**
+     * 팀별 나이 통계 (repository.TeamStatistics). 변경마다 메모리에서 고치고 주기적으로 DB 와 맞춘다.
+     */
+    @Getter
+    @Setter
+    public static class TeamStatistics {
+
+        private Duration reconcileInterval = Duration.ofMinutes(5);
+    }
+
+    /**
+     * 나이 범위 + 팀 조건 count 추정용 메모리 색인 (repository.MemberAgeIndex)
+     */
+    @Getter
+    @Setter
+    public static class AgeIndex {
+
+        private boolean enabled = true; // false 이면 count=estimated 도 통계(MemberStatistics)로 추정한다.
+        private Duration reconcileInterval = Duration.ofMinutes(5); // 다시 읽어 비교하는 간격. 이벤트 없이 바뀐 나이/팀을 맞춘다.
+    }
+
+    /**
+     * 검색 결과 캐시 (repository.MemberSearchCache). 크기와 ttl 은 기동할 때만 읽는다.
+     */
+    @Getter
+    @Setter
+    public static class SearchCache {
+
+        private boolean enabled = true;
+        private int maxSize = 1000;
+        private Duration ttl = Duration.ofSeconds(60); // 이벤트 없는 변경(JDBC seed, replica 지연)이 남아 있을 수 있는 최대 시간
+    }
+
+    /**
+     * 동시 조회 합치기 (repository.support.SingleFlight)
+     */
+    @Getter
+    @Setter
+    public static class SingleFlight {
+
+        private Duration followerTimeout = Duration.ofSeconds(5); // leader 결과를 이만큼 기다리고 나면 직접 실행한다.
+    }
+}
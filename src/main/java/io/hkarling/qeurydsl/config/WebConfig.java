@@ -0,0 +1,30 @@
+package io.hkarling.qeurydsl.config;
+
+import io.hkarling.qeurydsl.bulkhead.BulkheadInterceptor;
+import io.hkarling.qeurydsl.codec.MemberColumnsHttpMessageConverter;
+import io.hkarling.qeurydsl.etag.ConditionalGetInterceptor;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+@RequiredArgsConstructor
+public class WebConfig implements WebMvcConfigurer {
+
+    private final ConditionalGetInterceptor conditionalGetInterceptor;
+    private final BulkheadInterceptor bulkheadInterceptor;
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(conditionalGetInterceptor); // 304 는 구획 허가 없이 응답한다.
+        registry.addInterceptor(bulkheadInterceptor);
+    }
+
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        converters.add(new MemberColumnsHttpMessageConverter()); // Accept 로 요청한 경우에만 사용한다. 기본은 JSON
+    }
+}
@@ -1,36 +1,110 @@
 package io.hkarling.qeurydsl.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.hkarling.qeurydsl.bulkhead.Bulkhead;
+import io.hkarling.qeurydsl.bulkhead.Lane;
+import io.hkarling.qeurydsl.config.QuerydslProperties;
 import io.hkarling.qeurydsl.dto.MemberSearchCondition;
 import io.hkarling.qeurydsl.dto.MemberTeamDTO;
+import io.hkarling.qeurydsl.etag.ConditionalGet;
 import io.hkarling.qeurydsl.repository.MemberJpaRepository;
+import io.hkarling.qeurydsl.repository.MemberQueryRepository;
 import io.hkarling.qeurydsl.repository.MemberRepository;
+import io.hkarling.qeurydsl.repository.support.CountMode;
+import io.hkarling.qeurydsl.repository.support.KeysetPage;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
+import java.util.stream.Stream;
+import javax.servlet.http.HttpServletResponse;
 
 @RestController
 @RequiredArgsConstructor
 public class MemberController {
 
+    private static final int MAX_KEYSET_SIZE = 1000;
+    private static final String APPLICATION_NDJSON = "application/x-ndjson";
+
     private final MemberJpaRepository memberJpaRepository;
     private final MemberRepository memberRepository;
+    private final MemberQueryRepository memberQueryRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final ObjectMapper objectMapper;
+    private final QuerydslProperties properties;
 
+    @Bulkhead(Lane.LIST)
+    @ConditionalGet
     @GetMapping("/v1/members")
     public List<MemberTeamDTO> searchMemberV1(MemberSearchCondition condition) {
         return memberJpaRepository.search(condition);
     }
 
+    @Bulkhead(Lane.EXPORT)
+    @GetMapping(value = "/v1/members/stream", produces = APPLICATION_NDJSON) // 한 줄에 한 건씩 조회되는 대로 내려준다.
+    public void streamMemberV1(MemberSearchCondition condition, HttpServletResponse response) throws IOException {
+        response.setContentType(APPLICATION_NDJSON);
+        response.setCharacterEncoding("UTF-8");
+
+        ObjectWriter writer = objectMapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        int flushEvery = properties.getStreaming().getFlushEvery();
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(response.getOutputStream())
+            .setRootValueSeparator(null)) {
+            readOnly.executeWithoutResult(status -> {
+                try (Stream<MemberTeamDTO> rows = memberJpaRepository.searchStream(condition)) {
+                    int[] written = {0};
+                    rows.forEach(row -> {
+                        try {
+                            writer.writeValue(generator, row);
+                            generator.writeRaw('\n');
+                            if (++written[0] % flushEvery == 0) {
+                                generator.flush();
+                            }
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+                }
+            });
+        }
+    }
+
+    @Bulkhead(Lane.INTERACTIVE)
+    @ConditionalGet
     @GetMapping("/v2/members")
     public Page<MemberTeamDTO> searchMemberV2(MemberSearchCondition condition, Pageable pageable) {
         return memberRepository.searchPageSimple(condition, pageable);
     }
 
+    @Bulkhead(Lane.INTERACTIVE)
+    @ConditionalGet
     @GetMapping("/v3/members")
-    public Page<MemberTeamDTO> searchMemberV3(MemberSearchCondition condition, Pageable pageable) {
-        return memberRepository.searchPageComplex(condition, pageable);
+    public Page<MemberTeamDTO> searchMemberV3(MemberSearchCondition condition, Pageable pageable,
+                                              @RequestParam(defaultValue = "exact") String count) { // estimated: total 을 통계로 추정
+        return memberRepository.searchPageComplex(condition, pageable, CountMode.of(count));
+    }
+
+    @Bulkhead(Lane.INTERACTIVE)
+    @ConditionalGet
+    @GetMapping("/v4/members") // offset 대신 cursor 사용. 깊은 페이지도 첫 페이지와 비용이 같다.
+    public KeysetPage<MemberTeamDTO> searchMemberV4(MemberSearchCondition condition,
+                                                    @RequestParam(defaultValue = "id") String sort,
+                                                    @RequestParam(required = false) String cursor,
+                                                    @RequestParam(defaultValue = "20") int size) {
+        return memberQueryRepository.searchByKeyset(condition, sort, cursor, Math.max(1, Math.min(size, MAX_KEYSET_SIZE)));
     }
 }
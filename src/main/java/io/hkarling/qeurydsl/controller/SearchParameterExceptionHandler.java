@@ -0,0 +1,20 @@
+package io.hkarling.qeurydsl.controller;
+
+import io.hkarling.qeurydsl.repository.support.InvalidSearchParameterException;
+import java.util.Map;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+@RestControllerAdvice
+public class SearchParameterExceptionHandler {
+
+    /**
+     * 변조되었거나 다른 정렬로 발급된 cursor 등 클라이언트가 고쳐야 하는 요청은 500 이 아니라 400 으로 응답한다.
+     */
+    @ExceptionHandler(InvalidSearchParameterException.class)
+    public ResponseEntity<Map<String, String>> invalidSearchParameter(InvalidSearchParameterException e) {
+        return ResponseEntity.badRequest().body(Map.of("message", e.getMessage()));
+    }
+}
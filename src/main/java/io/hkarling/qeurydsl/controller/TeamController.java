@@ -0,0 +1,27 @@
+package io.hkarling.qeurydsl.controller;
+
+import io.hkarling.qeurydsl.dto.TeamStatisticsDTO;
+import io.hkarling.qeurydsl.repository.TeamStatistics;
+import java.util.List;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequiredArgsConstructor
+public class TeamController {
+
+    private final TeamStatistics teamStatistics;
+
+    @GetMapping("/v1/teams/statistics") // 메모리에서 바로 응답한다. DB 와는 querydsl.team-statistics.reconcile-interval 마다 맞춘다.
+    public List<TeamStatisticsDTO> statistics() {
+        return teamStatistics.findAll();
+    }
+
+    @GetMapping("/v1/teams/{teamId}/statistics")
+    public ResponseEntity<TeamStatisticsDTO> statistics(@PathVariable Long teamId) {
+        return ResponseEntity.of(teamStatistics.find(teamId));
+    }
+}
@@ -1,14 +1,30 @@
 package io.hkarling.qeurydsl.dto;
 
 import lombok.Data;
+import org.springframework.util.StringUtils;
 
 @Data
 public class MemberSearchCondition {
-    // 회원명, 팀명, 나이(ageGoe, ageLoe)
+    // 회원명, 회원명 앞부분/부분 문자열, 팀명, 나이(ageGoe, ageLoe)
 
     private String username;
+    private String usernamePrefix;
+    private String usernameContains;
     private String teamName;
     private Integer ageGoe;
     private Integer ageLoe;
 
+    /**
+     * 검색에 영향이 없는 빈 문자열을 null 로 바꾼 사본. 같은 검색이면 equals 가 같도록 캐시 키 등에 사용한다.
+     */
+    public MemberSearchCondition normalized() {
+        MemberSearchCondition normalized = new MemberSearchCondition();
+        normalized.setUsername(StringUtils.hasText(username) ? username : null);
+        normalized.setUsernamePrefix(StringUtils.hasText(usernamePrefix) ? usernamePrefix : null);
+        normalized.setUsernameContains(StringUtils.hasText(usernameContains) ? usernameContains : null);
+        normalized.setTeamName(StringUtils.hasText(teamName) ? teamName : null);
+        normalized.setAgeGoe(ageGoe);
+        normalized.setAgeLoe(ageLoe);
+        return normalized;
+    }
 }
@@ -20,4 +20,11 @@ public class MemberTeamDTO {
         this.teamId = teamId;
         this.teamName = teamName;
     }
+
+    /**
+     * team 을 join 하지 않는 조회용. teamName 은 팀 이름 사전(TeamNameDictionary)에서 채운다.
+     */
+    public MemberTeamDTO(Long memberId, String username, int age, Long teamId) {
+        this(memberId, username, age, teamId, null);
+    }
 }
@@ -0,0 +1,31 @@
+package io.hkarling.qeurydsl.dto;
+
+import java.util.SortedMap;
+import lombok.Data;
+
+/**
+ * 팀별 회원 나이 통계. 회원이 없는 팀은 count 0, 나머지는 null
+ */
+@Data
+public class TeamStatisticsDTO {
+
+    private Long teamId;
+    private String teamName;
+    private long count;
+    private long sum;
+    private Double avg;
+    private Integer min;
+    private Integer max;
+    private SortedMap<Integer, Long> ages; // 나이 -> 회원 수
+
+    public TeamStatisticsDTO(Long teamId, String teamName, long count, long sum, Integer min, Integer max, SortedMap<Integer, Long> ages) {
+        this.teamId = teamId;
+        this.teamName = teamName;
+        this.count = count;
+        this.sum = sum;
+        this.avg = count == 0 ? null : (double) sum / count;
+        this.min = min;
+        this.max = max;
+        this.ages = ages;
+    }
+}
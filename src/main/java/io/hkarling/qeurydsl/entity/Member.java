@@ -5,8 +5,10 @@ import javax.persistence.Entity;
 import javax.persistence.FetchType;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.JoinColumn;
 import javax.persistence.ManyToOne;
+import javax.persistence.Table;
 import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
@@ -14,6 +16,11 @@ import lombok.Setter;
 import lombok.ToString;
 
 @Entity
+@Table(indexes = { // 검색 조건(MemberSearchCondition)용. 확인은 /actuator/indexadvisor
+    @Index(name = "idx_member_username", columnList = "username"),
+    @Index(name = "idx_member_team_age", columnList = "team_id, age"), // 팀 + 나이 범위, team_id FK 조회 겸용
+    @Index(name = "idx_member_age", columnList = "age")
+})
 @Getter
 @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
@@ -0,0 +1,44 @@
+package io.hkarling.qeurydsl.entity;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.ToString;
+import org.hibernate.annotations.Immutable;
+
+/**
+ * Member + Team 을 펼쳐 둔 조회용 테이블 (읽기 모델). 검색은 join 없이 이 테이블만 읽는다.
+ * JPA 로는 읽기만 하고, 쓰기는 MemberTeamReadModel 이 Member/Team 변경과 같은 트랜잭션에서 JDBC 로 한다.
+ */
+@Entity
+@Immutable
+@Table(name = "member_team_view", indexes = { // 검색 조건(MemberSearchCondition)용. 확인은 /actuator/indexadvisor (read-model)
+    @Index(name = "idx_member_team_view_username", columnList = "username"),
+    @Index(name = "idx_member_team_view_team_name_age", columnList = "team_name, age"),
+    @Index(name = "idx_member_team_view_age", columnList = "age"),
+    @Index(name = "idx_member_team_view_team_id", columnList = "team_id") // 팀 이름 변경 반영
+})
+@Getter
+@NoArgsConstructor(access = AccessLevel.PROTECTED)
+@ToString
+public class MemberTeamView {
+
+    @Id
+    @Column(name = "member_id")
+    private Long id;
+
+    private String username;
+
+    private int age;
+
+    @Column(name = "team_id")
+    private Long teamId;
+
+    @Column(name = "team_name")
+    private String teamName;
+}
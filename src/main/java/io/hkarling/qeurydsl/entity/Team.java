@@ -2,10 +2,12 @@ package io.hkarling.qeurydsl.entity;
 
 import java.util.ArrayList;
 import java.util.List;
+import javax.persistence.Cacheable;
 import javax.persistence.Column;
 import javax.persistence.Entity;
 import javax.persistence.GeneratedValue;
 import javax.persistence.Id;
+import javax.persistence.Index;
 import javax.persistence.OneToMany;
 import javax.persistence.Table;
 import lombok.AccessLevel;
@@ -13,8 +15,13 @@ import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
 import lombok.ToString;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 
 @Entity
+@Table(indexes = @Index(name = "idx_team_name", columnList = "name")) // 팀 이름 사전을 쓸 수 없을 때(join)의 팀 이름 조건
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "team") // 2차 캐시 (l2cache 프로파일)
 @Getter
 @Setter
 @NoArgsConstructor(access = AccessLevel.PROTECTED)
@@ -0,0 +1,17 @@
+package io.hkarling.qeurydsl.etag;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 응답이 요청 파라미터와 Member/Team 데이터로만 정해지는 GET 핸들러에 붙인다.
+ * 데이터 버전으로 만든 ETag 가 If-None-Match 와 같으면 핸들러(조회 쿼리)를 실행하지 않고 304 로 응답한다.
+ *
+ * @see ConditionalGetInterceptor
+ */
+@Target(ElementType.METHOD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface ConditionalGet {
+}
@@ -0,0 +1,68 @@
+package io.hkarling.qeurydsl.etag;
+
+import io.hkarling.qeurydsl.event.DataVersion;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+/**
+ * {@link ConditionalGet} 이 붙은 GET/HEAD 요청의 ETag 를 데이터 버전, 경로, 정렬한 쿼리 파라미터, Accept 로 만든다.
+ * 같은 결과라도 표현(JSON, application/x-member-columns)이 다르면 ETag 가 다르다.
+ * If-None-Match 가 같으면 304 로 응답하고 핸들러를 실행하지 않는다. 본문을 해시하지 않으므로 weak ETag 다.
+ * <p>
+ * 버전은 조회 전에 읽는다. 조회 중에 commit 된 변경은 다음 요청에서 ETag 가 달라지므로 오래된 응답이 남지 않는다.
+ * (replica 복제 지연은 고려하지 않는다)
+ * 버전이 프로세스 안에만 있으므로 단일 인스턴스에서만 쓴다. ({@link DataVersion})
+ * Bulkhead 보다 먼저 실행해서 304 응답은 구획 허가를 쓰지 않는다. (WebConfig)
+ * <ul>
+ *     <li>http.conditional.get : 304 로 응답한 수(not-modified)와 핸들러를 실행한 수(modified)</li>
+ * </ul>
+ */
+@Component
+public class ConditionalGetInterceptor implements HandlerInterceptor {
+
+    private final DataVersion dataVersion;
+    private final Counter notModified;
+    private final Counter modified;
+
+    public ConditionalGetInterceptor(DataVersion dataVersion, MeterRegistry registry) {
+        this.dataVersion = dataVersion;
+        this.notModified = Counter.builder("http.conditional.get").tag("result", "not-modified").register(registry);
+        this.modified = Counter.builder("http.conditional.get").tag("result", "modified").register(registry);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!(handler instanceof HandlerMethod) || !((HandlerMethod) handler).hasMethodAnnotation(ConditionalGet.class)
+            || !("GET".equals(request.getMethod()) || "HEAD".equals(request.getMethod()))) {
+            return true;
+        }
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "no-cache"); // 매번 ETag 로 다시 확인한다.
+        response.addHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT);
+        if (new ServletWebRequest(request, response).checkNotModified(etag(request))) { // 응답에 ETag 도 설정된다.
+            notModified.increment();
+            return false;
+        }
+        modified.increment();
+        return true;
+    }
+
+    String etag(HttpServletRequest request) {
+        StringBuilder key = new StringBuilder(request.getRequestURI()).append('|').append(request.getHeader(HttpHeaders.ACCEPT));
+        for (Map.Entry<String, String[]> parameter : new TreeMap<>(request.getParameterMap()).entrySet()) {
+            key.append('&').append(parameter.getKey()).append('=').append(Arrays.toString(parameter.getValue()));
+        }
+        return "W/\"" + dataVersion.tag() + "-" + DigestUtils.md5DigestAsHex(key.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+}
@@ -0,0 +1,50 @@
+package io.hkarling.qeurydsl.event;
+
+import io.hkarling.qeurydsl.entity.Member;
+import io.hkarling.qeurydsl.entity.Team;
+import java.util.concurrent.atomic.AtomicLong;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * Member/Team 데이터 버전. 변경이 commit 될 때마다 1 씩 증가한다. 롤백된 변경은 올리지 않는다.
+ * <p>
+ * 프로세스 안에서만 유지하므로 재시작하면 다시 시작한다. 이전 프로세스의 값과 겹치지 않도록 {@link #tag()} 에 기동 시각을 붙인다.
+ * <p>
+ * 엔티티 이벤트가 없는 변경은 직접 올려야 한다. bulk update/delete 는 commit 마다 BULK 이벤트를 발행하고(MemberBulkOperations),
+ * JDBC 로 넣는 seed 는 commit 마다 {@link #bump()} 를 부른다. 이 둘 밖에서 SQL 로 바꾸면 ETag 가 그대로여서 304 로 이전 응답이 재사용된다.
+ * <p>
+ * 단일 인스턴스에서만 유효하다. 다른 인스턴스가 commit 한 변경은 이 버전을 올리지 않으므로
+ * 여러 인스턴스로 띄우려면 DB 에 둔 버전(예: 변경마다 올리는 행)으로 바꿔야 한다.
+ */
+@Component
+public class DataVersion {
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong version = new AtomicLong();
+
+    public long current() {
+        return version.get();
+    }
+
+    /**
+     * @return 기동 시각과 버전을 합친 문자열. 같으면 그 사이에 commit 된 변경이 없다.
+     */
+    public String tag() {
+        return epoch + "." + version.get();
+    }
+
+    /**
+     * 이벤트 없이 commit 한 변경(JDBC)을 반영한다. commit 한 뒤에 부른다.
+     */
+    public void bump() {
+        version.incrementAndGet();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEntityChanged(EntityChangedEvent event) {
+        if (event.isAbout(Member.class) || event.isAbout(Team.class)) {
+            version.incrementAndGet();
+        }
+    }
+}
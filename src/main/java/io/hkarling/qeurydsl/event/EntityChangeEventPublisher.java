@@ -0,0 +1,79 @@
+package io.hkarling.qeurydsl.event;
+
+import io.hkarling.qeurydsl.event.EntityChangedEvent.ChangeType;
+import java.util.HashMap;
+import java.util.Map;
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+/**
+ * Hibernate post insert/update/delete 이벤트를 {@link EntityChangedEvent} 로 바꿔 Spring 이벤트로 발행한다.
+ * 변경 전/후 상태를 함께 넘기기 위해 JPA 콜백(@PostUpdate 등) 대신 Hibernate 이벤트를 사용한다.
+ */
+@Component
+@RequiredArgsConstructor
+public class EntityChangeEventPublisher implements PostInsertEventListener, PostUpdateEventListener, PostDeleteEventListener {
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @PostConstruct
+    public void register() {
+        SessionFactoryImplementor sessionFactory = entityManagerFactory.unwrap(SessionFactoryImplementor.class);
+        EventListenerRegistry registry = sessionFactory.getServiceRegistry().getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, this);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+        registry.appendListeners(EventType.POST_DELETE, this);
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        publish(ChangeType.INSERT, event.getPersister(), event.getId(), event.getEntity(), null, event.getState());
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        publish(ChangeType.UPDATE, event.getPersister(), event.getId(), event.getEntity(), event.getOldState(), event.getState());
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        publish(ChangeType.DELETE, event.getPersister(), event.getId(), event.getEntity(), event.getDeletedState(), null);
+    }
+
+    @Override
+    public boolean requiresPostCommitHanding(EntityPersister persister) {
+        return false; // commit 이후 처리는 @TransactionalEventListener 에 맡긴다.
+    }
+
+    private void publish(ChangeType changeType, EntityPersister persister, Object id, Object entity,
+                         Object[] oldState, Object[] newState) {
+        eventPublisher.publishEvent(new EntityChangedEvent(persister.getMappedClass(), id, changeType, entity,
+            toMap(persister, oldState), toMap(persister, newState)));
+    }
+
+    private static Map<String, Object> toMap(EntityPersister persister, Object[] state) {
+        if (state == null) {
+            return null;
+        }
+        String[] propertyNames = persister.getPropertyNames();
+        Map<String, Object> map = new HashMap<>(propertyNames.length * 2);
+        for (int i = 0; i < propertyNames.length; i++) {
+            map.put(propertyNames[i], state[i]);
+        }
+        return map;
+    }
+}
@@ -0,0 +1,76 @@
+package io.hkarling.qeurydsl.event;
+
+import java.util.Collections;
+import java.util.Map;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Hibernate 가 엔티티를 insert/update/delete 한 직후(flush 시점) 발행되는 이벤트.
+ * commit 이후에 처리하려면 {@code @TransactionalEventListener}, 같은 트랜잭션 안에서 처리하려면 {@code @EventListener} 로 받는다.
+ * JPQL bulk 연산은 영속성 컨텍스트를 거치지 않으므로 이 이벤트가 발행되지 않는다.
+ * 대신 MemberBulkOperations 는 chunk 마다 {@link ChangeType#BULK} 이벤트를 발행한다.
+ * BULK 이벤트는 id, entity 가 없고, 바뀌었을 수 있는 id 범위 [idFrom, idTo) 만 있다. 범위를 모르면 둘 다 null
+ */
+@Getter
+@ToString(of = {"entityType", "id", "changeType"})
+public class EntityChangedEvent {
+
+    public enum ChangeType {
+        INSERT, UPDATE, DELETE, BULK
+    }
+
+    private final Class<?> entityType;
+    private final Object id;
+    private final ChangeType changeType;
+    private final Object entity;
+    private final Map<String, Object> oldState; // INSERT 이면 비어 있다
+    private final Map<String, Object> newState; // DELETE 이면 비어 있다
+    private final Long idFrom; // BULK
+    private final Long idTo; // BULK, exclusive
+
+    public EntityChangedEvent(Class<?> entityType, Object id, ChangeType changeType, Object entity,
+                              Map<String, Object> oldState, Map<String, Object> newState) {
+        this(entityType, id, changeType, entity, oldState, newState, null, null);
+    }
+
+    private EntityChangedEvent(Class<?> entityType, Object id, ChangeType changeType, Object entity,
+                               Map<String, Object> oldState, Map<String, Object> newState, Long idFrom, Long idTo) {
+        this.entityType = entityType;
+        this.id = id;
+        this.changeType = changeType;
+        this.entity = entity;
+        this.oldState = oldState == null ? Collections.emptyMap() : oldState;
+        this.newState = newState == null ? Collections.emptyMap() : newState;
+        this.idFrom = idFrom;
+        this.idTo = idTo;
+    }
+
+    public static EntityChangedEvent bulk(Class<?> entityType) {
+        return new EntityChangedEvent(entityType, null, ChangeType.BULK, null, null, null, null, null);
+    }
+
+    /**
+     * @param idFrom 바뀌었을 수 있는 id 범위 시작
+     * @param idTo   범위 끝 (exclusive)
+     */
+    public static EntityChangedEvent bulk(Class<?> entityType, long idFrom, long idTo) {
+        return new EntityChangedEvent(entityType, null, ChangeType.BULK, null, null, null, idFrom, idTo);
+    }
+
+    public boolean hasIdRange() {
+        return idFrom != null && idTo != null;
+    }
+
+    public boolean isAbout(Class<?> type) {
+        return type.isAssignableFrom(entityType);
+    }
+
+    public Object getOldValue(String property) {
+        return oldState.get(property);
+    }
+
+    public Object getNewValue(String property) {
+        return newState.get(property);
+    }
+}
@@ -1,44 +1,23 @@
 package io.hkarling.qeurydsl;
 
-import io.hkarling.qeurydsl.entity.Member;
-import io.hkarling.qeurydsl.entity.Team;
+import io.hkarling.qeurydsl.config.QuerydslProperties;
+import io.hkarling.qeurydsl.seed.MemberDataGenerator;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Profile;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
-import javax.persistence.EntityManager;
-import javax.persistence.PersistenceContext;
-import javax.transaction.Transactional;
 
 @Profile("local")
 @Component
 @RequiredArgsConstructor
 public class initMember {
 
-    private final InitMemberService initMemberService;
+    private final MemberDataGenerator memberDataGenerator;
+    private final QuerydslProperties properties;
 
-    @PostConstruct  // postContruct 와 transactional 부분은 따로 넣어준다 -> Spring Life Cycle 참고
+    @PostConstruct // 데이터 규모와 분포는 querydsl.seed.* 로 조정한다. 기본값은 기존 예제와 같은 teamA/teamB 번갈아 100명, age = i
     public void init() {
-        initMemberService.init();
-    }
-
-    @Component
-    static class InitMemberService {
-        @PersistenceContext
-        private EntityManager em;
-
-        @Transactional
-        public void init() {
-            Team teamA = new Team("teamA");
-            Team teamB = new Team("teamB");
-            em.persist(teamA);
-            em.persist(teamB);
-
-            for (int i = 0; i < 100; i++) {
-                Team selectedTeam = i % 2 == 0 ? teamA : teamB;
-                em.persist(new Member("member" + i, i, selectedTeam));
-            }
-        }
+        memberDataGenerator.generate(properties.getSeed());
     }
 }
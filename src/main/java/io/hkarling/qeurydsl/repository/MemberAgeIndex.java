@@ -0,0 +1,604 @@
+package io.hkarling.qeurydsl.repository;
+
+import static org.springframework.util.StringUtils.hasText;
+
+import io.hkarling.qeurydsl.config.QuerydslProperties;
+import io.hkarling.qeurydsl.dto.MemberSearchCondition;
+import io.hkarling.qeurydsl.entity.Member;
+import io.hkarling.qeurydsl.event.EntityChangedEvent;
+import io.hkarling.qeurydsl.repository.support.IdBitmap;
+import io.hkarling.qeurydsl.repository.support.Transactions;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.OptionalLong;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceUnitUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * 나이 범위(ageGoe, ageLoe) + 팀 이름 조건의 회원 수와 id 목록을 DB 조회 없이 구하는 메모리 색인.
+ * <ul>
+ *     <li>팀별: (나이, id) 순으로 정렬한 int[] 나이, long[] id 병렬 배열. 나이 범위는 이진 탐색 두 번</li>
+ *     <li>나이별: 회원 id 압축 bitmap ({@link IdBitmap}). 팀 조건이 없으면 범위 안 나이의 bitmap 크기를 더하거나 합친다.</li>
+ * </ul>
+ * 회원 하나에 boxing 된 객체를 만들지 않는다. username 조건이 있으면 사용하지 않는다.
+ * 팀 이름은 TeamNameDictionary 로 팀 id 로 바꾸므로 사전을 쓸 수 없으면 사용하지 않는다.
+ * <p>
+ * 이벤트 없이 바뀐 데이터(JPQL/native bulk update, 다른 인스턴스의 변경)는 다음 reconcile 까지 반영되지 않으므로
+ * searchPageComplex 는 count=estimated 일 때만 이 값을 total 로 쓴다. (exact 는 항상 count 쿼리 또는 CountQueryCache)
+ * <p>
+ * 기동이 끝나면(ApplicationReadyEvent) 전체를 읽고, Member 변경이 commit 되면 반영한다. 쓰기 트랜잭션 안에서는 사용하지 않는다.
+ * querydsl.age-index.reconcile-interval 마다 다시 읽어 비교하고 교체한다. (repository.age.index.reconcile, result=match|drift)
+ * 다시 읽을 때는 lock 밖에서 새 색인을 만들고, 그동안 도착한 이벤트를 모아 두었다가 새 색인에 다시 적용한 뒤 바꾼다.
+ * (commit 한 쓰기 스레드의 이벤트 처리는 테이블 전체 읽기를 기다리지 않는다)
+ * 추가/삭제는 (팀, 나이, id) 로 하므로 같은 변경이 두 번 반영되어도 결과가 같다. (읽는 중에 commit 된 변경의 이벤트가 늦게 와도 된다)
+ * bulk 연산(BULK 이벤트)은 어떤 회원의 나이, 팀이 바뀌었는지 모르므로 다시 읽을 때까지 사용하지 않는다. (여러 chunk 의 요청은 한 번으로 합친다)
+ */
+@Slf4j
+@Component
+public class MemberAgeIndex {
+
+    private final EntityManager em;
+    private final PersistenceUnitUtil persistenceUnitUtil;
+    private final TransactionTemplate readOnly;
+    private final TeamNameDictionary teamNameDictionary;
+    private final TaskScheduler taskScheduler;
+    private final QuerydslProperties.AgeIndex properties;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock(); // 변경(이벤트)과 조회 사이. 다시 읽을 때는 새 색인으로 바꾼다.
+    private final Object rebuildLock = new Object(); // 다시 읽기끼리만. 이벤트는 기다리지 않는다.
+    private final AtomicBoolean reloadScheduled = new AtomicBoolean();
+    private final Timer buildTimer;
+    private final Counter indexed;
+    private final Counter fallback;
+    private final Counter matched;
+    private final Counter drifted;
+    private volatile Index index; // 읽기 전에는 null
+    private volatile boolean stale; // BULK 이벤트 이후 다시 읽기 전까지 true
+    private List<EntityChangedEvent> replay; // 다시 읽는 동안 도착한 이벤트. 읽는 중이 아니면 null. this 로 동기화
+
+    public MemberAgeIndex(EntityManager em, EntityManagerFactory entityManagerFactory, PlatformTransactionManager transactionManager,
+                          TeamNameDictionary teamNameDictionary, TaskScheduler taskScheduler, QuerydslProperties properties,
+                          MeterRegistry registry) {
+        this.em = em;
+        this.persistenceUnitUtil = entityManagerFactory.getPersistenceUnitUtil();
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+        this.teamNameDictionary = teamNameDictionary;
+        this.taskScheduler = taskScheduler;
+        this.properties = properties.getAgeIndex();
+        this.buildTimer = Timer.builder("repository.age.index.build")
+            .description("Time to read all member ages and build the index")
+            .register(registry);
+        this.indexed = Counter.builder("repository.age.index.lookup").tag("result", "index").register(registry);
+        this.fallback = Counter.builder("repository.age.index.lookup").tag("result", "query").register(registry);
+        this.matched = Counter.builder("repository.age.index.reconcile").tag("result", "match").register(registry);
+        this.drifted = Counter.builder("repository.age.index.reconcile").tag("result", "drift").register(registry);
+        Gauge.builder("repository.age.index.memory", this, MemberAgeIndex::estimatedBytes)
+            .description("Estimated heap used by the age index")
+            .baseUnit("bytes")
+            .register(registry);
+        Gauge.builder("repository.age.index.size", this, MemberAgeIndex::size)
+            .description("Members in the age index")
+            .register(registry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        reload();
+        taskScheduler.scheduleWithFixedDelay(this::reconcileQuietly, Instant.now().plus(properties.getReconcileInterval()),
+            properties.getReconcileInterval());
+    }
+
+    /**
+     * 전체를 다시 읽는다. JDBC 로 직접 회원을 넣은 경우(seed) 등 이벤트가 없는 변경 이후에 호출한다.
+     * 읽는 동안 들어온 변경 이벤트는 새 색인에 다시 적용한다. (같은 변경이 두 번 적용되어도 결과가 같다)
+     */
+    public void reload() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        synchronized (rebuildLock) {
+            Index built = buildReplaying();
+            synchronized (this) {
+                boolean complete = replayInto(built);
+                index = built;
+                stale = false;
+                if (!complete) {
+                    scheduleReload();
+                }
+            }
+        }
+    }
+
+    /**
+     * 다시 읽어서 지금 색인과 비교하고 교체한다.
+     * 비교는 읽는 동안 도착한 이벤트를 다시 적용한 뒤 (회원 수, checksum) 으로 한다.
+     * commit 됐지만 이벤트가 아직 전달되지 않은 변경은 drift 로 셀 수 있다. 그 차이는 교체로 맞춰진다.
+     *
+     * @return 일치하면 true. 처음 읽거나 꺼져 있으면 true
+     */
+    public boolean reconcile() {
+        if (!properties.isEnabled()) {
+            return true;
+        }
+        synchronized (rebuildLock) {
+            Index built = buildReplaying();
+            synchronized (this) {
+                boolean complete = replayInto(built);
+                Index current = index;
+                boolean match = current == null || stale || !complete || current.sameMembers(built); // 이미 다시 읽기로 한 상태
+                if (current != null && !stale && complete) {
+                    (match ? matched : drifted).increment();
+                }
+                index = built;
+                stale = false;
+                if (!complete) {
+                    scheduleReload();
+                }
+                return match;
+            }
+        }
+    }
+
+    private void reconcileQuietly() {
+        try {
+            if (!reconcile()) {
+                log.info("Age index drifted from the database and was reconciled");
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to reconcile the age index. Keeping the current index.", e);
+        }
+    }
+
+    /**
+     * lock 밖에서 읽는다. 이 사이에 도착한 이벤트는 replay 에 모인다. 호출한 쪽이 this 안에서 replayInto 를 부른다.
+     */
+    private Index buildReplaying() {
+        synchronized (this) {
+            replay = new ArrayList<>();
+        }
+        try {
+            return build();
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                replay = null;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * @return 다시 읽어야 하는 이벤트(BULK 등)가 없었으면 true. 있었으면 호출한 쪽이 다시 읽기를 예약한다.
+     */
+    private boolean replayInto(Index built) {
+        boolean complete = true;
+        for (EntityChangedEvent event : replay) {
+            complete &= apply(built, event);
+        }
+        replay = null;
+        return complete;
+    }
+
+    private Index build() {
+        return buildTimer.record(() -> readOnly.execute(status -> {
+            Index built = new Index();
+            // 나이, id 순으로 읽으면 팀 배열과 bitmap 모두 뒤에 붙는다.
+            try (Stream<Object[]> rows = em.createQuery(
+                    "select m.id, m.age, t.id from Member m left join m.team t order by m.age, m.id", Object[].class)
+                .getResultStream()) {
+                rows.forEach(row -> built.add((Long) row[2], (Integer) row[1], (Long) row[0]));
+            }
+            return built;
+        }));
+    }
+
+    public boolean isAvailable() {
+        return properties.isEnabled() && index != null && !stale && Transactions.isReadOnlyOrAbsent();
+    }
+
+    /**
+     * @return 색인으로 셀 수 없는 조건(username 조건, 사전에 없는 팀 이름 조회 불가 등)이거나 색인을 쓸 수 없으면 empty
+     */
+    public OptionalLong count(MemberSearchCondition condition) {
+        Range range = rangeOf(condition);
+        if (range == null) {
+            return OptionalLong.empty();
+        }
+        Index current = index;
+        lock.readLock().lock();
+        try {
+            return OptionalLong.of(range.teamIds == null ? current.count(range.ageGoe, range.ageLoe)
+                : current.count(range.teamIds, range.ageGoe, range.ageLoe));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * @return 조건에 맞는 회원 id (오름차순). 색인으로 구할 수 없으면 null
+     */
+    public long[] ids(MemberSearchCondition condition) {
+        Range range = rangeOf(condition);
+        if (range == null) {
+            return null;
+        }
+        Index current = index;
+        lock.readLock().lock();
+        try {
+            return range.teamIds == null ? current.ids(range.ageGoe, range.ageLoe)
+                : current.ids(range.teamIds, range.ageGoe, range.ageLoe);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long size() {
+        Index current = index;
+        if (current == null) {
+            return 0;
+        }
+        lock.readLock().lock();
+        try {
+            return current.size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 객체 헤더, 참조, 배열 크기로 계산한 대략적인 값. (compressed oops 기준)
+     */
+    public long estimatedBytes() {
+        Index current = index;
+        if (current == null) {
+            return 0;
+        }
+        lock.readLock().lock();
+        try {
+            return current.estimatedBytes();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 다시 읽는 중이면 이벤트를 모아 두고 지금 색인에도 적용한다. 테이블을 읽는 동안 기다리지 않는다.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onEntityChanged(EntityChangedEvent event) {
+        if (!event.isAbout(Member.class)) {
+            return; // Team 변경은 팀 id 로 색인하므로 상관없다.
+        }
+        if (replay != null) {
+            replay.add(event);
+        }
+        Index current = index;
+        if (current == null) {
+            return; // 아직 읽기 전이면 reload 에서 반영된다.
+        }
+        boolean applied;
+        lock.writeLock().lock();
+        try {
+            applied = apply(current, event);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        if (!applied) {
+            scheduleReload();
+        }
+    }
+
+    /**
+     * @return bulk 연산이나 이전 상태를 모르는 update (detached 엔티티 update 등) 이면 적용하지 않고 false
+     */
+    private boolean apply(Index target, EntityChangedEvent event) {
+        if (event.getChangeType() == EntityChangedEvent.ChangeType.BULK
+            || event.getChangeType() == EntityChangedEvent.ChangeType.UPDATE && event.getOldState().isEmpty()) {
+            return false;
+        }
+        Long oldTeamId = teamId(event.getOldValue("team"));
+        Long newTeamId = teamId(event.getNewValue("team"));
+        if (event.getChangeType() == EntityChangedEvent.ChangeType.UPDATE
+            && Objects.equals(oldTeamId, newTeamId) && Objects.equals(event.getOldValue("age"), event.getNewValue("age"))) {
+            return true;
+        }
+        long id = (Long) event.getId();
+        if (event.getChangeType() != EntityChangedEvent.ChangeType.INSERT) {
+            target.remove(oldTeamId, (Integer) event.getOldValue("age"), id);
+        }
+        if (event.getChangeType() != EntityChangedEvent.ChangeType.DELETE) {
+            target.add(newTeamId, (Integer) event.getNewValue("age"), id);
+        }
+        return true;
+    }
+
+    private void scheduleReload() {
+        stale = true;
+        if (reloadScheduled.compareAndSet(false, true)) {
+            taskScheduler.schedule(this::reloadQuietly, Instant.now());
+        }
+    }
+
+    private void reloadQuietly() {
+        reloadScheduled.set(false);
+        try {
+            reload();
+        } catch (RuntimeException e) {
+            log.warn("Failed to reload the age index. Counting with queries until the next reload.", e);
+        }
+    }
+
+    private Range rangeOf(MemberSearchCondition condition) {
+        if (hasText(condition.getUsername()) || hasText(condition.getUsernamePrefix()) || hasText(condition.getUsernameContains())) {
+            return null; // 나이, 팀 조건이 아니므로 세지 않는다. (fallback 으로 세지 않는다)
+        }
+        if (!isAvailable() || hasText(condition.getTeamName()) && !teamNameDictionary.isAvailable()) {
+            fallback.increment();
+            return null;
+        }
+        indexed.increment();
+        int ageGoe = condition.getAgeGoe() == null ? Integer.MIN_VALUE : condition.getAgeGoe();
+        int ageLoe = condition.getAgeLoe() == null ? Integer.MAX_VALUE : condition.getAgeLoe();
+        return new Range(hasText(condition.getTeamName()) ? teamNameDictionary.idsOf(condition.getTeamName()) : null, ageGoe, ageLoe);
+    }
+
+    private Long teamId(Object team) {
+        return team == null ? null : (Long) persistenceUnitUtil.getIdentifier(team); // 프록시를 초기화하지 않는다.
+    }
+
+    private static class Range {
+
+        private final List<Long> teamIds; // null 이면 팀 조건 없음
+        private final int ageGoe;
+        private final int ageLoe;
+
+        private Range(List<Long> teamIds, int ageGoe, int ageLoe) {
+            this.teamIds = teamIds;
+            this.ageGoe = ageGoe;
+            this.ageLoe = ageLoe;
+        }
+    }
+
+    /**
+     * 변경은 쓰기 lock, 조회는 읽기 lock 안에서 한다.
+     */
+    private static class Index {
+
+        private final Map<Long, Segment> byTeam = new HashMap<>(); // 팀이 없는 회원은 null 키
+        private int[] ages = new int[0]; // 오름차순
+        private IdBitmap[] bitmaps = new IdBitmap[0]; // ages 와 같은 위치
+        private int ageCount;
+        private long size;
+        private long checksum; // (팀, 나이, id) 해시의 합. 순서와 상관없이 같은 내용이면 같다.
+
+        private void add(Long teamId, int age, long id) {
+            if (byTeam.computeIfAbsent(teamId, key -> new Segment()).add(age, id)) {
+                size++;
+                checksum += hash(teamId, age, id);
+            }
+            int index = Arrays.binarySearch(ages, 0, ageCount, age);
+            if (index < 0) {
+                index = insertAge(-index - 1, age);
+            }
+            bitmaps[index].add(id);
+        }
+
+        private void remove(Long teamId, int age, long id) {
+            Segment segment = byTeam.get(teamId);
+            if (segment != null && segment.remove(age, id)) {
+                size--;
+                checksum -= hash(teamId, age, id);
+                if (segment.size == 0) {
+                    byTeam.remove(teamId);
+                }
+            }
+            int index = Arrays.binarySearch(ages, 0, ageCount, age);
+            if (index >= 0 && bitmaps[index].remove(id) && bitmaps[index].cardinality() == 0) {
+                System.arraycopy(ages, index + 1, ages, index, ageCount - index - 1);
+                System.arraycopy(bitmaps, index + 1, bitmaps, index, ageCount - index - 1);
+                bitmaps[--ageCount] = null;
+            }
+        }
+
+        private int insertAge(int at, int age) {
+            if (ageCount == ages.length) {
+                int capacity = Math.max(16, ageCount * 2);
+                ages = Arrays.copyOf(ages, capacity);
+                bitmaps = Arrays.copyOf(bitmaps, capacity);
+            }
+            System.arraycopy(ages, at, ages, at + 1, ageCount - at);
+            System.arraycopy(bitmaps, at, bitmaps, at + 1, ageCount - at);
+            ages[at] = age;
+            bitmaps[at] = new IdBitmap();
+            ageCount++;
+            return at;
+        }
+
+        private long count(int ageGoe, int ageLoe) {
+            long count = 0;
+            for (int i = lowerBound(ages, ageCount, ageGoe); i < ageCount && ages[i] <= ageLoe; i++) {
+                count += bitmaps[i].cardinality();
+            }
+            return count;
+        }
+
+        private long count(List<Long> teamIds, int ageGoe, int ageLoe) {
+            if (ageGoe > ageLoe) {
+                return 0;
+            }
+            long count = 0;
+            for (Long teamId : teamIds) {
+                Segment segment = byTeam.get(teamId);
+                if (segment != null) {
+                    count += segment.upperBound(ageLoe) - segment.lowerBound(ageGoe);
+                }
+            }
+            return count;
+        }
+
+        private long[] ids(int ageGoe, int ageLoe) {
+            List<IdBitmap> matched = new ArrayList<>();
+            for (int i = lowerBound(ages, ageCount, ageGoe); i < ageCount && ages[i] <= ageLoe; i++) {
+                matched.add(bitmaps[i]);
+            }
+            return IdBitmap.union(matched);
+        }
+
+        private long[] ids(List<Long> teamIds, int ageGoe, int ageLoe) {
+            if (ageGoe > ageLoe) {
+                return new long[0];
+            }
+            long[] result = new long[Math.toIntExact(count(teamIds, ageGoe, ageLoe))];
+            int offset = 0;
+            for (Long teamId : teamIds) {
+                Segment segment = byTeam.get(teamId);
+                if (segment != null) {
+                    int from = segment.lowerBound(ageGoe);
+                    int to = segment.upperBound(ageLoe);
+                    System.arraycopy(segment.ids, from, result, offset, to - from);
+                    offset += to - from;
+                }
+            }
+            Arrays.sort(result); // 팀 배열은 나이 순이다.
+            return result;
+        }
+
+        /**
+         * 팀별 (나이, id) 가 같은지. 다시 바꾸는 짧은 구간에서 비교하므로 전체를 돌지 않고 (수, checksum) 만 본다.
+         */
+        private boolean sameMembers(Index other) {
+            return size == other.size && checksum == other.checksum;
+        }
+
+        private static long hash(Long teamId, int age, long id) {
+            long h = id * 0x9E3779B97F4A7C15L + Objects.hashCode(teamId) * 31L + age;
+            h = (h ^ (h >>> 33)) * 0xFF51AFD7ED558CCDL; // murmur3 fmix64
+            h = (h ^ (h >>> 33)) * 0xC4CEB9FE1A85EC53L;
+            return h ^ (h >>> 33);
+        }
+
+        private long estimatedBytes() {
+            long bytes = 16 + 16 + ages.length * 4L + 16 + bitmaps.length * 4L;
+            for (Segment segment : byTeam.values()) {
+                bytes += 36 + 16 + segment.bytes(); // HashMap.Node + table slot, Long 키
+            }
+            for (int i = 0; i < ageCount; i++) {
+                bytes += bitmaps[i].estimatedBytes();
+            }
+            return bytes;
+        }
+    }
+
+    /**
+     * 한 팀의 회원. (나이, id) 오름차순 병렬 배열
+     */
+    private static class Segment {
+
+        private int[] ages = new int[4];
+        private long[] ids = new long[4];
+        private int size;
+
+        /**
+         * @return 새로 추가했으면 true
+         */
+        private boolean add(int age, long id) {
+            int index = position(age, id);
+            if (index >= 0) {
+                return false;
+            }
+            int insertAt = -index - 1;
+            if (size == ids.length) {
+                int capacity = size + (size >> 1);
+                ages = Arrays.copyOf(ages, capacity);
+                ids = Arrays.copyOf(ids, capacity);
+            }
+            System.arraycopy(ages, insertAt, ages, insertAt + 1, size - insertAt);
+            System.arraycopy(ids, insertAt, ids, insertAt + 1, size - insertAt);
+            ages[insertAt] = age;
+            ids[insertAt] = id;
+            size++;
+            return true;
+        }
+
+        private boolean remove(int age, long id) {
+            int index = position(age, id);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(ages, index + 1, ages, index, size - index - 1);
+            System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+            size--;
+            return true;
+        }
+
+        /**
+         * @return 있으면 위치, 없으면 -(넣을 위치) - 1
+         */
+        private int position(int age, long id) {
+            int low = 0;
+            int high = size - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                int compare = ages[mid] != age ? Integer.compare(ages[mid], age) : Long.compare(ids[mid], id);
+                if (compare < 0) {
+                    low = mid + 1;
+                } else if (compare > 0) {
+                    high = mid - 1;
+                } else {
+                    return mid;
+                }
+            }
+            return -(low + 1);
+        }
+
+        private int lowerBound(int age) {
+            return MemberAgeIndex.lowerBound(ages, size, age);
+        }
+
+        private int upperBound(int age) {
+            return age == Integer.MAX_VALUE ? size : MemberAgeIndex.lowerBound(ages, size, age + 1);
+        }
+
+        private long bytes() {
+            return 24 + 16 + ages.length * 4L + 16 + ids.length * 8L;
+        }
+    }
+
+    /**
+     * @return values[0, size) 에서 value 이상인 첫 위치. 없으면 size
+     */
+    private static int lowerBound(int[] values, int size, int value) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (values[mid] < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,203 @@
+package io.hkarling.qeurydsl.repository;
+
+import static io.hkarling.qeurydsl.entity.QMember.member;
+import static io.hkarling.qeurydsl.entity.QTeam.team;
+import static org.springframework.util.StringUtils.hasText;
+
+import com.querydsl.core.Tuple;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.NumberExpression;
+import com.querydsl.jpa.JPAExpressions;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import io.hkarling.qeurydsl.config.QuerydslProperties;
+import io.hkarling.qeurydsl.dto.MemberSearchCondition;
+import io.hkarling.qeurydsl.entity.Member;
+import io.hkarling.qeurydsl.entity.Team;
+import io.hkarling.qeurydsl.event.EntityChangedEvent;
+import io.hkarling.qeurydsl.repository.support.Transactions;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiFunction;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceUnitUtil;
+import org.hibernate.Hibernate;
+import org.hibernate.engine.spi.EntityEntry;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.Assert;
+
+/**
+ * MemberSearchCondition 에 맞는 회원을 한 번에 수정/삭제한다.
+ * <p>
+ * 조건에 맞는 id 범위를 querydsl.bulk.chunk-size 단위로 나눠 chunk 마다 새 트랜잭션으로 실행하고 commit 한다.
+ * 한 문장이 잡는 lock 범위와 시간이 chunk 크기로 제한되는 대신, 중간에 실패하면 앞의 chunk 는 이미 반영되어 있다.
+ * <p>
+ * bulk 연산은 영속성 컨텍스트를 거치지 않으므로 호출한 쪽 영속성 컨텍스트(OSIV, read-only 트랜잭션)에 남아 있는
+ * 해당 id 범위의 Member 와, members 컬렉션이 로딩된 관련 Team 만 detach 한다. (em.clear() 대신)
+ * chunk 가 commit 될 때마다 {@link EntityChangedEvent.ChangeType#BULK} 이벤트를 발행한다. (DataVersion 도 이 이벤트로 올라간다)
+ * 회원/팀을 update/delete 문으로 바꾸는 코드는 여기에만 둔다.
+ */
+@Repository
+public class MemberBulkOperations {
+
+    private final EntityManager em;
+    private final EntityManagerFactory entityManagerFactory;
+    private final JPAQueryFactory queryFactory;
+    private final TransactionTemplate chunkTransaction;
+    private final ApplicationEventPublisher eventPublisher;
+    private final QuerydslProperties.Bulk properties;
+
+    public MemberBulkOperations(EntityManager em, EntityManagerFactory entityManagerFactory, JPAQueryFactory queryFactory,
+                                PlatformTransactionManager transactionManager, ApplicationEventPublisher eventPublisher,
+                                QuerydslProperties properties) {
+        this.em = em;
+        this.entityManagerFactory = entityManagerFactory;
+        this.queryFactory = queryFactory;
+        this.chunkTransaction = new TransactionTemplate(transactionManager);
+        this.chunkTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.eventPublisher = eventPublisher;
+        this.properties = properties.getBulk();
+    }
+
+    /**
+     * 나이를 delta 만큼 더한다.
+     *
+     * @return 수정한 회원 수
+     */
+    public long adjustAge(MemberSearchCondition condition, int delta) {
+        return inChunks(condition, false, null, (from, to) -> queryFactory
+            .update(member)
+            .set(member.age, member.age.add(delta))
+            .where(chunk(from, to), where(condition))
+            .execute());
+    }
+
+    /**
+     * @param teamId 옮길 팀. null 이면 팀에서 뺀다.
+     * @return 옮긴 회원 수
+     */
+    public long changeTeam(MemberSearchCondition condition, Long teamId) {
+        return inChunks(condition, true, teamId, (from, to) -> queryFactory
+            .update(member)
+            .set(member.team, teamId == null ? null : em.getReference(Team.class, teamId))
+            .where(chunk(from, to), where(condition))
+            .execute());
+    }
+
+    /**
+     * @return 삭제한 회원 수
+     */
+    public long delete(MemberSearchCondition condition) {
+        return inChunks(condition, true, null, (from, to) -> queryFactory
+            .delete(member)
+            .where(chunk(from, to), where(condition))
+            .execute());
+    }
+
+    /**
+     * @param statement [from, to) id 범위에 실행할 update/delete
+     * @param teams     팀 소속이 바뀌는 연산이면 true. 이전/새 소속 Team 중 members 컬렉션이 로딩된 것도 detach 한다.
+     * @param newTeamId 새 소속 팀 (changeTeam)
+     */
+    private long inChunks(MemberSearchCondition condition, boolean teams, Long newTeamId, BiFunction<Long, Long, Long> statement) {
+        Assert.state(Transactions.isReadOnlyOrAbsent(),
+            "Bulk operations commit per chunk and must not run inside a read-write transaction");
+        Assert.isTrue(properties.getChunkSize() > 0, "querydsl.bulk.chunk-size must be positive");
+
+        NumberExpression<Long> minId = member.id.min();
+        NumberExpression<Long> maxId = member.id.max();
+        Tuple range = queryFactory
+            .select(minId, maxId)
+            .from(member)
+            .where(where(condition))
+            .fetchOne();
+        Long min = range == null ? null : range.get(minId);
+        Long max = range == null ? null : range.get(maxId);
+        if (min == null || max == null) {
+            return 0;
+        }
+
+        long affected = 0;
+        for (long from = min; from <= max; from += properties.getChunkSize()) {
+            long to = from + properties.getChunkSize();
+            long chunkFrom = from;
+            Long rows = chunkTransaction.execute(status -> {
+                long updated = statement.apply(chunkFrom, to);
+                if (updated > 0) {
+                    eventPublisher.publishEvent(EntityChangedEvent.bulk(Member.class, chunkFrom, to)); // @TransactionalEventListener 에는 commit 이후에 전달된다.
+                }
+                return updated;
+            });
+            affected += rows == null ? 0 : rows;
+            evict(chunkFrom, to, teams, newTeamId);
+        }
+        return affected;
+    }
+
+    /**
+     * 호출한 쪽 영속성 컨텍스트에서 [from, to) 범위의 Member 를 detach 한다. 조건에 맞지 않아 바뀌지 않은 회원도 포함될 수 있다.
+     */
+    private void evict(long from, long to, boolean teams, Long newTeamId) {
+        EntityManager outer = EntityManagerFactoryUtils.getTransactionalEntityManager(entityManagerFactory);
+        if (outer == null) {
+            return; // 영속성 컨텍스트가 없으면 남은 엔티티도 없다.
+        }
+        PersistenceUnitUtil util = entityManagerFactory.getPersistenceUnitUtil();
+        Map.Entry<Object, EntityEntry>[] entries = outer.unwrap(SessionImplementor.class).getPersistenceContext().reentrantSafeEntityEntries();
+
+        Set<Object> teamIds = new HashSet<>(); // 로딩된 members 컬렉션에 이 범위의 회원이 있을 수 있는 팀
+        if (newTeamId != null) {
+            teamIds.add(newTeamId);
+        }
+        for (Map.Entry<Object, EntityEntry> entry : entries) {
+            if (entry.getKey() instanceof Member) {
+                long id = (Long) entry.getValue().getId();
+                if (id >= from && id < to) {
+                    Team memberTeam = ((Member) entry.getKey()).getTeam();
+                    if (memberTeam != null) {
+                        teamIds.add(util.getIdentifier(memberTeam));
+                    }
+                    outer.detach(entry.getKey());
+                }
+            }
+        }
+        if (!teams) {
+            return;
+        }
+        // 로딩된 컬렉션의 원소는 영속성 컨텍스트에 있으므로 이전 소속 팀은 위에서 detach 한 회원의 팀으로 모두 찾을 수 있다.
+        for (Map.Entry<Object, EntityEntry> entry : entries) {
+            if (entry.getKey() instanceof Team && teamIds.contains(entry.getValue().getId())
+                && Hibernate.isInitialized(((Team) entry.getKey()).getMembers())) {
+                outer.detach(entry.getKey());
+            }
+        }
+    }
+
+    private static BooleanExpression chunk(long from, long to) {
+        return member.id.goe(from).and(member.id.lt(to));
+    }
+
+    /**
+     * bulk update/delete 는 join 할 수 없으므로 팀 이름은 서브쿼리로 거른다.
+     */
+    private static Predicate[] where(MemberSearchCondition condition) {
+        return new Predicate[] {
+            hasText(condition.getUsername()) ? member.username.eq(condition.getUsername()) : null,
+            hasText(condition.getUsernamePrefix()) ? member.username.startsWith(condition.getUsernamePrefix()) : null, // 색인 없이 like
+            hasText(condition.getUsernameContains()) ? member.username.contains(condition.getUsernameContains()) : null,
+            hasText(condition.getTeamName())
+                ? member.team.id.in(JPAExpressions.select(team.id).from(team).where(team.name.eq(condition.getTeamName())))
+                : null,
+            condition.getAgeGoe() != null ? member.age.goe(condition.getAgeGoe()) : null,
+            condition.getAgeLoe() != null ? member.age.loe(condition.getAgeLoe()) : null
+        };
+    }
+}
@@ -0,0 +1,187 @@
+package io.hkarling.qeurydsl.repository;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import lombok.Getter;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * MemberSearchCondition 의 쿼리 모양(shape)마다 H2 {@code EXPLAIN} 을 실행해서
+ * 테이블 전체를 읽거나(tableScan) 인덱스 없이 정렬하는 쿼리를 찾는다. (/actuator/indexadvisor)
+ * <p>
+ * EXPLAIN 은 계획만 세우고 쿼리를 실행하지 않는다. SQL 은 별도 세션의 {@link StatementInspector} 로 받고, 실행 전에 멈춘다.
+ * 파라미터는 현재 데이터에서 고른 값을 리터럴로 넣는다. (조건이 없는 모양은 항상 전체를 읽으므로 제외)
+ */
+@Component
+public class MemberIndexAdvisor {
+
+    private static final Pattern PARAMETER = Pattern.compile("\\?(\\d+)");
+    private static final Pattern TABLE_SCAN = Pattern.compile("(\\w+)\\.tableScan");
+
+    private final EntityManager em;
+    private final SessionFactory sessionFactory;
+    private final JdbcTemplate jdbcTemplate;
+    private final MemberSearchQueryRegistry searchQueryRegistry;
+    private final TransactionTemplate readOnly;
+
+    public MemberIndexAdvisor(EntityManager em, EntityManagerFactory entityManagerFactory, JdbcTemplate jdbcTemplate,
+                              MemberSearchQueryRegistry searchQueryRegistry, PlatformTransactionManager transactionManager) {
+        this.em = em;
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        this.jdbcTemplate = jdbcTemplate;
+        this.searchQueryRegistry = searchQueryRegistry;
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+    }
+
+    /**
+     * @return 모든 모양의 실행 계획. 문제가 있는 것({@link Advice#isProblem()})이 앞에 온다.
+     */
+    public List<Advice> analyze() {
+        String database = jdbcTemplate.execute((ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+        if (!"H2".equals(database)) {
+            throw new IllegalStateException("Index advisor supports H2 EXPLAIN only: " + database);
+        }
+
+        return readOnly.execute(status -> {
+            Map<String, String> literals = sampleLiterals();
+            List<Advice> result = new ArrayList<>();
+            for (int shape = 1; shape < MemberSearchPredicate.SHAPE_COUNT; shape++) {
+                for (MemberSearchQueryRegistry.Source source : MemberSearchQueryRegistry.Source.values()) {
+                    String variant = source.name().toLowerCase().replace('_', '-');
+                    List<String> parameters = searchQueryRegistry.parameters(shape, source);
+                    result.add(explain(shape, variant, "content", searchQueryRegistry.contentJpql(shape, source, false), parameters, literals));
+                    result.add(explain(shape, variant, "content order by age", searchQueryRegistry.contentJpql(shape, source, true),
+                        parameters, literals));
+                    result.add(explain(shape, variant, "count", searchQueryRegistry.countJpql(shape, source), parameters, literals));
+                }
+            }
+            result.sort((a, b) -> Boolean.compare(b.isProblem(), a.isProblem()));
+            return result;
+        });
+    }
+
+    private Advice explain(int shape, String variant, String query, String jpql, List<String> parameters, Map<String, String> literals) {
+        String sql = toSql(withLiterals(jpql, parameters, literals));
+        String plan = String.join("\n", jdbcTemplate.queryForList("EXPLAIN " + sql, String.class));
+        return new Advice(MemberSearchPredicate.describe(shape), variant, query, plan);
+    }
+
+    /**
+     * Hibernate 가 만든 SQL 을 커넥션을 얻기 전에 StatementInspector 에서 받아 두고 실행을 멈춘다.
+     */
+    private String toSql(String jpql) {
+        SqlCapture capture = new SqlCapture();
+        try (Session session = sessionFactory.withOptions().statementInspector(capture).openSession()) {
+            session.createQuery(jpql).list();
+        } catch (RuntimeException e) {
+            if (capture.sql == null) {
+                throw e;
+            }
+        }
+        if (capture.sql == null) {
+            throw new IllegalStateException("No SQL generated for " + jpql);
+        }
+        return capture.sql;
+    }
+
+    /**
+     * ?1, ?2 ... 를 parameters 순서의 이름으로 찾은 리터럴로 바꾼다.
+     */
+    private static String withLiterals(String jpql, List<String> parameters, Map<String, String> literals) {
+        Matcher matcher = PARAMETER.matcher(jpql);
+        return matcher.replaceAll(match -> Matcher.quoteReplacement(literals.get(parameters.get(Integer.parseInt(match.group(1)) - 1))));
+    }
+
+    /**
+     * 현재 데이터에서 조건 값을 고른다. 데이터가 없으면 임의의 값을 쓴다. (계획은 인덱스 유무로 정해진다)
+     */
+    private Map<String, String> sampleLiterals() {
+        Map<String, String> literals = new HashMap<>();
+        List<String> usernames = em.createQuery("select m.username from Member m where m.username is not null", String.class)
+            .setMaxResults(1)
+            .getResultList();
+        List<Object[]> teams = em.createQuery("select t.id, t.name from Team t where t.name is not null", Object[].class)
+            .setMaxResults(1)
+            .getResultList();
+        Object[] ages = em.createQuery("select min(m.age), max(m.age) from Member m", Object[].class).getSingleResult();
+        int minAge = ages[0] == null ? 0 : (Integer) ages[0];
+        int maxAge = ages[1] == null ? 100 : (Integer) ages[1];
+
+        String username = usernames.isEmpty() ? "member1" : usernames.get(0);
+        literals.put(MemberSearchPredicate.USERNAME.getParameter(), quote(username));
+        literals.put(MemberSearchPredicate.USERNAME_PREFIX.getParameter(),
+            quote(MemberSearchPredicate.escapeLike(username.substring(0, Math.min(3, username.length()))) + "%"));
+        literals.put(MemberSearchPredicate.USERNAME_CONTAINS.getParameter(),
+            quote("%" + MemberSearchPredicate.escapeLike(username.substring(username.length() / 2)) + "%"));
+        literals.put(MemberSearchPredicate.TEAM_NAME.getParameter(), quote(teams.isEmpty() ? "teamA" : (String) teams.get(0)[1]));
+        literals.put(MemberSearchQueryRegistry.TEAM_IDS_PARAMETER, "(" + (teams.isEmpty() ? 0L : teams.get(0)[0]) + ")");
+        literals.put(MemberSearchPredicate.AGE_GOE.getParameter(), String.valueOf(minAge + (maxAge - minAge) / 4));
+        literals.put(MemberSearchPredicate.AGE_LOE.getParameter(), String.valueOf(maxAge - (maxAge - minAge) / 4));
+        return literals;
+    }
+
+    private static String quote(String value) {
+        return "'" + value.replace("'", "''") + "'";
+    }
+
+    private static class SqlCapture implements StatementInspector {
+
+        private String sql;
+
+        @Override
+        public String inspect(String sql) {
+            this.sql = sql;
+            throw new SqlCaptured();
+        }
+    }
+
+    private static class SqlCaptured extends RuntimeException {
+
+        private SqlCaptured() {
+            super(null, null, false, false); // 흐름 제어용. stack trace 를 만들지 않는다.
+        }
+    }
+
+    @Getter
+    public static class Advice {
+
+        private final String shape;
+        private final String variant; // join: team 을 join, dictionary: 팀 이름 사전 사용 (TeamNameDictionary), read-model: member_team_view
+        private final String query;
+        private final Set<String> scannedTables;
+        private final boolean sortedWithoutIndex;
+        private final String plan;
+
+        private Advice(String shape, String variant, String query, String plan) {
+            this.shape = shape;
+            this.variant = variant;
+            this.query = query;
+            this.plan = plan;
+            this.scannedTables = TABLE_SCAN.matcher(plan).results()
+                .map(match -> match.group(1).toLowerCase())
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+            this.sortedWithoutIndex = plan.contains("ORDER BY") && !plan.contains("index sorted");
+        }
+
+        public boolean isProblem() {
+            return !scannedTables.isEmpty() || sortedWithoutIndex;
+        }
+    }
+}
@@ -4,18 +4,23 @@ import com.querydsl.core.BooleanBuilder;
 import com.querydsl.core.types.Predicate;
 import com.querydsl.core.types.dsl.BooleanExpression;
 import com.querydsl.jpa.impl.JPAQueryFactory;
+import io.hkarling.qeurydsl.config.QuerydslProperties;
 import io.hkarling.qeurydsl.dto.MemberSearchCondition;
 import io.hkarling.qeurydsl.dto.MemberTeamDTO;
-import io.hkarling.qeurydsl.dto.QMemberTeamDTO;
 import io.hkarling.qeurydsl.entity.Member;
 import io.hkarling.qeurydsl.entity.QMember;
 import io.hkarling.qeurydsl.entity.QTeam;
+import io.hkarling.qeurydsl.repository.support.FetchPlan;
+import io.hkarling.qeurydsl.repository.support.RepositoryMetrics;
+import org.hibernate.annotations.QueryHints;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 import org.springframework.util.StringUtils;
 
 import javax.persistence.EntityManager;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 import static io.hkarling.qeurydsl.entity.QMember.*;
 import static io.hkarling.qeurydsl.entity.QTeam.team;
@@ -26,10 +31,17 @@ public class MemberJpaRepository {
 
     private final EntityManager em; // Proxy 만 주입이 되어 Transaction 단위로 Entity Manager 를 할당해준다.
     private final JPAQueryFactory queryFactory;
+    private final MemberSearchQueryRegistry searchQueryRegistry;
+    private final RepositoryMetrics metrics;
+    private final QuerydslProperties.Streaming streaming;
 
-    public MemberJpaRepository(EntityManager em) {
+    public MemberJpaRepository(EntityManager em, JPAQueryFactory queryFactory, MemberSearchQueryRegistry searchQueryRegistry,
+                               RepositoryMetrics metrics, QuerydslProperties properties) {
         this.em = em;
-        queryFactory = new JPAQueryFactory(em); // Spring Bean 으로 등록하여 사용해도 되지만 테스트 코드 짤때 따로 주입을 받아야되는 등의 문제가 있다.
+        this.queryFactory = queryFactory; // 공유 Bean (config.QuerydslConfig)
+        this.searchQueryRegistry = searchQueryRegistry;
+        this.metrics = metrics;
+        this.streaming = properties.getStreaming();
     }
 
     public void save(Member member) {
@@ -62,12 +74,19 @@ public class MemberJpaRepository {
                 .fetch();
     }
 
+    @Transactional(readOnly = true) // search* 는 replica 프로파일에서 replica 에서 읽는다.
     public List<MemberTeamDTO> searchByBuilder(MemberSearchCondition condition) {
 
         BooleanBuilder builder = new BooleanBuilder();
         if (hasText(condition.getUsername())) {
             builder.and(member.username.eq(condition.getUsername()));
         }
+        if (hasText(condition.getUsernamePrefix())) {
+            builder.and(member.username.startsWith(condition.getUsernamePrefix()));
+        }
+        if (hasText(condition.getUsernameContains())) {
+            builder.and(member.username.contains(condition.getUsernameContains()));
+        }
         if (hasText(condition.getTeamName())) {
             builder.and(team.name.eq(condition.getTeamName()));
         }
@@ -77,48 +96,59 @@ public class MemberJpaRepository {
         if (condition.getAgeLoe() != null) {
             builder.and(member.age.loe(condition.getAgeLoe()));
         }
-        return queryFactory
-                .select(new QMemberTeamDTO(
-                        member.id.as("memberId"),
-                        member.username,
-                        member.age,
-                        team.id.as("teamId"),
-                        team.name.as("teamName")))
-                .from(member)
-                .leftJoin(member.team, team)
-                .where(builder)
-                .fetch();
+        return metrics.content("MemberJpaRepository.searchByBuilder", MemberSearchPredicate.describe(condition),
+                () -> MemberTeamProjection.selectFrom(queryFactory, false)
+                        .where(builder)
+                        .fetch());
     }
 
+    @Transactional(readOnly = true)
     public List<MemberTeamDTO> search(MemberSearchCondition condition) { // 이 방식을 기본으로 하자.
-        return queryFactory
-                .select(new QMemberTeamDTO(
-                        member.id.as("memberId"),
-                        member.username,
-                        member.age,
-                        team.id.as("teamId"),
-                        team.name.as("teamName")))
-                .from(member)
-                .leftJoin(member.team, team)
+        // where 절 조합(shape)별로 미리 만들어 둔 쿼리(Member left join Team)에 파라미터만 바인딩한다. 조건은 usernameEq ~ ageLoe 와 같다.
+        return metrics.content("MemberJpaRepository.search", MemberSearchPredicate.describe(condition),
+                () -> searchQueryRegistry.joinedContent(em, condition));
+    }
+
+    /**
+     * search 의 스트리밍 버전. 결과를 List 로 모으지 않고 forward-only 커서로 fetch size 만큼씩 읽는다.
+     * 트랜잭션 안에서 호출하고, 다 읽은 뒤에는 반드시 close 해야 한다. (try-with-resources)
+     */
+    public Stream<MemberTeamDTO> searchStream(MemberSearchCondition condition) {
+        return MemberTeamProjection.selectFrom(queryFactory, false)
                 .where(
                         usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
+                        usernameStartsWith(condition.getUsernamePrefix()),
+                        usernameContains(condition.getUsernameContains()),
+                        teamNameEq(condition.getTeamName(), true),
                         ageGoe(condition.getAgeGoe()),
                         ageLoe(condition.getAgeLoe())
                 )
-                .fetch();
+                .setHint(QueryHints.FETCH_SIZE, streaming.getFetchSize())
+                .stream();
     }
 
+    @Transactional(readOnly = true)
     public List<Member> searchMember(MemberSearchCondition condition) {
-        return queryFactory
-                .selectFrom(member)
-                .leftJoin(member.team, team)
-                .where(
-                        usernameEq(condition.getUsername()),
-                        teamNameEq(condition.getTeamName()),
-                        ageBetween(condition.getAgeLoe(), condition.getAgeGoe()) // 조합이 가능하다.
-                )
-                .fetch();
+        return searchMember(condition, FetchPlan.none());
+    }
+
+    /**
+     * @param fetchPlan 함께 읽을 연관관계. 예) FetchPlan.fetchJoin(member.team) 이면 team 접근 시 추가 쿼리가 없다.
+     *                  이때 팀 이름 조건은 fetch join 한 team 으로 건다. (join 한 번)
+     */
+    @Transactional(readOnly = true)
+    public List<Member> searchMember(MemberSearchCondition condition, FetchPlan fetchPlan) {
+        return metrics.content("MemberJpaRepository.searchMember", MemberSearchPredicate.describe(condition), () -> fetchPlan.load(fetchPlan
+                .applyTo(queryFactory
+                        .selectFrom(member)
+                        .where(
+                                usernameEq(condition.getUsername()),
+                                usernameStartsWith(condition.getUsernamePrefix()),
+                                usernameContains(condition.getUsernameContains()),
+                                teamNameEq(condition.getTeamName(), fetchPlan.fetchJoins(member.team)),
+                                ageBetween(condition.getAgeLoe(), condition.getAgeGoe()) // 조합이 가능하다.
+                        ), em)
+                .fetch(), em));
     }
 
     private BooleanExpression ageBetween(int ageLoe, int ageGoe){
@@ -129,8 +159,22 @@ public class MemberJpaRepository {
         return hasText(username) ? member.username.eq(username) : null;
     }
 
-    private BooleanExpression teamNameEq(String teamName) {
-        return hasText(teamName) ? team.name.eq(teamName) : null;
+    private BooleanExpression usernameStartsWith(String usernamePrefix) {
+        return hasText(usernamePrefix) ? member.username.startsWith(usernamePrefix) : null;
+    }
+
+    private BooleanExpression usernameContains(String usernameContains) {
+        return hasText(usernameContains) ? member.username.contains(usernameContains) : null;
+    }
+
+    /**
+     * @param joined team 을 alias team 으로 join 한 쿼리이면 true. 아니면 member.team.name 경로로 필요할 때만 join 한다.
+     */
+    private BooleanExpression teamNameEq(String teamName, boolean joined) {
+        if (!hasText(teamName)) {
+            return null;
+        }
+        return joined ? team.name.eq(teamName) : member.team.name.eq(teamName);
     }
 
     private BooleanExpression ageGoe(Integer ageGoe) {
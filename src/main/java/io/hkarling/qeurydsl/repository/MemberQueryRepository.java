@@ -0,0 +1,86 @@
+package io.hkarling.qeurydsl.repository;
+
+import static io.hkarling.qeurydsl.entity.QMember.member;
+import static org.springframework.util.StringUtils.hasText;
+
+import com.querydsl.core.types.dsl.BooleanExpression;
+import io.hkarling.qeurydsl.dto.MemberSearchCondition;
+import io.hkarling.qeurydsl.dto.MemberTeamDTO;
+import io.hkarling.qeurydsl.entity.Member;
+import io.hkarling.qeurydsl.repository.support.InvalidSearchParameterException;
+import io.hkarling.qeurydsl.repository.support.KeysetCursor;
+import io.hkarling.qeurydsl.repository.support.KeysetPage;
+import io.hkarling.qeurydsl.repository.support.KeysetSort;
+import io.hkarling.qeurydsl.repository.support.Querydsl4RepositorySupport;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * 화면(API) 조회 전용 Repository. Querydsl4RepositorySupport 를 사용한다.
+ * 모두 읽기 전용 트랜잭션이므로 replica 프로파일에서는 replica 에서 읽는다.
+ */
+@Repository
+@Transactional(readOnly = true)
+public class MemberQueryRepository extends Querydsl4RepositorySupport {
+
+    private static final KeysetSort<MemberTeamDTO, Long> SORT_BY_ID =
+        KeysetSort.byId(member.id, MemberTeamDTO::getMemberId);
+    private static final KeysetSort<MemberTeamDTO, Integer> SORT_BY_AGE =
+        KeysetSort.of("age", member.age, Integer::valueOf, MemberTeamDTO::getAge, member.id, MemberTeamDTO::getMemberId);
+
+    private final TeamNameDictionary teamNameDictionary;
+    private final UsernameIndex usernameIndex;
+
+    public MemberQueryRepository(TeamNameDictionary teamNameDictionary, UsernameIndex usernameIndex) {
+        super(Member.class);
+        this.teamNameDictionary = teamNameDictionary;
+        this.usernameIndex = usernameIndex;
+    }
+
+    /**
+     * @param sort   "id"(기본) 또는 "age"
+     * @param cursor 이전 응답의 nextCursor. 첫 페이지는 null
+     */
+    public KeysetPage<MemberTeamDTO> searchByKeyset(MemberSearchCondition condition, String sort, String cursor, int size) {
+        boolean useDictionary = teamNameDictionary.isAvailable(); // 팀 이름 사전이 있으면 team 을 join 하지 않는다.
+        KeysetPage<MemberTeamDTO> page = applyKeysetPagination(keysetSort(sort), hasText(cursor) ? KeysetCursor.decode(cursor) : null, size,
+            query -> MemberTeamProjection.selectFrom(query, useDictionary)
+                .where(
+                    usernameEq(condition.getUsername()),
+                    usernameIndex.usernameMatches(condition),
+                    teamNameEq(condition.getTeamName(), useDictionary),
+                    ageGoe(condition.getAgeGoe()),
+                    ageLoe(condition.getAgeLoe())
+                ));
+        if (useDictionary) {
+            teamNameDictionary.fillTeamNames(page.getContent());
+        }
+        return page;
+    }
+
+    private KeysetSort<MemberTeamDTO, ?> keysetSort(String sort) {
+        if (!hasText(sort) || SORT_BY_ID.getName().equals(sort)) {
+            return SORT_BY_ID;
+        }
+        if (SORT_BY_AGE.getName().equals(sort)) {
+            return SORT_BY_AGE;
+        }
+        throw new InvalidSearchParameterException("Unsupported keyset sort: " + sort);
+    }
+
+    private BooleanExpression usernameEq(String username) {
+        return hasText(username) ? member.username.eq(username) : null;
+    }
+
+    private BooleanExpression teamNameEq(String teamName, boolean useDictionary) {
+        return hasText(teamName) ? MemberTeamProjection.teamNameEq(teamName, useDictionary, true, teamNameDictionary) : null;
+    }
+
+    private BooleanExpression ageGoe(Integer ageGoe) {
+        return ageGoe != null ? member.age.goe(ageGoe) : null;
+    }
+
+    private BooleanExpression ageLoe(Integer ageLoe) {
+        return ageLoe != null ? member.age.loe(ageLoe) : null;
+    }
+}
@@ -2,6 +2,7 @@ package io.hkarling.qeurydsl.repository;
 
 import io.hkarling.qeurydsl.dto.MemberSearchCondition;
 import io.hkarling.qeurydsl.dto.MemberTeamDTO;
+import io.hkarling.qeurydsl.repository.support.CountMode;
 import java.util.List;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -12,4 +13,9 @@ public interface MemberRepositoryCustom {
     public Page<MemberTeamDTO> searchPageSimple(MemberSearchCondition condition, Pageable pageable);
     public Page<MemberTeamDTO> searchPageComplex(MemberSearchCondition condition, Pageable pageable);
 
+    /**
+     * @param countMode ESTIMATED 이면 total 을 통계로 추정할 수 있다. 이때 결과는 EstimatedPage 이다.
+     */
+    public Page<MemberTeamDTO> searchPageComplex(MemberSearchCondition condition, Pageable pageable, CountMode countMode);
+
 }
@@ -4,7 +4,6 @@ import static io.hkarling.qeurydsl.entity.QMember.member;
 import static io.hkarling.qeurydsl.entity.QTeam.team;
 import static org.springframework.util.StringUtils.hasText;
 
-import com.querydsl.core.QueryResults;
 import com.querydsl.core.types.dsl.BooleanExpression;
 import com.querydsl.jpa.JPQLQuery;
 import com.querydsl.jpa.impl.JPAQuery;
@@ -13,70 +12,119 @@ import io.hkarling.qeurydsl.dto.MemberSearchCondition;
 import io.hkarling.qeurydsl.dto.MemberTeamDTO;
 import io.hkarling.qeurydsl.dto.QMemberTeamDTO;
 import io.hkarling.qeurydsl.entity.Member;
+import io.hkarling.qeurydsl.repository.support.CountMode;
+import io.hkarling.qeurydsl.repository.support.CountQueryCache;
+import io.hkarling.qeurydsl.repository.support.CountQueryDeriver;
+import io.hkarling.qeurydsl.repository.support.EstimatedPage;
+import io.hkarling.qeurydsl.repository.support.ParallelCountExecutor;
+import io.hkarling.qeurydsl.repository.support.RepositoryMetrics;
+import io.hkarling.qeurydsl.repository.support.SingleFlight;
 import java.util.List;
+import java.util.OptionalLong;
+import java.util.function.LongSupplier;
 import javax.persistence.EntityManager;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.support.QuerydslRepositorySupport;
 import org.springframework.data.support.PageableExecutionUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 public class MemberRepositoryCustomImpl extends QuerydslRepositorySupport implements MemberRepositoryCustom {
 
+    private final EntityManager em;
     private final JPAQueryFactory queryFactory;
+    private final MemberSearchQueryRegistry searchQueryRegistry;
+    private final CountQueryCache countQueryCache;
+    private final RepositoryMetrics metrics;
+    private final ParallelCountExecutor parallelCountExecutor;
+    private final TeamNameDictionary teamNameDictionary;
+    private final SingleFlight singleFlight;
+    private final CountQueryDeriver countQueryDeriver;
+    private final MemberStatistics memberStatistics;
+    private final UsernameIndex usernameIndex;
+    private final MemberTeamReadModel readModel;
+    private final MemberAgeIndex ageIndex;
+    private final MemberSearchCache searchCache;
+    private final TransactionTemplate readOnly;
 
     /**
      * Creates a new {@link QuerydslRepositorySupport} instance for the given domain type.
      *
      */
-    public MemberRepositoryCustomImpl(EntityManager em) {
+    public MemberRepositoryCustomImpl(EntityManager em, JPAQueryFactory queryFactory, MemberSearchQueryRegistry searchQueryRegistry,
+                                      CountQueryCache countQueryCache, RepositoryMetrics metrics,
+                                      ParallelCountExecutor parallelCountExecutor, TeamNameDictionary teamNameDictionary,
+                                      SingleFlight singleFlight, CountQueryDeriver countQueryDeriver, MemberStatistics memberStatistics,
+                                      UsernameIndex usernameIndex, MemberTeamReadModel readModel, MemberAgeIndex ageIndex,
+                                      MemberSearchCache searchCache, PlatformTransactionManager transactionManager) {
         super(Member.class);
-        this.queryFactory = new JPAQueryFactory(em);
+        this.em = em;
+        this.queryFactory = queryFactory;
+        this.searchQueryRegistry = searchQueryRegistry;
+        this.countQueryCache = countQueryCache;
+        this.metrics = metrics;
+        this.parallelCountExecutor = parallelCountExecutor;
+        this.teamNameDictionary = teamNameDictionary;
+        this.singleFlight = singleFlight;
+        this.countQueryDeriver = countQueryDeriver;
+        this.memberStatistics = memberStatistics;
+        this.usernameIndex = usernameIndex;
+        this.readModel = readModel;
+        this.ageIndex = ageIndex;
+        this.searchCache = searchCache;
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
     }
 
 
     @Override
+    @Transactional(readOnly = true)
     public List<MemberTeamDTO> search(MemberSearchCondition condition) {
-        return queryFactory
-            .select(new QMemberTeamDTO(
-                member.id.as("memberId"),
-                member.username,
-                member.age,
-                team.id.as("teamId"),
-                team.name.as("teamName")))
-            .from(member)
-            .leftJoin(member.team, team)
-            .where(
-                usernameEq(condition.getUsername()),
-                teamNameEq(condition.getTeamName()),
-                ageGoe(condition.getAgeGoe()),
-                ageLoe(condition.getAgeLoe())
-            )
-            .fetch();
+        return searchCache.get(List.of("search", condition.normalized()), condition,
+            () -> metrics.content("MemberRepositoryCustomImpl.search", MemberSearchPredicate.describe(condition),
+                () -> searchQueryRegistry.content(em, condition)));
     }
 
     @Override
     public Page<MemberTeamDTO> searchPageSimple(MemberSearchCondition condition, Pageable pageable) {
-        QueryResults<MemberTeamDTO> results = queryFactory
-            .select(new QMemberTeamDTO(
-                member.id.as("memberId"),
-                member.username,
-                member.age,
-                team.id.as("teamId"),
-                team.name.as("teamName")))
-            .from(member)
-            .leftJoin(member.team, team)
+        // 캐시에 없으면 같은 (조건, 페이지, 정렬)로 동시에 들어온 호출은 한 번만 실행하고 결과를 나눠 받는다.
+        // 읽기 전용 트랜잭션은 실행하는 호출(leader)만 시작한다. 기다리는 호출은 커넥션을 잡지 않는다.
+        List<Object> key = List.of("searchPageSimple", condition.normalized(), pageable);
+        return searchCache.get(key, condition, () -> singleFlight.execute("MemberRepositoryCustomImpl.searchPageSimple", key,
+            () -> readOnly.execute(status -> doSearchPageSimple(condition, pageable))));
+    }
+
+    private Page<MemberTeamDTO> doSearchPageSimple(MemberSearchCondition condition, Pageable pageable) {
+        String method = "MemberRepositoryCustomImpl.searchPageSimple";
+        String shape = MemberSearchPredicate.describe(condition);
+        if (readModel.isReadable()) {
+            // 읽기 모델은 join 할 것이 없으므로 content, count 모두 shape 별로 컴파일해 둔 JPQL 로 읽는다.
+            List<MemberTeamDTO> content = metrics.content(method, shape,
+                () -> searchQueryRegistry.content(em, condition, pageable.getOffset(), pageable.getPageSize()));
+            long total = metrics.count(method, shape, () -> searchQueryRegistry.count(em, condition));
+            return new PageImpl<>(content, pageable, total);
+        }
+        boolean useDictionary = teamNameDictionary.isAvailable(); // 팀 이름 사전이 있으면 content, count 모두 team 을 join 하지 않는다.
+        JPAQuery<MemberTeamDTO> query = MemberTeamProjection
+            .selectFrom(queryFactory, useDictionary)
             .where(
                 usernameEq(condition.getUsername()),
-                teamNameEq(condition.getTeamName()),
+                usernameIndex.usernameMatches(condition),
+                teamNameEq(condition.getTeamName(), useDictionary),
                 ageGoe(condition.getAgeGoe()),
                 ageLoe(condition.getAgeLoe())
-            )
+            );
+        // count 는 content 쿼리에서 만든다. 팀 이름 조건이 없으면 team left join 은 빠진다.
+        JPAQuery<Long> countQuery = countQueryDeriver.derive(query);
+        List<MemberTeamDTO> results = metrics.content(method, shape, () -> query
             .offset(pageable.getOffset())
             .limit(pageable.getPageSize())
-            .fetchResults();
-        List<MemberTeamDTO> contents = results.getResults();
-        long total = results.getTotal();
+            .fetch());
+        List<MemberTeamDTO> contents = useDictionary ? teamNameDictionary.fillTeamNames(results) : results;
+        long total = metrics.count(method, shape, countQuery::fetchOne);
 
         return new PageImpl<>(contents, pageable, total);
 
@@ -87,7 +135,8 @@ public class MemberRepositoryCustomImpl extends QuerydslRepositorySupport implem
             .leftJoin(member.team, team)
             .where(
                 usernameEq(condition.getUsername()),
-                teamNameEq(condition.getTeamName()),
+                usernameIndex.usernameMatches(condition),
+                teamNameEq(condition.getTeamName(), false),
                 ageGoe(condition.getAgeGoe()),
                 ageLoe(condition.getAgeLoe())
             )
@@ -98,65 +147,88 @@ public class MemberRepositoryCustomImpl extends QuerydslRepositorySupport implem
                 team.id.as("teamId"),
                 team.name.as("teamName")));
 
+        JPAQuery<Long> countQuery = countQueryDeriver.derive(jpaQuery); // applyPagination 이 offset/limit 을 추가하기 전에 만든다.
         JPQLQuery<MemberTeamDTO> query = getQuerydsl().applyPagination(pageable, jpaQuery); // offset 과 limit 라인 삭제 가능. Sort 지원 안함 -> 파라미터로 처리
         List<MemberTeamDTO> contents = query.fetch();
 
-        long total = contents.size();
-        return new PageImpl<>(contents, pageable, total);
+        return PageableExecutionUtils.getPage(contents, pageable, countQuery::fetchOne);
 
     }
 
     @Override
     public Page<MemberTeamDTO> searchPageComplex(MemberSearchCondition condition, Pageable pageable) {
-        List<MemberTeamDTO> content = queryFactory
-            .select(new QMemberTeamDTO(
-                member.id.as("memberId"),
-                member.username,
-                member.age,
-                team.id.as("teamId"),
-                team.name.as("teamName")))
-            .from(member)
-            .leftJoin(member.team, team)
-            .where(
-                usernameEq(condition.getUsername()),
-                teamNameEq(condition.getTeamName()),
-                ageGoe(condition.getAgeGoe()),
-                ageLoe(condition.getAgeLoe())
-            )
-            .offset(pageable.getOffset())
-            .limit(pageable.getPageSize())
-            .fetch();
+        return searchPageComplex(condition, pageable, CountMode.EXACT);
+    }
 
-        long total = queryFactory
-            .selectFrom(member)
-            .where(
-                usernameEq(condition.getUsername()),
-                teamNameEq(condition.getTeamName()),
-                ageGoe(condition.getAgeGoe()),
-                ageLoe(condition.getAgeLoe())
-            )
-            .fetchCount();
+    @Override
+    public Page<MemberTeamDTO> searchPageComplex(MemberSearchCondition condition, Pageable pageable, CountMode countMode) {
+        // 캐시에 없으면 같은 (조건, 페이지, 정렬)로 동시에 들어온 호출은 한 번만 실행하고 결과를 나눠 받는다.
+        List<Object> key = List.of("searchPageComplex", condition.normalized(), pageable, countMode);
+        return searchCache.get(key, condition, () -> singleFlight.execute("MemberRepositoryCustomImpl.searchPageComplex", key,
+            () -> readOnly.execute(status -> doSearchPageComplex(condition, pageable, countMode))));
+    }
 
-        // countQuery 최적화: 마지막 페이지 조회시 count 쿼리 생략.
-        JPAQuery<Member> countQuery = queryFactory
-            .selectFrom(member)
-            .where(
-                usernameEq(condition.getUsername()),
-                teamNameEq(condition.getTeamName()),
-                ageGoe(condition.getAgeGoe()),
-                ageLoe(condition.getAgeLoe())
-            );
+    private Page<MemberTeamDTO> doSearchPageComplex(MemberSearchCondition condition, Pageable pageable, CountMode countMode) {
+        String method = "MemberRepositoryCustomImpl.searchPageComplex";
+        String shape = MemberSearchPredicate.describe(condition);
 
-//        return new PageImpl<>(content, pageable, total);
-        return PageableExecutionUtils.getPage(content, pageable, countQuery::fetchCount);
+        // 추정해도 되면 count 쿼리 없이 추정값을 total 로 쓴다.
+        OptionalLong estimate = countMode == CountMode.ESTIMATED ? estimate(condition) : OptionalLong.empty();
+        if (estimate.isPresent()) {
+            List<MemberTeamDTO> content = metrics.content(method, shape,
+                () -> searchQueryRegistry.content(em, condition, pageable.getOffset(), pageable.getPageSize()));
+            return estimatedPage(content, pageable, estimate.getAsLong());
+        }
+
+        LongSupplier count = countQuery(method, shape, condition);
+
+        // content, count 쿼리 모두 shape 별로 컴파일해 둔 JPQL 을 사용한다. 팀 이름 사전이 있으면 둘 다 team 을 join 하지 않는다.
+        List<MemberTeamDTO> content = metrics.content(method, shape,
+            () -> searchQueryRegistry.content(em, condition, pageable.getOffset(), pageable.getPageSize()));
+
+        // countQuery 최적화: 마지막 페이지 조회시 count 쿼리 생략. (병렬로 시작한 count 는 결과만 버린다)
+        Page<MemberTeamDTO> page = PageableExecutionUtils.getPage(content, pageable, count);
+        return countMode == CountMode.ESTIMATED ? new EstimatedPage<>(content, pageable, page.getTotalElements(), false) : page;
+    }
+
+    /**
+     * username 조건이 없으면 나이/팀 색인(MemberAgeIndex)이 세고, 아니면 통계(MemberStatistics)로 추정한다.
+     * 색인은 이벤트 없는 변경을 reconcile 전까지 모르므로 exact 에는 쓰지 않는다.
+     */
+    private OptionalLong estimate(MemberSearchCondition condition) {
+        OptionalLong indexed = ageIndex.count(condition);
+        return indexed.isPresent() ? indexed : memberStatistics.estimate(condition);
+    }
+
+    /**
+     * 같은 조건으로 페이지만 넘기는 경우 count 는 캐시에서 가져온다.
+     * 캐시에 없으면 content 쿼리와 동시에 다른 커넥션에서 시작한다. (querydsl.parallel-count.enabled)
+     * count 쿼리는 실행하는 스레드에서 만들어야 그 스레드의 트랜잭션(EntityManager)을 사용한다.
+     */
+    private LongSupplier countQuery(String method, String shape, MemberSearchCondition condition) {
+        List<Object> countKey = List.of("searchPageComplex", condition.normalized());
+        LongSupplier cachedCount = () -> countQueryCache.get(countKey,
+            () -> metrics.count(method, shape, () -> searchQueryRegistry.count(em, condition)));
+        return countQueryCache.contains(countKey) ? cachedCount : parallelCountExecutor.prefetch(cachedCount);
+    }
+
+    /**
+     * 마지막 페이지이면(content 가 page size 보다 적으면) total 을 정확히 알 수 있다.
+     * 아니면 추정값을 쓰되, 다음 페이지가 있을 수 있으므로 지금까지 본 건수 + 1 보다 작게 하지 않는다.
+     */
+    private static EstimatedPage<MemberTeamDTO> estimatedPage(List<MemberTeamDTO> content, Pageable pageable, long estimate) {
+        if (content.size() < pageable.getPageSize() && (pageable.getOffset() == 0 || !content.isEmpty())) {
+            return new EstimatedPage<>(content, pageable, pageable.getOffset() + content.size(), false);
+        }
+        return new EstimatedPage<>(content, pageable, Math.max(estimate, pageable.getOffset() + content.size() + 1), true);
     }
 
     private BooleanExpression usernameEq(String username) {
         return hasText(username) ? member.username.eq(username) : null;
     }
 
-    private BooleanExpression teamNameEq(String teamName) {
-        return hasText(teamName) ? team.name.eq(teamName) : null;
+    private BooleanExpression teamNameEq(String teamName, boolean useDictionary) {
+        return hasText(teamName) ? MemberTeamProjection.teamNameEq(teamName, useDictionary, true, teamNameDictionary) : null;
     }
 
     private BooleanExpression ageGoe(Integer ageGoe) {
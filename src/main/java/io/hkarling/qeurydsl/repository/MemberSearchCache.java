@@ -0,0 +1,169 @@
+package io.hkarling.qeurydsl.repository;
+
+import static org.springframework.util.StringUtils.hasText;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.hkarling.qeurydsl.config.QuerydslProperties;
+import io.hkarling.qeurydsl.dto.MemberSearchCondition;
+import io.hkarling.qeurydsl.entity.Member;
+import io.hkarling.qeurydsl.entity.Team;
+import io.hkarling.qeurydsl.event.EntityChangedEvent;
+import io.hkarling.qeurydsl.repository.support.Transactions;
+import io.hkarling.qeurydsl.routing.ReadYourWrites;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Supplier;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceUnitUtil;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * MemberRepositoryCustom 의 search, searchPageSimple, searchPageComplex 결과 캐시.
+ * (검색 조건, 페이지, 정렬)이 같은 요청이 많으므로 content, count 쿼리를 모두 건너뛴다.
+ * <p>
+ * Caffeine 캐시이므로 querydsl.search-cache.max-size 를 넘으면 자주 쓰이지 않는 항목부터 내보낸다. (W-TinyLFU)
+ * 항목마다 팀 이름 조건의 팀 id 를 태그로 두고, Member 변경이 commit 되면 바뀐 회원의 이전/이후 팀 태그 항목과 팀 조건이 없는 항목을 지운다.
+ * Team 변경, bulk 연산(BULK 이벤트), 이전 상태를 모르는 update 는 전체를 지운다.
+ * 이벤트가 없는 변경(JDBC seed, replica 복제 지연)은 querydsl.search-cache.ttl 이 지나면 반영된다.
+ * <p>
+ * 결과 객체를 여러 호출이 공유하므로 받은 쪽에서 수정하면 안 된다.
+ * 쓰기 트랜잭션 안의 호출과 이미 primary 에 쓴 요청의 호출({@link ReadYourWrites#isPinned()})은 캐시를 거치지 않는다.
+ * <ul>
+ *     <li>cache.gets, cache.puts, cache.evictions, cache.size (cache=member.search) : CaffeineCacheMetrics</li>
+ *     <li>repository.search.cache.hit.ratio : 기동 후 적중률</li>
+ *     <li>repository.search.cache.invalidations (scope=team|all)</li>
+ * </ul>
+ */
+@Component
+public class MemberSearchCache {
+
+    static final String CACHE_NAME = "member.search";
+
+    private final TeamNameDictionary teamNameDictionary;
+    private final PersistenceUnitUtil persistenceUnitUtil;
+    private final QuerydslProperties.SearchCache properties;
+    private final Cache<Object, Entry> cache;
+    private final Counter teamInvalidations;
+    private final Counter allInvalidations;
+    private long generation; // 무효화 이전에 시작한 검색 결과가 캐시에 들어가지 않도록. this 로 동기화
+
+    public MemberSearchCache(TeamNameDictionary teamNameDictionary, EntityManagerFactory entityManagerFactory,
+                             QuerydslProperties properties, MeterRegistry registry) {
+        this.teamNameDictionary = teamNameDictionary;
+        this.persistenceUnitUtil = entityManagerFactory.getPersistenceUnitUtil();
+        this.properties = properties.getSearchCache();
+        this.cache = Caffeine.newBuilder()
+            .maximumSize(this.properties.getMaxSize())
+            .expireAfterWrite(this.properties.getTtl())
+            .recordStats()
+            .build();
+        CaffeineCacheMetrics.monitor(registry, cache, CACHE_NAME);
+        Gauge.builder("repository.search.cache.hit.ratio", cache, c -> c.stats().hitRate())
+            .description("Search result cache hits / requests since startup")
+            .register(registry);
+        this.teamInvalidations = Counter.builder("repository.search.cache.invalidations").tag("scope", "team").register(registry);
+        this.allInvalidations = Counter.builder("repository.search.cache.invalidations").tag("scope", "all").register(registry);
+    }
+
+    /**
+     * @param key       조회 메서드와 정규화된 검색 조건, 페이지를 포함한 키 (equals/hashCode 구현 필수)
+     * @param condition 태그(팀 id)를 정할 검색 조건
+     * @param search    캐시에 없을 때 실행할 검색
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(Object key, MemberSearchCondition condition, Supplier<T> search) {
+        if (!properties.isEnabled() || !Transactions.isReadOnlyOrAbsent() || ReadYourWrites.isPinned()) {
+            return search.get();
+        }
+        Entry entry = cache.getIfPresent(key);
+        if (entry != null) {
+            return (T) entry.result;
+        }
+
+        long startGeneration;
+        synchronized (this) {
+            startGeneration = generation;
+        }
+        Set<Long> teamIds = teamIdsOf(condition); // 검색 전에 정한다. 그 뒤에 바뀐 팀은 Team 이벤트로 전체가 지워진다.
+        T result = search.get();
+        synchronized (this) {
+            if (startGeneration == generation) {
+                cache.put(key, new Entry(result, teamIds));
+            }
+        }
+        return result;
+    }
+
+    public synchronized void invalidateAll() {
+        generation++;
+        cache.invalidateAll();
+        allInvalidations.increment();
+    }
+
+    public long size() {
+        return cache.estimatedSize();
+    }
+
+    /**
+     * commit 이후에 고쳐지는 메모리 구조(TeamNameDictionary, MemberAgeIndex 등)가 모두 바뀐 뒤에 지운다. (AFTER_COMPLETION)
+     * 먼저 지우면 그 사이에 이전 사전으로 검색한 결과가 다시 캐시에 들어갈 수 있다. 롤백에도 지우지만 결과는 같다.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMPLETION, fallbackExecution = true)
+    public void onEntityChanged(EntityChangedEvent event) {
+        if (!event.isAbout(Member.class) && !event.isAbout(Team.class)) {
+            return;
+        }
+        if (event.isAbout(Team.class) || event.getChangeType() == EntityChangedEvent.ChangeType.BULK
+            || event.getChangeType() == EntityChangedEvent.ChangeType.UPDATE && event.getOldState().isEmpty()) {
+            invalidateAll(); // 팀 이름이 바뀌면 팀 이름 조건의 팀 id 가 달라진다. 팀 변경은 드물다.
+            return;
+        }
+        Set<Long> teamIds = new HashSet<>(2);
+        addTeamId(teamIds, event.getOldValue("team"));
+        addTeamId(teamIds, event.getNewValue("team"));
+        invalidateTeams(teamIds);
+    }
+
+    /**
+     * 팀 조건이 없는 항목과 teamIds 중 하나를 태그로 가진 항목을 지운다.
+     */
+    private synchronized void invalidateTeams(Set<Long> teamIds) {
+        generation++;
+        cache.asMap().values().removeIf(entry -> entry.teamIds == null || entry.teamIds.stream().anyMatch(teamIds::contains));
+        teamInvalidations.increment();
+    }
+
+    /**
+     * @return 팀 이름 조건의 팀 id. 팀 조건이 없거나 사전을 쓸 수 없으면 null (모든 Member 변경에 지워진다)
+     */
+    private Set<Long> teamIdsOf(MemberSearchCondition condition) {
+        if (!hasText(condition.getTeamName()) || !teamNameDictionary.isAvailable()) {
+            return null;
+        }
+        return Set.copyOf(teamNameDictionary.idsOf(condition.getTeamName()));
+    }
+
+    private void addTeamId(Set<Long> teamIds, Object team) {
+        if (team != null) {
+            teamIds.add((Long) persistenceUnitUtil.getIdentifier(team)); // 프록시를 초기화하지 않는다.
+        }
+    }
+
+    private static class Entry {
+
+        private final Object result;
+        private final Set<Long> teamIds; // null 이면 팀 조건 없음
+
+        private Entry(Object result, Set<Long> teamIds) {
+            this.result = result;
+            this.teamIds = teamIds;
+        }
+    }
+}
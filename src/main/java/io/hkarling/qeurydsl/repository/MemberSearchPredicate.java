@@ -0,0 +1,81 @@
+package io.hkarling.qeurydsl.repository;
+
+import static org.springframework.util.StringUtils.hasText;
+
+import io.hkarling.qeurydsl.dto.MemberSearchCondition;
+import java.util.StringJoiner;
+import java.util.function.Function;
+
+/**
+ * MemberSearchCondition 의 선택 조건. 어떤 조건이 값을 가지는지를 bit 로 모은 값이 쿼리 모양(shape) 이다.
+ * 조건식은 MemberSearchQueryRegistry 가 Querydsl 로 만들고, 여기서는 바인딩할 값만 정한다.
+ */
+public enum MemberSearchPredicate {
+
+    USERNAME("username", c -> hasText(c.getUsername()) ? c.getUsername() : null),
+    USERNAME_PREFIX("usernamePrefix", c -> hasText(c.getUsernamePrefix()) ? escapeLike(c.getUsernamePrefix()) + "%" : null),
+    USERNAME_CONTAINS("usernameContains", c -> hasText(c.getUsernameContains()) ? "%" + escapeLike(c.getUsernameContains()) + "%" : null),
+    TEAM_NAME("teamName", c -> hasText(c.getTeamName()) ? c.getTeamName() : null),
+    AGE_GOE("ageGoe", MemberSearchCondition::getAgeGoe),
+    AGE_LOE("ageLoe", MemberSearchCondition::getAgeLoe);
+
+    public static final int SHAPE_COUNT = 1 << values().length;
+
+    private final String parameter;
+    private final Function<MemberSearchCondition, Object> value;
+
+    MemberSearchPredicate(String parameter, Function<MemberSearchCondition, Object> value) {
+        this.parameter = parameter;
+        this.value = value;
+    }
+
+    public String getParameter() {
+        return parameter;
+    }
+
+    public Object valueOf(MemberSearchCondition condition) {
+        return value.apply(condition);
+    }
+
+    public int bit() {
+        return 1 << ordinal();
+    }
+
+    public boolean isIn(int shape) {
+        return (shape & bit()) != 0;
+    }
+
+    public static int shapeOf(MemberSearchCondition condition) {
+        int shape = 0;
+        for (MemberSearchPredicate predicate : values()) {
+            if (predicate.valueOf(condition) != null) {
+                shape |= predicate.bit();
+            }
+        }
+        return shape;
+    }
+
+    /**
+     * like 패턴 문자(%, _)를 그대로 비교하도록 escape 한다. escape 문자는 Querydsl 과 같은 '!'
+     */
+    static String escapeLike(String value) {
+        return value.replace("!", "!!").replace("%", "!%").replace("_", "!_");
+    }
+
+    public static String describe(MemberSearchCondition condition) {
+        return describe(shapeOf(condition));
+    }
+
+    /**
+     * 메트릭 태그 등에 쓰는 사람이 읽을 수 있는 모양. 예) "teamName+ageGoe", 조건이 없으면 "none"
+     */
+    public static String describe(int shape) {
+        StringJoiner joiner = new StringJoiner("+");
+        for (MemberSearchPredicate predicate : values()) {
+            if (predicate.isIn(shape)) {
+                joiner.add(predicate.parameter);
+            }
+        }
+        return shape == 0 ? "none" : joiner.toString();
+    }
+}
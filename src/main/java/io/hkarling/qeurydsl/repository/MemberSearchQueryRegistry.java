@@ -0,0 +1,365 @@
+package io.hkarling.qeurydsl.repository;
+
+import static io.hkarling.qeurydsl.entity.QMember.member;
+import static io.hkarling.qeurydsl.entity.QMemberTeamView.memberTeamView;
+import static io.hkarling.qeurydsl.entity.QTeam.team;
+
+import com.querydsl.core.types.Ops;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.Projections;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.core.types.dsl.NumberPath;
+import com.querydsl.core.types.dsl.Param;
+import com.querydsl.core.types.dsl.StringPath;
+import com.querydsl.jpa.HQLTemplates;
+import com.querydsl.jpa.JPQLSerializer;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import io.hkarling.qeurydsl.dto.MemberSearchCondition;
+import io.hkarling.qeurydsl.dto.MemberTeamDTO;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import lombok.Getter;
+import org.springframework.stereotype.Component;
+import org.springframework.util.Assert;
+
+/**
+ * MemberSearchCondition 검색 쿼리를 모양(shape)별로 한 번만 만들어 두고 파라미터만 바인딩한다.
+ * 조건 6개의 조합이라 모양은 64가지뿐이고, JPQL 문자열이 항상 같으므로 Hibernate 쿼리 플랜 캐시에서도 매번 hit 한다.
+ * <p>
+ * 모양마다 JPAQueryFactory 로 값 대신 {@link Param} 을 넣은 쿼리를 만들고 JPQLSerializer 로 직렬화한 JPQL 을 보관한다.
+ * Param 은 나오는 순서대로 ?1, ?2 ... 가 되므로 같은 순서로 값을 바인딩한다.
+ * <p>
+ * 팀 이름 사전(TeamNameDictionary)을 쓸 수 있으면 team 을 join 하지 않는 변형을 사용한다.
+ * 팀 이름 조건은 {@code member.team.id in (...)} 이 되고 teamName 은 사전에서 채운다.
+ * username 앞부분/부분 문자열 조건은 색인(UsernameIndex)에서 후보를 찾으면 {@code member.id in (...)} 를 함께 거는 변형을 사용한다.
+ * <p>
+ * 읽기 모델(MemberTeamReadModel)을 읽도록 설정하면 Member/Team 대신 member_team_view 테이블 하나만 읽는다. (팀 이름 사전보다 우선)
+ */
+@Component
+public class MemberSearchQueryRegistry implements MeterBinder {
+
+    static final String TEAM_IDS_PARAMETER = "teamIds";
+    static final String MEMBER_IDS_PARAMETER = "memberIds";
+    private static final int VARIANT_COUNT = MemberSearchPredicate.SHAPE_COUNT * Source.values().length * 2; // (shape, source, username 색인 사용 여부)
+
+    /**
+     * 어디에서 읽는지
+     */
+    public enum Source {
+        JOIN,       // Member left join Team
+        DICTIONARY, // Member 만 읽고 팀 이름은 TeamNameDictionary
+        READ_MODEL  // member_team_view (MemberTeamReadModel)
+    }
+
+    private final JPAQueryFactory queryFactory;
+    private final TeamNameDictionary teamNameDictionary;
+    private final UsernameIndex usernameIndex;
+    private final MemberTeamReadModel readModel;
+    private final AtomicReferenceArray<CompiledQuery> contentQueries = new AtomicReferenceArray<>(VARIANT_COUNT);
+    private final AtomicReferenceArray<CompiledQuery> countQueries = new AtomicReferenceArray<>(VARIANT_COUNT);
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public MemberSearchQueryRegistry(JPAQueryFactory queryFactory, TeamNameDictionary teamNameDictionary, UsernameIndex usernameIndex,
+                                     MemberTeamReadModel readModel) {
+        this.queryFactory = queryFactory;
+        this.teamNameDictionary = teamNameDictionary;
+        this.usernameIndex = usernameIndex;
+        this.readModel = readModel;
+    }
+
+    public List<MemberTeamDTO> content(EntityManager em, MemberSearchCondition condition) {
+        return content(em, condition, 0, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Member left join Team 변형만 쓴다. 팀 이름 사전, username 색인, 읽기 모델을 거치지 않는다. (MemberJpaRepository)
+     */
+    public List<MemberTeamDTO> joinedContent(EntityManager em, MemberSearchCondition condition) {
+        return content(em, condition, Source.JOIN, null, 0, Integer.MAX_VALUE);
+    }
+
+    public List<MemberTeamDTO> content(EntityManager em, MemberSearchCondition condition, long offset, int limit) {
+        return content(em, condition, source(), usernameIndex.candidates(condition), offset, limit); // memberIds 가 null 이면 like 로만 거른다.
+    }
+
+    private List<MemberTeamDTO> content(EntityManager em, MemberSearchCondition condition, Source source, List<Long> memberIds,
+                                        long offset, int limit) {
+        if (source == Source.DICTIONARY && hasNoTeam(condition) || memberIds != null && memberIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        CompiledQuery compiled = compiled(contentQueries, MemberSearchPredicate.shapeOf(condition), source, memberIds != null,
+            this::compileContent);
+        TypedQuery<MemberTeamDTO> query = compiled.bind(em.createQuery(compiled.jpql, MemberTeamDTO.class), condition, teamNameDictionary, memberIds)
+            .setFirstResult((int) offset);
+        if (limit != Integer.MAX_VALUE) {
+            query.setMaxResults(limit);
+        }
+        List<MemberTeamDTO> content = query.getResultList();
+        return source == Source.DICTIONARY ? teamNameDictionary.fillTeamNames(content) : content;
+    }
+
+    public long count(EntityManager em, MemberSearchCondition condition) {
+        Source source = source();
+        List<Long> memberIds = usernameIndex.candidates(condition);
+        if (source == Source.DICTIONARY && hasNoTeam(condition) || memberIds != null && memberIds.isEmpty()) {
+            return 0;
+        }
+        CompiledQuery compiled = compiled(countQueries, MemberSearchPredicate.shapeOf(condition), source, memberIds != null,
+            this::compileCount);
+        return compiled.bind(em.createQuery(compiled.jpql, Long.class), condition, teamNameDictionary, memberIds).getSingleResult();
+    }
+
+    /**
+     * 실행 계획 확인용(MemberIndexAdvisor). 통계와 캐시에는 영향을 주지 않는다.
+     *
+     * @param orderByAge keyset age 정렬과 같은 순서(age, id)로 정렬한다.
+     */
+    public String contentJpql(int shape, Source source, boolean orderByAge) {
+        SearchPaths paths = SearchPaths.of(source);
+        JPAQuery<?> query = contentQuery(source);
+        if (orderByAge) {
+            query.orderBy(paths.age.asc(), paths.id.asc());
+        }
+        return compile(query, shape, source, false).jpql;
+    }
+
+    public String countJpql(int shape, Source source) {
+        return compileCount(shape, source, false).jpql;
+    }
+
+    /**
+     * @return contentJpql, countJpql 의 ?1, ?2 ... 에 바인딩할 파라미터 이름 (팀 id 목록은 {@link #TEAM_IDS_PARAMETER})
+     */
+    public List<String> parameters(int shape, Source source) {
+        List<String> parameters = new ArrayList<>();
+        for (MemberSearchPredicate predicate : MemberSearchPredicate.values()) {
+            if (predicate.isIn(shape)) {
+                boolean teamIds = source == Source.DICTIONARY && predicate == MemberSearchPredicate.TEAM_NAME;
+                parameters.add(teamIds ? TEAM_IDS_PARAMETER : predicate.getParameter());
+            }
+        }
+        return parameters;
+    }
+
+    private Source source() {
+        if (readModel.isReadable()) {
+            return Source.READ_MODEL;
+        }
+        return teamNameDictionary.isAvailable() ? Source.DICTIONARY : Source.JOIN;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("repository.query.shape.cache", hits, LongAdder::sum)
+            .description("Compiled search query shape lookups")
+            .tag("result", "hit")
+            .register(registry);
+        FunctionCounter.builder("repository.query.shape.cache", misses, LongAdder::sum)
+            .description("Compiled search query shape lookups")
+            .tag("result", "miss")
+            .register(registry);
+    }
+
+    public Statistics getStatistics() {
+        int compiledShapes = 0;
+        for (int i = 0; i < VARIANT_COUNT; i++) {
+            compiledShapes += (contentQueries.get(i) != null ? 1 : 0) + (countQueries.get(i) != null ? 1 : 0);
+        }
+        return new Statistics(hits.sum(), misses.sum(), compiledShapes);
+    }
+
+    /**
+     * 조건에 맞는 이름의 팀이 없으면 쿼리 없이 빈 결과를 돌려준다. (빈 in 목록은 바인딩할 수 없다)
+     */
+    private boolean hasNoTeam(MemberSearchCondition condition) {
+        Object teamName = MemberSearchPredicate.TEAM_NAME.valueOf(condition);
+        return teamName != null && teamNameDictionary.idsOf((String) teamName).isEmpty();
+    }
+
+    private CompiledQuery compiled(AtomicReferenceArray<CompiledQuery> queries, int shape, Source source, boolean memberIds,
+                                   Compiler compiler) {
+        int variant = (source.ordinal() * 2 + (memberIds ? 1 : 0)) * MemberSearchPredicate.SHAPE_COUNT + shape;
+        CompiledQuery compiled = queries.get(variant);
+        if (compiled != null) {
+            hits.increment();
+            return compiled;
+        }
+        misses.increment();
+        compiled = compiler.compile(shape, source, memberIds);
+        queries.compareAndSet(variant, null, compiled); // 동시에 컴파일해도 결과가 같으므로 먼저 넣은 쪽을 쓴다.
+        return compiled;
+    }
+
+    private CompiledQuery compileContent(int shape, Source source, boolean memberIds) {
+        return compile(contentQuery(source), shape, source, memberIds);
+    }
+
+    private CompiledQuery compileCount(int shape, Source source, boolean memberIds) {
+        if (source == Source.READ_MODEL) {
+            return compile(queryFactory.select(memberTeamView.count()).from(memberTeamView), shape, source, memberIds);
+        }
+        // count 는 팀 이름으로 거를 때만 join 한다. (ManyToOne left join 은 row 수를 바꾸지 않는다) 사전을 쓰면 join 하지 않는다.
+        JPAQuery<Long> query = queryFactory.select(member.count()).from(member);
+        if (source == Source.JOIN && MemberSearchPredicate.TEAM_NAME.isIn(shape)) {
+            query.leftJoin(member.team, team);
+        }
+        return compile(query, shape, source, memberIds);
+    }
+
+    private JPAQuery<MemberTeamDTO> contentQuery(Source source) {
+        if (source == Source.READ_MODEL) {
+            return queryFactory
+                .select(Projections.constructor(MemberTeamDTO.class,
+                    memberTeamView.id, memberTeamView.username, memberTeamView.age, memberTeamView.teamId, memberTeamView.teamName))
+                .from(memberTeamView);
+        }
+        return MemberTeamProjection.selectFrom(queryFactory, source == Source.DICTIONARY);
+    }
+
+    /**
+     * shape 의 조건을 Param 으로 추가해서 JPQL 로 직렬화한다. 쿼리는 실행하지 않는다.
+     *
+     * @param memberIds username 색인에서 찾은 후보 id 를 바인딩한다. like 조건도 그대로 둔다. (후보에는 맞지 않는 id 가 섞일 수 있다)
+     */
+    private static CompiledQuery compile(JPAQuery<?> query, int shape, Source source, boolean memberIds) {
+        SearchPaths paths = SearchPaths.of(source);
+        List<MemberSearchPredicate> bindings = new ArrayList<>();
+        for (MemberSearchPredicate predicate : MemberSearchPredicate.values()) {
+            if (predicate.isIn(shape)) {
+                query.where(predicateOf(predicate, paths, source));
+                bindings.add(predicate);
+            }
+        }
+        if (memberIds) {
+            query.where(in(paths.id, MEMBER_IDS_PARAMETER));
+        }
+        JPQLSerializer serializer = new JPQLSerializer(HQLTemplates.DEFAULT);
+        serializer.serialize(query.getMetadata(), false, null);
+        String jpql = serializer.toString();
+        int parameters = bindings.size() + (memberIds ? 1 : 0);
+        Assert.state(parameters == 0 || jpql.contains("?" + parameters) && !jpql.contains("?" + (parameters + 1)),
+            () -> "Unexpected parameter labels: " + jpql);
+        return new CompiledQuery(jpql, bindings.toArray(new MemberSearchPredicate[0]), source == Source.DICTIONARY, memberIds);
+    }
+
+    /**
+     * 조건 값 대신 Param 을 넣은 조건식. Member 와 member_team_view 는 팀 이름 조건만 다르다.
+     */
+    private static Predicate predicateOf(MemberSearchPredicate predicate, SearchPaths paths, Source source) {
+        String name = predicate.getParameter();
+        switch (predicate) {
+            case USERNAME:
+                return paths.username.eq(new Param<>(String.class, name));
+            case USERNAME_PREFIX:
+            case USERNAME_CONTAINS:
+                return paths.username.like(new Param<>(String.class, name), '!'); // 값은 MemberSearchPredicate 가 escape 한다.
+            case TEAM_NAME:
+                return source == Source.DICTIONARY ? in(paths.teamId, TEAM_IDS_PARAMETER) : paths.teamName.eq(new Param<>(String.class, name));
+            case AGE_GOE:
+                return paths.age.goe(new Param<>(Integer.class, name));
+            case AGE_LOE:
+                return paths.age.loe(new Param<>(Integer.class, name));
+            default:
+                throw new IllegalArgumentException("Unknown predicate: " + predicate);
+        }
+    }
+
+    private static BooleanExpression in(NumberPath<Long> path, String parameter) {
+        return Expressions.booleanOperation(Ops.IN, path, new Param<>(Collection.class, parameter));
+    }
+
+    /**
+     * 읽는 곳(Source)에 따른 조건 경로. 팀 이름은 JOIN 이면 join 한 team, READ_MODEL 이면 member_team_view 의 컬럼이다.
+     */
+    private static class SearchPaths {
+
+        private static final SearchPaths MEMBER = new SearchPaths(member.id, member.username, member.age, member.team.id, team.name);
+        private static final SearchPaths READ_MODEL = new SearchPaths(memberTeamView.id, memberTeamView.username, memberTeamView.age,
+            memberTeamView.teamId, memberTeamView.teamName);
+
+        private final NumberPath<Long> id;
+        private final StringPath username;
+        private final NumberPath<Integer> age;
+        private final NumberPath<Long> teamId;
+        private final StringPath teamName;
+
+        private SearchPaths(NumberPath<Long> id, StringPath username, NumberPath<Integer> age, NumberPath<Long> teamId, StringPath teamName) {
+            this.id = id;
+            this.username = username;
+            this.age = age;
+            this.teamId = teamId;
+            this.teamName = teamName;
+        }
+
+        private static SearchPaths of(Source source) {
+            return source == Source.READ_MODEL ? READ_MODEL : MEMBER;
+        }
+    }
+
+    @FunctionalInterface
+    private interface Compiler {
+
+        CompiledQuery compile(int shape, Source source, boolean memberIds);
+    }
+
+    private static class CompiledQuery {
+
+        private final String jpql;
+        private final MemberSearchPredicate[] bindings;
+        private final boolean teamIds; // 팀 이름 대신 사전에서 찾은 팀 id 목록을 바인딩
+        private final boolean memberIds; // username 색인에서 찾은 후보 회원 id 목록을 바인딩
+
+        private CompiledQuery(String jpql, MemberSearchPredicate[] bindings, boolean teamIds, boolean memberIds) {
+            this.jpql = jpql;
+            this.bindings = bindings;
+            this.teamIds = teamIds;
+            this.memberIds = memberIds;
+        }
+
+        private <T> TypedQuery<T> bind(TypedQuery<T> query, MemberSearchCondition condition, TeamNameDictionary teamNameDictionary,
+                                       List<Long> candidates) {
+            int position = 1; // compile 에서 조건을 추가한 순서
+            for (MemberSearchPredicate binding : bindings) {
+                if (teamIds && binding == MemberSearchPredicate.TEAM_NAME) {
+                    query.setParameter(position++, teamNameDictionary.idsOf((String) binding.valueOf(condition)));
+                } else {
+                    query.setParameter(position++, binding.valueOf(condition));
+                }
+            }
+            if (memberIds) {
+                query.setParameter(position, candidates);
+            }
+            return query;
+        }
+    }
+
+    @Getter
+    public static class Statistics {
+
+        private final long hits;
+        private final long misses;
+        private final int compiledShapes;
+
+        public Statistics(long hits, long misses, int compiledShapes) {
+            this.hits = hits;
+            this.misses = misses;
+            this.compiledShapes = compiledShapes;
+        }
+
+        public double getHitRatio() {
+            long total = hits + misses;
+            return total == 0 ? 0 : (double) hits / total;
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package io.hkarling.qeurydsl.repository;
+
+import static org.springframework.util.StringUtils.hasText;
+
+import io.hkarling.qeurydsl.config.QuerydslProperties;
+import io.hkarling.qeurydsl.dto.MemberSearchCondition;
+import io.hkarling.qeurydsl.repository.support.Transactions;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.OptionalLong;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import javax.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * 회원 수 통계(팀별 나이 히스토그램과 이를 합친 전체 나이 히스토그램)로 검색 조건의 결과 건수를 추정한다.
+ * 페이징 total 추정(CountMode.ESTIMATED)에 사용한다.
+ * <p>
+ * 기동이 끝나면 계산하고 querydsl.estimated-count.refresh-interval 마다 다시 계산한다. (팀, 나이로 group by 한 번, 테이블 전체를 읽는다)
+ * 그 사이의 변경은 반영하지 않으므로 추정값은 최대 refresh-interval 만큼 오래된 값이다.
+ * <ul>
+ *     <li>username 조건(일치, 앞부분, 부분 문자열)은 추정하지 않는다. 일치는 선택도가 높아 정확한 count 가 싸고, 나머지는 분포를 모른다.</li>
+ *     <li>팀 조건이 있으면 그 팀들의 나이 히스토그램으로 세고, 없을 때만 전체 히스토그램을 쓴다. (팀과 나이가 독립이라고 가정하지 않는다)</li>
+ *     <li>추정값이 querydsl.estimated-count.exact-threshold 보다 작으면 추정하지 않는다.</li>
+ * </ul>
+ */
+@Slf4j
+@Component
+public class MemberStatistics {
+
+    private final EntityManager em;
+    private final TransactionTemplate readOnly;
+    private final TeamNameDictionary teamNameDictionary;
+    private final TaskScheduler taskScheduler;
+    private final QuerydslProperties.EstimatedCount properties;
+    private final Counter estimated;
+    private final Counter exact;
+    private volatile Snapshot snapshot; // 계산 전에는 null
+
+    public MemberStatistics(EntityManager em, PlatformTransactionManager transactionManager, TeamNameDictionary teamNameDictionary,
+                            TaskScheduler taskScheduler, QuerydslProperties properties, MeterRegistry registry) {
+        this.em = em;
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+        this.teamNameDictionary = teamNameDictionary;
+        this.taskScheduler = taskScheduler;
+        this.properties = properties.getEstimatedCount();
+        this.estimated = Counter.builder("repository.query.count.estimate").tag("result", "estimated").register(registry);
+        this.exact = Counter.builder("repository.query.count.estimate").tag("result", "exact").register(registry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        taskScheduler.scheduleWithFixedDelay(this::refreshQuietly, properties.getRefreshInterval());
+    }
+
+    /**
+     * 통계를 다시 계산한다.
+     */
+    public void refresh() {
+        snapshot = readOnly.execute(status -> {
+            List<Object[]> rows = em.createQuery(
+                    "select m.team.id, m.age, count(m) from Member m group by m.team.id, m.age", Object[].class)
+                .getResultList();
+            return new Snapshot(rows);
+        });
+    }
+
+    private void refreshQuietly() {
+        try {
+            refresh();
+        } catch (RuntimeException e) {
+            log.warn("Failed to refresh member statistics. Keeping the previous snapshot.", e);
+        }
+    }
+
+    /**
+     * @return 추정 건수. 추정할 수 없거나 exact-threshold 보다 작으면 empty (정확한 count 를 실행한다)
+     */
+    public OptionalLong estimate(MemberSearchCondition condition) {
+        Snapshot current = snapshot;
+        OptionalLong estimate = current == null || !Transactions.isReadOnlyOrAbsent() ? OptionalLong.empty() : current.estimate(condition);
+        if (estimate.isEmpty() || estimate.getAsLong() < properties.getExactThreshold()) {
+            exact.increment();
+            return OptionalLong.empty();
+        }
+        estimated.increment();
+        return estimate;
+    }
+
+    public long total() {
+        Snapshot current = snapshot;
+        return current == null ? 0 : current.total;
+    }
+
+    private class Snapshot {
+
+        private final long total;
+        private final Histogram all;
+        private final Map<Long, Histogram> byTeam = new HashMap<>(); // 팀 없는 회원은 key null
+
+        /**
+         * @param rows (team id, age, 회원 수)
+         */
+        private Snapshot(List<Object[]> rows) {
+            Map<Long, SortedMap<Integer, Long>> teamAges = new HashMap<>();
+            SortedMap<Integer, Long> allAges = new TreeMap<>();
+            for (Object[] row : rows) {
+                teamAges.computeIfAbsent((Long) row[0], id -> new TreeMap<>()).merge((Integer) row[1], (Long) row[2], Long::sum);
+                allAges.merge((Integer) row[1], (Long) row[2], Long::sum);
+            }
+            teamAges.forEach((teamId, ages) -> byTeam.put(teamId, new Histogram(ages)));
+            this.all = new Histogram(allAges);
+            this.total = all.count(null, null);
+        }
+
+        private OptionalLong estimate(MemberSearchCondition condition) {
+            if (hasText(condition.getUsername()) || hasText(condition.getUsernamePrefix()) || hasText(condition.getUsernameContains())) {
+                return OptionalLong.empty();
+            }
+            if (!hasText(condition.getTeamName())) {
+                return OptionalLong.of(all.count(condition.getAgeGoe(), condition.getAgeLoe()));
+            }
+            if (!teamNameDictionary.isAvailable()) {
+                return OptionalLong.empty();
+            }
+            return OptionalLong.of(teamNameDictionary.idsOf(condition.getTeamName()).stream()
+                .map(byTeam::get)
+                .filter(Objects::nonNull)
+                .mapToLong(histogram -> histogram.count(condition.getAgeGoe(), condition.getAgeLoe()))
+                .sum());
+        }
+    }
+
+    /**
+     * 나이별 누적 회원 수
+     */
+    private static class Histogram {
+
+        private final int[] ages; // 오름차순
+        private final long[] cumulative; // cumulative[i] = ages[0..i] 의 회원 수 합
+
+        private Histogram(SortedMap<Integer, Long> counts) {
+            this.ages = new int[counts.size()];
+            this.cumulative = new long[counts.size()];
+            int i = 0;
+            long running = 0;
+            for (Map.Entry<Integer, Long> entry : counts.entrySet()) {
+                ages[i] = entry.getKey();
+                running += entry.getValue();
+                cumulative[i++] = running;
+            }
+        }
+
+        /**
+         * [ageGoe, ageLoe] 범위의 회원 수. null 이면 한쪽이 열려 있다.
+         */
+        private long count(Integer ageGoe, Integer ageLoe) {
+            int from = ageGoe == null ? 0 : lowerBound(ageGoe);
+            int to = ageLoe == null || ageLoe == Integer.MAX_VALUE ? ages.length : lowerBound(ageLoe + 1); // exclusive
+            if (from >= to) {
+                return 0;
+            }
+            return cumulative[to - 1] - (from == 0 ? 0 : cumulative[from - 1]);
+        }
+
+        /**
+         * age 이상인 첫 위치
+         */
+        private int lowerBound(int age) {
+            int index = Arrays.binarySearch(ages, age);
+            return index >= 0 ? index : -index - 1;
+        }
+    }
+}
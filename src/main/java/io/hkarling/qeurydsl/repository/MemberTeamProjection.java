@@ -0,0 +1,51 @@
+package io.hkarling.qeurydsl.repository;
+
+import static io.hkarling.qeurydsl.entity.QMember.member;
+import static io.hkarling.qeurydsl.entity.QTeam.team;
+
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.Projections;
+import com.querydsl.core.types.dsl.BooleanExpression;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import io.hkarling.qeurydsl.dto.MemberTeamDTO;
+import io.hkarling.qeurydsl.dto.QMemberTeamDTO;
+
+/**
+ * Querydsl 로 MemberTeamDTO 를 조회할 때의 select/from 과 팀 이름 조건.
+ * 팀 이름 사전을 쓰면(useDictionary) team 을 join 하지 않고 FK(team_id)만 읽는다. 이때 teamName 은 조회 후 사전에서 채운다.
+ * 사전 사용 여부는 한 쿼리 안에서 같아야 하므로 호출하는 쪽에서 한 번만 정한다.
+ */
+final class MemberTeamProjection {
+
+    private static final Expression<MemberTeamDTO> JOINED = new QMemberTeamDTO(
+        member.id.as("memberId"),
+        member.username,
+        member.age,
+        team.id.as("teamId"),
+        team.name.as("teamName"));
+    private static final Expression<MemberTeamDTO> WITHOUT_TEAM = Projections.constructor(MemberTeamDTO.class,
+        member.id,
+        member.username,
+        member.age,
+        member.team.id);
+
+    private MemberTeamProjection() {
+    }
+
+    static JPAQuery<MemberTeamDTO> selectFrom(JPAQueryFactory queryFactory, boolean useDictionary) {
+        JPAQuery<MemberTeamDTO> query = queryFactory.select(useDictionary ? WITHOUT_TEAM : JOINED).from(member);
+        return useDictionary ? query : query.leftJoin(member.team, team);
+    }
+
+    /**
+     * 사전을 쓰면 {@code member.team.id in (...)}, 아니면 join 한 team 의 이름으로 거른다.
+     * 엔티티 조회처럼 team 을 명시적으로 join 하지 않는 쿼리는 joined = false 로 호출한다. (member.team.name 경로로 필요할 때만 join)
+     */
+    static BooleanExpression teamNameEq(String teamName, boolean useDictionary, boolean joined, TeamNameDictionary dictionary) {
+        if (useDictionary) {
+            return member.team.id.in(dictionary.idsOf(teamName)); // 빈 목록이면 Querydsl 이 1 = 2 로 만든다.
+        }
+        return joined ? team.name.eq(teamName) : member.team.name.eq(teamName);
+    }
+}
@@ -0,0 +1,244 @@
+package io.hkarling.qeurydsl.repository;
+
+import io.hkarling.qeurydsl.config.QuerydslProperties;
+import io.hkarling.qeurydsl.entity.Member;
+import io.hkarling.qeurydsl.entity.Team;
+import io.hkarling.qeurydsl.event.EntityChangedEvent;
+import java.util.Objects;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceUnitUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * member_team_view 읽기 모델(MemberTeamView)을 Member/Team 변경과 같은 트랜잭션에서 고친다.
+ * <p>
+ * Hibernate 가 flush 하면서 발행하는 {@link EntityChangedEvent} 를 {@code @EventListener} 로 받아 같은 커넥션에서 JDBC 로 반영하므로
+ * 롤백되면 읽기 모델도 함께 롤백된다. 팀 이름은 이벤트의 Team 엔티티에서 읽고, 로딩되지 않은 프록시면 team 테이블에서 읽는다.
+ * BULK 이벤트는 id 범위의 행을 member/team 에서 다시 채우고, 범위가 없으면 전체를 다시 만든다.
+ * <p>
+ * JDBC 로 직접 넣은 데이터(seed)처럼 이벤트가 없는 변경은 {@link #rebuild()} 로 반영한다. (/actuator/readmodel, 기동 시)
+ * <p>
+ * 검색이 읽지 않으면(querydsl.read-model.read=false) 쓰기마다 JDBC 쓰기가 늘어나기만 하므로 기본값은 유지하지 않는다. (maintain=false)
+ */
+@Slf4j
+@Component
+public class MemberTeamReadModel {
+
+    private static final String INSERT =
+        "insert into member_team_view (member_id, username, age, team_id, team_name) values (?, ?, ?, ?, ?)";
+    private static final String UPDATE =
+        "update member_team_view set username = ?, age = ?, team_id = ?, team_name = ? where member_id = ?";
+    private static final String DELETE = "delete from member_team_view where member_id = ?";
+    private static final String RENAME_TEAM = "update member_team_view set team_name = ? where team_id = ?";
+    private static final String DETACH_TEAM = "update member_team_view set team_id = null, team_name = null where team_id = ?";
+    private static final String TEAM_NAME = "select name from team where team_id = ?";
+    private static final String DELETE_ALL = "delete from member_team_view";
+    private static final String DELETE_RANGE = DELETE_ALL + " where member_id >= ? and member_id < ?";
+    private static final String FILL =
+        "insert into member_team_view (member_id, username, age, team_id, team_name)"
+            + " select m.member_id, m.username, m.age, m.team_id, t.name from member m left join team t on t.team_id = m.team_id";
+    private static final String FILL_RANGE = FILL + " where m.member_id >= ? and m.member_id < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PersistenceUnitUtil persistenceUnitUtil;
+    private final TransactionTemplate transactionTemplate;
+    private final QuerydslProperties.ReadModel properties;
+    private final Object gate = new Object(); // rebuild 와 읽기 모델을 고치는 트랜잭션 사이
+    private int maintaining; // 읽기 모델을 고치고 아직 끝나지 않은 트랜잭션 수. gate 로 동기화
+    private boolean rebuilding; // gate 로 동기화
+
+    public MemberTeamReadModel(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory,
+                               PlatformTransactionManager transactionManager, QuerydslProperties properties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.persistenceUnitUtil = entityManagerFactory.getPersistenceUnitUtil();
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.properties = properties.getReadModel();
+    }
+
+    /**
+     * 검색이 읽기 모델을 읽는지. 같은 트랜잭션에서 반영되므로 쓰기 트랜잭션 안에서도 읽을 수 있다.
+     */
+    public boolean isReadable() {
+        return properties.isMaintain() && properties.isRead();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        if (properties.isMaintain() && properties.isRebuildOnStartup()) {
+            long started = System.currentTimeMillis();
+            long rows = rebuild();
+            log.info("Rebuilt member_team_view with {} rows in {} ms", rows, System.currentTimeMillis() - started);
+        }
+    }
+
+    /**
+     * 전체를 지우고 member/team 에서 다시 채운다. 한 트랜잭션이므로 다른 트랜잭션에는 commit 전까지 이전 내용이 보인다.
+     * <p>
+     * 읽기 모델을 고친 트랜잭션이 끝나지 않은 채로 다시 채우면, 그 트랜잭션이 넣은 행과 같은 member_id 를 넣다가
+     * 기본 키 위반으로 실패한다. 그래서 진행 중인 그 트랜잭션들이 끝날 때까지 기다리고,
+     * 다시 채우는 동안에는 읽기 모델을 고치려는 트랜잭션을 기다리게 한다. (호출한 트랜잭션 자신은 제외)
+     * 기다리는 동안 쓰기가 멈추므로 쓰기가 적을 때 실행한다.
+     *
+     * @return 채운 행 수
+     */
+    public long rebuild() {
+        boolean maintainingHere = TransactionSynchronizationManager.hasResource(this);
+        synchronized (gate) {
+            while (rebuilding) {
+                if (maintainingHere) { // 다른 rebuild 가 이 트랜잭션이 끝나기를 기다리고 있다
+                    throw new IllegalStateException("member_team_view is being rebuilt by another thread");
+                }
+                await();
+            }
+            rebuilding = true;
+            try {
+                while (maintaining > (maintainingHere ? 1 : 0)) {
+                    await();
+                }
+            } catch (RuntimeException e) {
+                rebuilding = false;
+                gate.notifyAll();
+                throw e;
+            }
+        }
+        try {
+            Integer rows = transactionTemplate.execute(status -> {
+                jdbcTemplate.update(DELETE_ALL);
+                return jdbcTemplate.update(FILL);
+            });
+            return rows == null ? 0 : rows;
+        } finally {
+            synchronized (gate) {
+                rebuilding = false;
+                gate.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * 이 트랜잭션이 끝날 때까지 rebuild 가 시작하지 않도록 한다. 트랜잭션마다 한 번만 센다.
+     * rebuild 중이면 끝날 때까지 기다린다.
+     */
+    private void enterMaintaining() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive() || TransactionSynchronizationManager.hasResource(this)) {
+            return;
+        }
+        synchronized (gate) {
+            while (rebuilding) {
+                await();
+            }
+            maintaining++;
+        }
+        TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(MemberTeamReadModel.this);
+                synchronized (gate) {
+                    maintaining--;
+                    gate.notifyAll();
+                }
+            }
+        });
+    }
+
+    private void await() {
+        try {
+            gate.wait();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for member_team_view maintenance", e);
+        }
+    }
+
+    @EventListener // 같은 트랜잭션 (flush 시점)
+    public void onEntityChanged(EntityChangedEvent event) {
+        if (!properties.isMaintain() || !(event.isAbout(Member.class) || event.isAbout(Team.class))) {
+            return;
+        }
+        enterMaintaining();
+        if (event.isAbout(Member.class)) {
+            onMemberChanged(event);
+        } else {
+            onTeamChanged(event);
+        }
+    }
+
+    private void onMemberChanged(EntityChangedEvent event) {
+        switch (event.getChangeType()) {
+            case INSERT:
+                Object team = event.getNewValue("team");
+                jdbcTemplate.update(INSERT, event.getId(), event.getNewValue("username"), event.getNewValue("age"),
+                    teamId(team), teamName(team));
+                break;
+            case UPDATE:
+                Object newTeam = event.getNewValue("team");
+                jdbcTemplate.update(UPDATE, event.getNewValue("username"), event.getNewValue("age"),
+                    teamId(newTeam), teamName(newTeam), event.getId());
+                break;
+            case DELETE:
+                jdbcTemplate.update(DELETE, event.getId());
+                break;
+            case BULK:
+                refill(event);
+                break;
+        }
+    }
+
+    private void onTeamChanged(EntityChangedEvent event) {
+        switch (event.getChangeType()) {
+            case UPDATE:
+                if (!Objects.equals(event.getOldValue("name"), event.getNewValue("name"))) {
+                    jdbcTemplate.update(RENAME_TEAM, event.getNewValue("name"), event.getId());
+                }
+                break;
+            case DELETE:
+                jdbcTemplate.update(DETACH_TEAM, event.getId());
+                break;
+            case BULK:
+                refill(event);
+                break;
+            default:
+                break; // 새 팀에는 아직 회원이 없다.
+        }
+    }
+
+    /**
+     * BULK 이벤트는 호출한 트랜잭션(MemberBulkOperations 의 chunk)에서 받으므로 그 트랜잭션에서 다시 채운다.
+     */
+    private void refill(EntityChangedEvent event) {
+        if (event.isAbout(Member.class) && event.hasIdRange()) {
+            jdbcTemplate.update(DELETE_RANGE, event.getIdFrom(), event.getIdTo());
+            jdbcTemplate.update(FILL_RANGE, event.getIdFrom(), event.getIdTo());
+        } else {
+            jdbcTemplate.update(DELETE_ALL);
+            jdbcTemplate.update(FILL);
+        }
+    }
+
+    private Object teamId(Object team) {
+        return team == null ? null : persistenceUnitUtil.getIdentifier(team); // 프록시를 초기화하지 않는다.
+    }
+
+    /**
+     * 같은 flush 에서 insert 한 팀은 batch 로 아직 실행되지 않았을 수 있으므로 엔티티에서 읽는다.
+     * 로딩되지 않은 프록시는 이미 DB 에 있는 팀이다.
+     */
+    private String teamName(Object team) {
+        if (team == null) {
+            return null;
+        }
+        if (persistenceUnitUtil.isLoaded(team)) {
+            return ((Team) team).getName();
+        }
+        return jdbcTemplate.queryForObject(TEAM_NAME, String.class, teamId(team));
+    }
+}
@@ -10,14 +10,17 @@ import io.hkarling.qeurydsl.dto.MemberSearchCondition;
 import io.hkarling.qeurydsl.entity.Member;
 import io.hkarling.qeurydsl.entity.QMember;
 import io.hkarling.qeurydsl.entity.QTeam;
+import io.hkarling.qeurydsl.repository.support.FetchPlan;
 import io.hkarling.qeurydsl.repository.support.Querydsl4RepositorySupport;
 import java.util.List;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 @Repository
+@Transactional(readOnly = true) // replica 프로파일에서는 replica 에서 읽는다.
 public class MemberTestRepository extends Querydsl4RepositorySupport {
 
     public MemberTestRepository() {
@@ -38,23 +41,47 @@ public class MemberTestRepository extends Querydsl4RepositorySupport {
     public Page<Member> searchPageByApplyPage(MemberSearchCondition condition, Pageable pageable) {
 
         JPAQuery<Member> query = selectFrom(member)
-            .leftJoin(member.team, team)
             .where(
                 usernameEq(condition.getUsername()),
+                usernameStartsWith(condition.getUsernamePrefix()),
+                usernameContains(condition.getUsernameContains()),
                 teamNameEq(condition.getTeamName()),
                 ageGoe(condition.getAgeGoe()),
                 ageLoe(condition.getAgeLoe())
             );
+        JPAQuery<Long> countQuery = countQuery(query); // applyPagination 이 query 에 offset/limit 을 추가하기 전에 만든다.
         List<Member> content = getQuerydsl().applyPagination(pageable, query).fetch();
-        return PageableExecutionUtils.getPage(content, pageable, query::fetchCount);
+        return PageableExecutionUtils.getPage(content, pageable, countQuery::fetchOne);
     }
 
     public Page<Member> applyPagination(MemberSearchCondition condition, Pageable pageable) {
-        return applyPagination(pageable, query -> query
+        return applyPagination(condition, pageable, FetchPlan.none());
+    }
+
+    /**
+     * @param fetchPlan 함께 읽을 연관관계. count 쿼리에는 적용되지 않는다.
+     *                  FetchPlan.fetchJoin(member.team) 이면 팀 이름 조건은 fetch join 한 team 으로 건다. (join 한 번)
+     *                  이때 count 쿼리에는 그 join 이 없으므로 member.team.name 경로로 따로 만든다.
+     */
+    public Page<Member> applyPagination(MemberSearchCondition condition, Pageable pageable, FetchPlan fetchPlan) {
+        boolean teamJoined = fetchPlan.fetchJoins(member.team);
+        return applyPagination(pageable, fetchPlan, query -> query
             .selectFrom(member)
             .where(
                 usernameEq(condition.getUsername()),
-                teamNameEq(condition.getTeamName()),
+                usernameStartsWith(condition.getUsernamePrefix()),
+                usernameContains(condition.getUsernameContains()),
+                teamNameEq(condition.getTeamName(), teamJoined),
+                ageGoe(condition.getAgeGoe()),
+                ageLoe(condition.getAgeLoe())
+            ), countQuery -> countQuery
+            .select(member.id)
+            .from(member)
+            .where(
+                usernameEq(condition.getUsername()),
+                usernameStartsWith(condition.getUsernamePrefix()),
+                usernameContains(condition.getUsernameContains()),
+                teamNameEq(condition.getTeamName(), false),
                 ageGoe(condition.getAgeGoe()),
                 ageLoe(condition.getAgeLoe())
             ));
@@ -63,18 +90,20 @@ public class MemberTestRepository extends Querydsl4RepositorySupport {
     public Page<Member> applyPagination2(MemberSearchCondition condition, Pageable pageable) {
         return applyPagination(pageable, query -> query
             .selectFrom(member)
-            .leftJoin(member.team, team)
             .where(
                 usernameEq(condition.getUsername()),
+                usernameStartsWith(condition.getUsernamePrefix()),
+                usernameContains(condition.getUsernameContains()),
                 teamNameEq(condition.getTeamName()),
                 ageGoe(condition.getAgeGoe()),
                 ageLoe(condition.getAgeLoe())
             ), countQuery -> countQuery
             .select(member.id)
             .from(member)
-            .leftJoin(member.team, team)
             .where(
                 usernameEq(condition.getUsername()),
+                usernameStartsWith(condition.getUsernamePrefix()),
+                usernameContains(condition.getUsernameContains()),
                 teamNameEq(condition.getTeamName()),
                 ageGoe(condition.getAgeGoe()),
                 ageLoe(condition.getAgeLoe())
@@ -85,8 +114,29 @@ public class MemberTestRepository extends Querydsl4RepositorySupport {
         return hasText(username) ? member.username.eq(username) : null;
     }
 
+    private BooleanExpression usernameStartsWith(String usernamePrefix) {
+        return hasText(usernamePrefix) ? member.username.startsWith(usernamePrefix) : null;
+    }
+
+    private BooleanExpression usernameContains(String usernameContains) {
+        return hasText(usernameContains) ? member.username.contains(usernameContains) : null;
+    }
+
+    /**
+     * team 을 join 하지 않은 쿼리이므로 member.team.name 경로로 조건이 있을 때만 join 한다.
+     */
     private BooleanExpression teamNameEq(String teamName) {
-        return hasText(teamName) ? team.name.eq(teamName) : null;
+        return teamNameEq(teamName, false);
+    }
+
+    /**
+     * @param joined team 을 alias team 으로 join(fetch join) 한 쿼리이면 true. 그 team 의 이름으로 거른다.
+     */
+    private BooleanExpression teamNameEq(String teamName, boolean joined) {
+        if (!hasText(teamName)) {
+            return null;
+        }
+        return joined ? team.name.eq(teamName) : member.team.name.eq(teamName);
     }
 
     private BooleanExpression ageGoe(Integer ageGoe) {
@@ -0,0 +1,130 @@
+package io.hkarling.qeurydsl.repository;
+
+import io.hkarling.qeurydsl.dto.MemberTeamDTO;
+import io.hkarling.qeurydsl.entity.Team;
+import io.hkarling.qeurydsl.event.EntityChangedEvent;
+import io.hkarling.qeurydsl.repository.support.Transactions;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import javax.persistence.EntityManager;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * 팀 이름 -> 팀 id 사전. 팀 이름 조건을 team join 없이 {@code member.team.id in (...)} 으로 거르고,
+ * 조회 결과의 teamName 은 이 사전에서 채운다.
+ * <p>
+ * 기동이 끝나면(ApplicationReadyEvent) 전체를 읽고, Team 변경이 commit 되면 반영한다. bulk 연산(BULK 이벤트)이면 전체를 다시 읽는다.
+ * 쓰기 트랜잭션 안에서는 commit 되지 않은 Team 이 사전에 없으므로 {@link #isAvailable()} 이 false 이고, 이때는 join 으로 조회한다.
+ */
+@Component
+public class TeamNameDictionary {
+
+    private final EntityManager em;
+    private final TransactionTemplate readOnly;
+    private volatile Snapshot snapshot; // 읽기 전에는 null
+
+    public TeamNameDictionary(EntityManager em, PlatformTransactionManager transactionManager) {
+        this.em = em;
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+    }
+
+    /**
+     * 전체를 다시 읽는다. JDBC 로 직접 팀을 넣은 경우(seed) 등 이벤트가 없는 변경 이후에 호출한다.
+     * 읽는 동안 들어온 변경 이벤트는 읽기가 끝난 뒤에 적용된다.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void reload() {
+        List<Object[]> rows = readOnly.execute(status -> em.createQuery("select t.id, t.name from Team t", Object[].class)
+            .getResultList());
+        Map<Long, String> names = new HashMap<>(rows.size() * 2);
+        for (Object[] row : rows) {
+            names.put((Long) row[0], (String) row[1]);
+        }
+        snapshot = new Snapshot(names);
+    }
+
+    public boolean isAvailable() {
+        return snapshot != null && Transactions.isReadOnlyOrAbsent();
+    }
+
+    /**
+     * 이름이 같은 팀이 여러 개일 수 있으므로 id 목록을 돌려준다. 없으면 빈 목록.
+     */
+    public List<Long> idsOf(String teamName) {
+        return loaded().idsByName.getOrDefault(teamName, Collections.emptyList());
+    }
+
+    public String nameOf(Long teamId) {
+        return teamId == null ? null : loaded().namesById.get(teamId);
+    }
+
+    public MemberTeamDTO fillTeamName(MemberTeamDTO dto) {
+        dto.setTeamName(nameOf(dto.getTeamId()));
+        return dto;
+    }
+
+    public List<MemberTeamDTO> fillTeamNames(List<MemberTeamDTO> content) {
+        Snapshot current = loaded();
+        for (MemberTeamDTO dto : content) {
+            dto.setTeamName(dto.getTeamId() == null ? null : current.namesById.get(dto.getTeamId()));
+        }
+        return content;
+    }
+
+    public int size() {
+        Snapshot current = snapshot;
+        return current == null ? 0 : current.namesById.size();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onEntityChanged(EntityChangedEvent event) {
+        if (!event.isAbout(Team.class) || snapshot == null) {
+            return; // 아직 읽기 전이면 reload 에서 반영된다.
+        }
+        if (event.getChangeType() == EntityChangedEvent.ChangeType.BULK) {
+            reload(); // 바뀐 팀과 이름을 알 수 없다.
+            return;
+        }
+        Map<Long, String> names = new HashMap<>(snapshot.namesById);
+        if (event.getChangeType() == EntityChangedEvent.ChangeType.DELETE) {
+            names.remove((Long) event.getId());
+        } else {
+            names.put((Long) event.getId(), ((Team) event.getEntity()).getName());
+        }
+        snapshot = new Snapshot(names);
+    }
+
+    private Snapshot loaded() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            throw new IllegalStateException("Team name dictionary is not loaded yet");
+        }
+        return current;
+    }
+
+    /**
+     * 변경마다 새로 만들어 교체한다. 팀 수는 회원 수에 비해 작으므로 복사 비용은 문제가 되지 않는다.
+     */
+    private static class Snapshot {
+
+        private final Map<Long, String> namesById;
+        private final Map<String, List<Long>> idsByName;
+
+        private Snapshot(Map<Long, String> namesById) {
+            Map<String, List<Long>> idsByName = new HashMap<>();
+            namesById.forEach((id, name) -> idsByName.computeIfAbsent(name, key -> new ArrayList<>(1)).add(id));
+            idsByName.replaceAll((name, ids) -> Collections.unmodifiableList(ids));
+            this.namesById = Collections.unmodifiableMap(namesById);
+            this.idsByName = Collections.unmodifiableMap(idsByName);
+        }
+    }
+}
@@ -0,0 +1,342 @@
+package io.hkarling.qeurydsl.repository;
+
+import io.hkarling.qeurydsl.config.QuerydslProperties;
+import io.hkarling.qeurydsl.dto.TeamStatisticsDTO;
+import io.hkarling.qeurydsl.entity.Member;
+import io.hkarling.qeurydsl.entity.Team;
+import io.hkarling.qeurydsl.event.EntityChangedEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.PersistenceUnitUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * 팀별 회원 수, 나이 합/최소/최대와 나이 히스토그램을 메모리에 두고, Member/Team 변경이 commit 되면 고친다.
+ * (QuerydslBasicTest 의 group, aggregation 쿼리를 매번 실행하지 않는다)
+ * <p>
+ * 최소/최대는 히스토그램의 양 끝이므로 회원이 빠져도 다시 계산할 필요가 없다.
+ * 기동이 끝나면 DB 에서 읽고(reconcile) querydsl.team-statistics.reconcile-interval 마다 다시 읽어 맞춘다.
+ * bulk 연산(BULK 이벤트)은 어떤 회원이 바뀌었는지 모르므로 곧바로 다시 읽는다. (여러 chunk 의 요청은 한 번으로 합친다)
+ * <p>
+ * reconcile 은 lock 밖에서 읽고, 읽기 시작한 뒤 도착한 이벤트를 모아 두었다가 읽은 값에 다시 적용한 뒤 바꾼다.
+ * <ul>
+ *     <li>읽는 동안 도착한 이벤트: 같은 snapshot(SERIALIZABLE 읽기 트랜잭션)에서 그 회원들의 나이/팀을 다시 읽어 빼고
+ *     마지막 이벤트의 상태를 더한다. snapshot 에 이미 들어간 변경인지와 상관없이 결과가 같다. (두 번 세지 않는다)</li>
+ *     <li>읽기가 끝난 뒤 도착한 이벤트: snapshot 뒤에 commit 된 변경이므로 그대로 더한다.</li>
+ * </ul>
+ * 그 다음에 비교하므로 drift 는 이벤트 없이 바뀐 데이터만 센다. (commit 뒤 전달이 읽기 시간보다 늦은 이벤트는 예외)
+ */
+@Slf4j
+@Component
+public class TeamStatistics {
+
+    private static final int RESOLVE_BATCH_SIZE = 1000; // in 절 크기
+
+    private final EntityManager em;
+    private final PersistenceUnitUtil persistenceUnitUtil;
+    private final TransactionTemplate snapshot;
+    private final TaskScheduler taskScheduler;
+    private final QuerydslProperties.TeamStatistics properties;
+    private final AtomicBoolean reconcileScheduled = new AtomicBoolean();
+    private final Object reconcileLock = new Object(); // reconcile 끼리만. 이벤트는 기다리지 않는다.
+    private final Counter matched;
+    private final Counter drifted;
+    private Map<Long, Aggregate> teams; // 읽기 전에는 null. this 로 동기화
+    private List<EntityChangedEvent> replay; // reconcile 중에 도착한 이벤트. reconcile 중이 아니면 null. this 로 동기화
+
+    public TeamStatistics(EntityManager em, EntityManagerFactory entityManagerFactory, PlatformTransactionManager transactionManager,
+                          TaskScheduler taskScheduler, QuerydslProperties properties, MeterRegistry registry) {
+        this.em = em;
+        this.persistenceUnitUtil = entityManagerFactory.getPersistenceUnitUtil();
+        this.snapshot = new TransactionTemplate(transactionManager);
+        this.snapshot.setReadOnly(true);
+        this.snapshot.setIsolationLevel(TransactionDefinition.ISOLATION_SERIALIZABLE); // 집계와 회원별 조회가 같은 snapshot 을 본다.
+        this.taskScheduler = taskScheduler;
+        this.properties = properties.getTeamStatistics();
+        this.matched = Counter.builder("team.statistics.reconcile").tag("result", "match").register(registry);
+        this.drifted = Counter.builder("team.statistics.reconcile").tag("result", "drift").register(registry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        taskScheduler.scheduleWithFixedDelay(this::reconcileQuietly, properties.getReconcileInterval());
+    }
+
+    /**
+     * DB 에서 다시 읽어 교체한다.
+     *
+     * @return 메모리의 값과 달랐던 팀 수. 처음 읽을 때는 0
+     */
+    public int reconcile() {
+        synchronized (reconcileLock) {
+            synchronized (this) {
+                replay = new ArrayList<>();
+            }
+            try {
+                int[] resolved = new int[1]; // snapshot 으로 맞춘 이벤트 수. 그 뒤의 이벤트는 그대로 더한다.
+                Map<Long, Aggregate> loaded = snapshot.execute(status -> {
+                    Map<Long, Aggregate> result = load();
+                    List<EntityChangedEvent> arrived;
+                    synchronized (this) {
+                        arrived = new ArrayList<>(replay);
+                    }
+                    resolve(result, arrived);
+                    resolved[0] = arrived.size();
+                    return result;
+                });
+                return swap(loaded, resolved[0]);
+            } finally {
+                synchronized (this) {
+                    replay = null;
+                }
+            }
+        }
+    }
+
+    private Map<Long, Aggregate> load() {
+        Map<Long, Aggregate> result = new HashMap<>();
+        for (Object[] row : em.createQuery("select t.id, t.name from Team t", Object[].class).getResultList()) {
+            result.put((Long) row[0], new Aggregate((String) row[1]));
+        }
+        List<Object[]> rows = em.createQuery(
+                "select m.team.id, m.age, count(m) from Member m where m.team is not null group by m.team.id, m.age", Object[].class)
+            .getResultList();
+        for (Object[] row : rows) {
+            result.computeIfAbsent((Long) row[0], id -> new Aggregate(null)).add((Integer) row[1], (Long) row[2]);
+        }
+        return result;
+    }
+
+    /**
+     * 읽는 동안 도착한 이벤트의 회원/팀은 snapshot 의 값을 빼고 마지막 이벤트의 상태로 바꾼다.
+     * (snapshot 에 이미 들어간 변경이어도, 아직 안 들어간 변경이어도 결과가 같다)
+     */
+    private void resolve(Map<Long, Aggregate> loaded, List<EntityChangedEvent> arrived) {
+        Map<Long, EntityChangedEvent> lastMembers = new LinkedHashMap<>();
+        Map<Long, EntityChangedEvent> lastTeams = new LinkedHashMap<>();
+        for (EntityChangedEvent event : arrived) {
+            if (event.getChangeType() != EntityChangedEvent.ChangeType.BULK) { // BULK 은 예약된 reconcile 이 다시 읽는다.
+                (event.isAbout(Team.class) ? lastTeams : lastMembers).put((Long) event.getId(), event);
+            }
+        }
+        List<Long> ids = new ArrayList<>(lastMembers.keySet());
+        for (int from = 0; from < ids.size(); from += RESOLVE_BATCH_SIZE) {
+            List<Object[]> rows = em.createQuery("select m.id, t.id, m.age from Member m left join m.team t where m.id in :ids", Object[].class)
+                .setParameter("ids", ids.subList(from, Math.min(from + RESOLVE_BATCH_SIZE, ids.size())))
+                .getResultList();
+            for (Object[] row : rows) {
+                if (row[1] != null) {
+                    loaded.computeIfAbsent((Long) row[1], id -> new Aggregate(null)).add((Integer) row[2], -1);
+                }
+            }
+        }
+        for (EntityChangedEvent event : lastMembers.values()) {
+            if (event.getChangeType() != EntityChangedEvent.ChangeType.DELETE) {
+                aggregateOf(loaded, event.getNewValue("team")).ifPresent(aggregate -> aggregate.add((Integer) event.getNewValue("age"), 1));
+            }
+        }
+        lastTeams.values().forEach(event -> applyTeam(loaded, event));
+    }
+
+    /**
+     * 읽기가 끝난 뒤 도착한 이벤트를 더하고, 지금 값과 비교한 뒤 바꾼다.
+     */
+    private synchronized int swap(Map<Long, Aggregate> loaded, int resolved) {
+        boolean incomplete = replay.subList(0, resolved).stream().anyMatch(event -> event.getChangeType() == EntityChangedEvent.ChangeType.BULK);
+        for (EntityChangedEvent event : replay.subList(resolved, replay.size())) {
+            incomplete |= !apply(loaded, event);
+        }
+        if (incomplete && teams == null) {
+            scheduleReconcile(); // 읽은 뒤라면 이벤트를 받을 때 이미 예약했다.
+        }
+        int drift = 0;
+        if (teams != null) {
+            for (Long teamId : union(teams.keySet(), loaded.keySet())) {
+                if (!Objects.equals(teams.get(teamId), loaded.get(teamId))) {
+                    drift++;
+                }
+            }
+            (drift == 0 ? matched : drifted).increment();
+        }
+        teams = loaded;
+        return drift;
+    }
+
+    private void reconcileQuietly() {
+        reconcileScheduled.set(false);
+        try {
+            int drift = reconcile();
+            if (drift > 0) {
+                log.info("Team statistics drifted for {} teams and were reconciled", drift);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to reconcile team statistics. Keeping the in-memory values.", e);
+        }
+    }
+
+    /**
+     * @return 팀 이름 순. 아직 읽기 전이면 빈 목록
+     */
+    public synchronized List<TeamStatisticsDTO> findAll() {
+        if (teams == null) {
+            return Collections.emptyList();
+        }
+        List<TeamStatisticsDTO> result = new ArrayList<>(teams.size());
+        teams.forEach((teamId, aggregate) -> result.add(aggregate.toDTO(teamId)));
+        result.sort(Comparator.comparing(TeamStatisticsDTO::getTeamName, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(TeamStatisticsDTO::getTeamId));
+        return result;
+    }
+
+    public synchronized Optional<TeamStatisticsDTO> find(Long teamId) {
+        Aggregate aggregate = teams == null ? null : teams.get(teamId);
+        return aggregate == null ? Optional.empty() : Optional.of(aggregate.toDTO(teamId));
+    }
+
+    /**
+     * reconcile 중이면 이벤트를 모아 두고 지금 값에도 적용한다. reconcile 쿼리를 기다리지 않는다.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onEntityChanged(EntityChangedEvent event) {
+        if (!(event.isAbout(Member.class) || event.isAbout(Team.class))) {
+            return;
+        }
+        if (replay != null) {
+            replay.add(event);
+        }
+        if (teams == null) {
+            return; // 아직 읽기 전이면 reconcile 에서 반영된다.
+        }
+        if (!apply(teams, event)) {
+            scheduleReconcile();
+        }
+    }
+
+    /**
+     * @return bulk 연산이나 이전 상태를 모르는 update (detached 엔티티 update 등) 이면 적용하지 않고 false
+     */
+    private boolean apply(Map<Long, Aggregate> target, EntityChangedEvent event) {
+        if (event.getChangeType() == EntityChangedEvent.ChangeType.BULK) {
+            return false;
+        }
+        if (event.isAbout(Team.class)) {
+            applyTeam(target, event);
+            return true;
+        }
+        if (event.getChangeType() == EntityChangedEvent.ChangeType.UPDATE && event.getOldState().isEmpty()) {
+            return false;
+        }
+        // UPDATE 는 나이나 팀이 바뀌지 않았어도 빼고 다시 더하면 그대로다.
+        if (event.getChangeType() != EntityChangedEvent.ChangeType.INSERT) {
+            aggregateOf(target, event.getOldValue("team")).ifPresent(aggregate -> aggregate.add((Integer) event.getOldValue("age"), -1));
+        }
+        if (event.getChangeType() != EntityChangedEvent.ChangeType.DELETE) {
+            aggregateOf(target, event.getNewValue("team")).ifPresent(aggregate -> aggregate.add((Integer) event.getNewValue("age"), 1));
+        }
+        return true;
+    }
+
+    private void scheduleReconcile() {
+        if (reconcileScheduled.compareAndSet(false, true)) {
+            taskScheduler.schedule(this::reconcileQuietly, Instant.now());
+        }
+    }
+
+    private static void applyTeam(Map<Long, Aggregate> target, EntityChangedEvent event) {
+        Long teamId = (Long) event.getId();
+        if (event.getChangeType() == EntityChangedEvent.ChangeType.DELETE) {
+            target.remove(teamId);
+        } else {
+            target.computeIfAbsent(teamId, id -> new Aggregate(null)).name = (String) event.getNewValue("name");
+        }
+    }
+
+    /**
+     * 팀이 없는 회원은 집계하지 않는다. 모르는 팀(읽은 뒤 생긴 팀의 이벤트가 늦게 온 경우)은 이름 없이 만든다.
+     */
+    private Optional<Aggregate> aggregateOf(Map<Long, Aggregate> target, Object team) {
+        if (team == null) {
+            return Optional.empty();
+        }
+        Long teamId = (Long) persistenceUnitUtil.getIdentifier(team); // 프록시를 초기화하지 않는다.
+        return Optional.of(target.computeIfAbsent(teamId, id -> new Aggregate(null)));
+    }
+
+    private static List<Long> union(Set<Long> a, Set<Long> b) {
+        List<Long> ids = new ArrayList<>(a);
+        for (Long id : b) {
+            if (!a.contains(id)) {
+                ids.add(id);
+            }
+        }
+        return ids;
+    }
+
+    private static class Aggregate {
+
+        private String name;
+        private long count;
+        private long sum;
+        private final TreeMap<Integer, Long> ages = new TreeMap<>();
+
+        private Aggregate(String name) {
+            this.name = name;
+        }
+
+        private void add(int age, long members) {
+            count += members;
+            sum += (long) age * members;
+            ages.merge(age, members, Long::sum);
+            if (ages.get(age) <= 0) {
+                ages.remove(age);
+            }
+        }
+
+        private TeamStatisticsDTO toDTO(Long teamId) {
+            return new TeamStatisticsDTO(teamId, name, count, sum,
+                ages.isEmpty() ? null : ages.firstKey(),
+                ages.isEmpty() ? null : ages.lastKey(),
+                Collections.unmodifiableSortedMap(new TreeMap<>(ages)));
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Aggregate)) {
+                return false;
+            }
+            Aggregate that = (Aggregate) o;
+            return count == that.count && sum == that.sum && Objects.equals(name, that.name) && ages.equals(that.ages);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(name, count, sum, ages);
+        }
+    }
+}
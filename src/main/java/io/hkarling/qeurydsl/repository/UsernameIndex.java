@@ -0,0 +1,539 @@
+package io.hkarling.qeurydsl.repository;
+
+import static io.hkarling.qeurydsl.entity.QMember.member;
+import static org.springframework.util.StringUtils.hasText;
+
+import com.querydsl.core.types.dsl.BooleanExpression;
+import io.hkarling.qeurydsl.config.QuerydslProperties;
+import io.hkarling.qeurydsl.dto.MemberSearchCondition;
+import io.hkarling.qeurydsl.entity.Member;
+import io.hkarling.qeurydsl.event.EntityChangedEvent;
+import io.hkarling.qeurydsl.repository.support.Transactions;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+import javax.persistence.EntityManager;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * username 앞부분(usernamePrefix), 부분 문자열(usernameContains) 검색용 메모리 색인.
+ * 조건에 맞을 수 있는 회원 id 후보를 찾아 {@code m.id in (...)} 로 조회하므로 {@code like '%x%'} 로 테이블 전체를 읽지 않는다.
+ * <ul>
+ *     <li>앞부분: username 정렬 맵의 범위 조회</li>
+ *     <li>부분 문자열: 3-gram -> id 목록. 검색어의 3-gram id 목록을 교집합한다. 두 글자 이하 검색어는 그 글자를 포함하는 3-gram 의 합집합</li>
+ * </ul>
+ * 후보에는 조건에 맞지 않는 id 가 섞일 수 있으므로 조회할 때 like 조건도 함께 건다. (id 로 찾은 row 만 비교한다)
+ * 후보가 querydsl.username-index.max-candidates 보다 많으면 색인을 쓰지 않고 like 로만 조회한다.
+ * <p>
+ * 기동이 끝나면(ApplicationReadyEvent) 전체를 읽고, Member 변경이 commit 되면 반영한다.
+ * 다시 읽을 때는 lock 밖에서 새 색인을 만들고, 그동안 도착한 이벤트를 모아 두었다가 새 색인에 다시 적용한 뒤 바꾼다.
+ * (commit 한 쓰기 스레드의 이벤트 처리는 테이블 전체 읽기를 기다리지 않는다)
+ * 쓰기 트랜잭션 안에서는 commit 되지 않은 회원이 색인에 없으므로 사용하지 않는다. (TeamNameDictionary 와 같다)
+ * bulk 연산(BULK 이벤트)은 username 을 바꾸지 않으므로 반영하지 않는다. 삭제된 회원의 id 가 남아도 조회 결과에는 나오지 않는다.
+ * <p>
+ * 후보 id 는 조회 조건으로 쓰이므로 색인에 없는 회원은 결과에서 빠진다. 이벤트 없이 바뀐 username
+ * (JPQL/native bulk update, 다른 인스턴스의 변경)은 색인에 없으므로 다음 reconcile 까지 결과가 불완전할 수 있다.
+ * querydsl.username-index.reconcile-interval 마다 다시 만들어 비교하고, 다르면(drift) 새 색인으로 바꾸되
+ * 다음 reconcile 에서 일치할 때까지 색인을 쓰지 않고 like 로만 조회한다. 항상 정확해야 하면 enabled = false 로 둔다.
+ * <ul>
+ *     <li>repository.username.index.reconcile (result=match|drift)</li>
+ *     <li>repository.username.index.fresh : 색인을 쓰는 중이면 1</li>
+ * </ul>
+ */
+@Slf4j
+@Component
+public class UsernameIndex {
+
+    static final int GRAM = 3;
+
+    private final EntityManager em;
+    private final TransactionTemplate readOnly;
+    private final TaskScheduler taskScheduler;
+    private final QuerydslProperties.UsernameIndex properties;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock(); // 변경(이벤트)과 조회 사이. 다시 읽을 때는 새 색인으로 바꾼다.
+    private final Object rebuildLock = new Object(); // 다시 읽기끼리만. 이벤트는 기다리지 않는다.
+    private final Timer buildTimer;
+    private final Counter indexed;
+    private final Counter fallback;
+    private final Counter matched;
+    private final Counter drifted;
+    private volatile Index index; // 읽기 전에는 null
+    private volatile boolean fresh; // false 이면 색인이 있어도 like 로만 조회한다. (reconcile 에서 drift)
+    private List<EntityChangedEvent> replay; // 다시 읽는 동안 도착한 이벤트. 읽는 중이 아니면 null. this 로 동기화
+
+    public UsernameIndex(EntityManager em, PlatformTransactionManager transactionManager, TaskScheduler taskScheduler,
+                         QuerydslProperties properties, MeterRegistry registry) {
+        this.em = em;
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+        this.taskScheduler = taskScheduler;
+        this.properties = properties.getUsernameIndex();
+        this.buildTimer = Timer.builder("repository.username.index.build")
+            .description("Time to read all usernames and build the index")
+            .register(registry);
+        this.indexed = Counter.builder("repository.username.index.lookup").tag("result", "index").register(registry);
+        this.fallback = Counter.builder("repository.username.index.lookup").tag("result", "like").register(registry);
+        this.matched = Counter.builder("repository.username.index.reconcile").tag("result", "match").register(registry);
+        this.drifted = Counter.builder("repository.username.index.reconcile").tag("result", "drift").register(registry);
+        Gauge.builder("repository.username.index.fresh", this, usernameIndex -> usernameIndex.isFresh() ? 1 : 0)
+            .description("1 while the username index is used for lookups")
+            .register(registry);
+        Gauge.builder("repository.username.index.memory", this, UsernameIndex::estimatedBytes)
+            .description("Estimated heap used by the username index")
+            .baseUnit("bytes")
+            .register(registry);
+        Gauge.builder("repository.username.index.size", this, UsernameIndex::size)
+            .description("Distinct usernames in the index")
+            .register(registry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        reload();
+        taskScheduler.scheduleWithFixedDelay(this::reconcileQuietly, Instant.now().plus(properties.getReconcileInterval()),
+            properties.getReconcileInterval());
+    }
+
+    /**
+     * 전체를 다시 읽는다. JDBC 로 직접 회원을 넣은 경우(seed) 등 이벤트가 없는 변경 이후에 호출한다.
+     * 읽는 동안 들어온 변경 이벤트는 새 색인에 다시 적용한다. (같은 변경이 두 번 적용되어도 결과가 같다)
+     */
+    public void reload() {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        synchronized (rebuildLock) {
+            Index built = buildReplaying();
+            synchronized (this) {
+                replayInto(built);
+                index = built;
+                fresh = true;
+            }
+        }
+    }
+
+    /**
+     * 다시 읽어서 지금 색인과 비교하고 교체한다. 다르면 이벤트 없이 바뀐 회원이 있다는 뜻이므로
+     * 다음 reconcile 에서 일치할 때까지 색인을 쓰지 않는다.
+     * 비교는 읽는 동안 도착한 이벤트를 다시 적용한 뒤 (회원 수, checksum) 으로 한다.
+     * commit 됐지만 이벤트가 아직 전달되지 않은 변경은 drift 로 셀 수 있다. 그래도 다음 reconcile 에서 다시 쓰게 된다.
+     *
+     * @return 일치하면 true. 처음 읽거나 꺼져 있으면 true
+     */
+    public boolean reconcile() {
+        if (!properties.isEnabled()) {
+            return true;
+        }
+        synchronized (rebuildLock) {
+            Index built = buildReplaying();
+            synchronized (this) {
+                replayInto(built);
+                Index current = index;
+                boolean match = current == null || current.sameUsernames(built);
+                if (current != null) {
+                    (match ? matched : drifted).increment();
+                }
+                index = built;
+                fresh = match;
+                return match;
+            }
+        }
+    }
+
+    private void reconcileQuietly() {
+        try {
+            if (!reconcile()) {
+                log.info("Username index drifted from the database. Using like until the next reconcile matches.");
+            }
+        } catch (RuntimeException e) {
+            log.warn("Failed to reconcile the username index. Keeping the current index.", e);
+        }
+    }
+
+    /**
+     * lock 밖에서 읽는다. 이 사이에 도착한 이벤트는 replay 에 모인다. 호출한 쪽이 this 안에서 replayInto 를 부른다.
+     */
+    private Index buildReplaying() {
+        synchronized (this) {
+            replay = new ArrayList<>();
+        }
+        try {
+            return build();
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                replay = null;
+            }
+            throw e;
+        }
+    }
+
+    private void replayInto(Index built) {
+        replay.forEach(event -> apply(built, event));
+        replay = null;
+    }
+
+    private Index build() {
+        return buildTimer.record(() -> readOnly.execute(status -> {
+            Index built = new Index();
+            try (Stream<Object[]> rows = em.createQuery("select m.id, m.username from Member m where m.username is not null", Object[].class)
+                .getResultStream()) {
+                rows.forEach(row -> built.add((Long) row[0], (String) row[1]));
+            }
+            return built;
+        }));
+    }
+
+    public boolean isAvailable() {
+        return isFresh() && Transactions.isReadOnlyOrAbsent();
+    }
+
+    /**
+     * @return 색인을 읽었고 마지막 reconcile 에서 DB 와 일치했으면 true
+     */
+    public boolean isFresh() {
+        return index != null && fresh;
+    }
+
+    /**
+     * usernamePrefix, usernameContains 조건. 색인을 쓸 수 있으면 후보 id 조건을 함께 건다.
+     *
+     * @return 두 조건이 모두 없으면 null
+     */
+    public BooleanExpression usernameMatches(MemberSearchCondition condition) {
+        BooleanExpression prefix = hasText(condition.getUsernamePrefix()) ? member.username.startsWith(condition.getUsernamePrefix()) : null;
+        BooleanExpression contains = hasText(condition.getUsernameContains()) ? member.username.contains(condition.getUsernameContains()) : null;
+        if (prefix == null && contains == null) {
+            return null;
+        }
+        BooleanExpression like = prefix == null ? contains : prefix.and(contains); // and(null) 은 그대로
+        List<Long> candidates = candidates(condition);
+        return candidates == null ? like : member.id.in(candidates).and(like); // 빈 목록이면 Querydsl 이 1 = 2 로 만든다.
+    }
+
+    /**
+     * @return 조건에 맞을 수 있는 회원 id (오름차순). 색인을 쓸 수 없거나 후보가 너무 많으면 null (like 로만 조회한다)
+     */
+    public List<Long> candidates(MemberSearchCondition condition) {
+        String prefix = hasText(condition.getUsernamePrefix()) ? condition.getUsernamePrefix() : null;
+        String contains = hasText(condition.getUsernameContains()) ? condition.getUsernameContains() : null;
+        if (prefix == null && contains == null) {
+            return null;
+        }
+        Index current = index;
+        if (current == null || !fresh || !Transactions.isReadOnlyOrAbsent()) {
+            fallback.increment();
+            return null;
+        }
+        int limit = properties.getMaxCandidates();
+        long[] result;
+        lock.readLock().lock();
+        try {
+            long[] byPrefix = prefix == null ? null : current.prefix(prefix, limit);
+            long[] byContains = contains == null ? null : current.contains(contains, limit);
+            result = byPrefix == null ? byContains : byContains == null ? byPrefix
+                : intersect(byPrefix, byPrefix.length, byContains, byContains.length);
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (result == null) {
+            fallback.increment();
+            return null;
+        }
+        indexed.increment();
+        List<Long> ids = new ArrayList<>(result.length);
+        for (long id : result) {
+            ids.add(id);
+        }
+        return ids;
+    }
+
+    public int size() {
+        Index current = index;
+        if (current == null) {
+            return 0;
+        }
+        lock.readLock().lock();
+        try {
+            return current.byUsername.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 객체 헤더, 참조, 배열 크기로 계산한 대략적인 값. (compressed oops 기준)
+     */
+    public long estimatedBytes() {
+        Index current = index;
+        if (current == null) {
+            return 0;
+        }
+        lock.readLock().lock();
+        try {
+            return current.estimatedBytes();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 다시 읽는 중이면 이벤트를 모아 두고 지금 색인에도 적용한다. 테이블을 읽는 동안 기다리지 않는다.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public synchronized void onEntityChanged(EntityChangedEvent event) {
+        if (!event.isAbout(Member.class) || event.getChangeType() == EntityChangedEvent.ChangeType.BULK) {
+            return;
+        }
+        if (replay != null) {
+            replay.add(event);
+        }
+        Index current = index;
+        if (current == null) {
+            return; // 아직 읽기 전이면 reload 에서 반영된다.
+        }
+        lock.writeLock().lock();
+        try {
+            apply(current, event);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static void apply(Index target, EntityChangedEvent event) {
+        String oldUsername = (String) event.getOldValue("username");
+        String newUsername = (String) event.getNewValue("username");
+        if (event.getChangeType() == EntityChangedEvent.ChangeType.UPDATE && Objects.equals(oldUsername, newUsername)) {
+            return;
+        }
+        long id = (Long) event.getId();
+        if (oldUsername != null) {
+            target.remove(id, oldUsername);
+        }
+        if (newUsername != null) {
+            target.add(id, newUsername);
+        }
+    }
+
+    private static long[] intersect(long[] a, int aSize, long[] b, int bSize) {
+        long[] result = new long[Math.min(aSize, bSize)];
+        int size = 0;
+        for (int i = 0, j = 0; i < aSize && j < bSize; ) {
+            if (a[i] == b[j]) {
+                result[size++] = a[i];
+                i++;
+                j++;
+            } else if (a[i] < b[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    static Set<String> gramsOf(String username) {
+        Set<String> grams = new HashSet<>();
+        if (username.length() < GRAM) {
+            grams.add(username); // 짧은 이름은 그대로 한 개의 gram
+            return grams;
+        }
+        for (int i = 0; i + GRAM <= username.length(); i++) {
+            grams.add(username.substring(i, i + GRAM));
+        }
+        return grams;
+    }
+
+    /**
+     * 변경은 쓰기 lock, 조회는 읽기 lock 안에서 한다.
+     */
+    private static class Index {
+
+        private final NavigableMap<String, Postings> byUsername = new TreeMap<>();
+        private final Map<String, Postings> byGram = new HashMap<>();
+        private long entries; // (id, username) 수
+        private long checksum; // (id, username) 해시의 합. 순서와 상관없이 같은 내용이면 같다.
+
+        private void add(long id, String username) {
+            if (byUsername.computeIfAbsent(username, key -> new Postings()).add(id)) {
+                entries++;
+                checksum += hash(id, username);
+            }
+            for (String gram : gramsOf(username)) {
+                byGram.computeIfAbsent(gram, key -> new Postings()).add(id);
+            }
+        }
+
+        private void remove(long id, String username) {
+            if (remove(byUsername, username, id)) {
+                entries--;
+                checksum -= hash(id, username);
+            }
+            for (String gram : gramsOf(username)) {
+                remove(byGram, gram, id);
+            }
+        }
+
+        /**
+         * username -> id 목록이 같은지. 다시 바꾸는 짧은 구간에서 비교하므로 전체를 돌지 않고 (수, checksum) 만 본다.
+         */
+        private boolean sameUsernames(Index other) {
+            return entries == other.entries && checksum == other.checksum;
+        }
+
+        private static boolean remove(Map<String, Postings> map, String key, long id) {
+            Postings postings = map.get(key);
+            if (postings == null || !postings.remove(id)) {
+                return false;
+            }
+            if (postings.size == 0) {
+                map.remove(key);
+            }
+            return true;
+        }
+
+        private static long hash(long id, String username) {
+            long h = id * 0x9E3779B97F4A7C15L + username.hashCode();
+            h = (h ^ (h >>> 33)) * 0xFF51AFD7ED558CCDL; // murmur3 fmix64
+            h = (h ^ (h >>> 33)) * 0xC4CEB9FE1A85EC53L;
+            return h ^ (h >>> 33);
+        }
+
+        /**
+         * @return limit 보다 많으면 null
+         */
+        private long[] prefix(String prefix, int limit) {
+            TreeSet<Long> ids = new TreeSet<>();
+            for (Postings postings : byUsername.subMap(prefix, true, prefix + Character.MAX_VALUE, false).values()) {
+                if (!postings.addTo(ids, limit)) {
+                    return null;
+                }
+            }
+            return toArray(ids);
+        }
+
+        /**
+         * @return limit 보다 많으면 null
+         */
+        private long[] contains(String text, int limit) {
+            if (text.length() < GRAM) {
+                TreeSet<Long> ids = new TreeSet<>();
+                for (Map.Entry<String, Postings> entry : byGram.entrySet()) {
+                    if (entry.getKey().contains(text) && !entry.getValue().addTo(ids, limit)) {
+                        return null;
+                    }
+                }
+                return toArray(ids);
+            }
+            List<Postings> lists = new ArrayList<>();
+            for (String gram : gramsOf(text)) {
+                Postings postings = byGram.get(gram);
+                if (postings == null) {
+                    return new long[0];
+                }
+                lists.add(postings);
+            }
+            lists.sort((a, b) -> Integer.compare(a.size, b.size)); // 짧은 목록부터 교집합
+            long[] result = Arrays.copyOf(lists.get(0).ids, lists.get(0).size);
+            for (int i = 1; i < lists.size() && result.length > 0; i++) {
+                result = intersect(result, result.length, lists.get(i).ids, lists.get(i).size);
+            }
+            return result.length > limit ? null : result;
+        }
+
+        private long estimatedBytes() {
+            long bytes = 0;
+            for (Map.Entry<String, Postings> entry : byUsername.entrySet()) {
+                bytes += 40 + stringBytes(entry.getKey()) + entry.getValue().bytes(); // TreeMap.Entry
+            }
+            for (Map.Entry<String, Postings> entry : byGram.entrySet()) {
+                bytes += 36 + stringBytes(entry.getKey()) + entry.getValue().bytes(); // HashMap.Node + table slot
+            }
+            return bytes;
+        }
+
+        private static long stringBytes(String value) {
+            return 24 + 16 + value.length() * 2L; // String + char/byte 배열 (UTF-16 기준 상한)
+        }
+
+        private static long[] toArray(TreeSet<Long> ids) {
+            return ids.stream().mapToLong(Long::longValue).toArray();
+        }
+    }
+
+    /**
+     * 오름차순 id 목록. id 는 대부분 증가하는 순서로 들어오므로 뒤에 붙는다.
+     */
+    private static class Postings {
+
+        private long[] ids = new long[1];
+        private int size;
+
+        /**
+         * @return 새로 추가했으면 true
+         */
+        private boolean add(long id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index >= 0) {
+                return false;
+            }
+            int insertAt = -index - 1;
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size + Math.max(1, size >> 1));
+            }
+            System.arraycopy(ids, insertAt, ids, insertAt + 1, size - insertAt);
+            ids[insertAt] = id;
+            size++;
+            return true;
+        }
+
+        private boolean remove(long id) {
+            int index = Arrays.binarySearch(ids, 0, size, id);
+            if (index < 0) {
+                return false;
+            }
+            System.arraycopy(ids, index + 1, ids, index, size - index - 1);
+            size--;
+            return true;
+        }
+
+        /**
+         * @return 합친 결과가 limit 보다 많아지면 false
+         */
+        private boolean addTo(Set<Long> target, int limit) {
+            for (int i = 0; i < size; i++) {
+                target.add(ids[i]);
+                if (target.size() > limit) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private long bytes() {
+            return 24 + 16 + ids.length * 8L;
+        }
+    }
+}
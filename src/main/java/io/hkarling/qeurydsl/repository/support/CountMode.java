@@ -0,0 +1,29 @@
+package io.hkarling.qeurydsl.repository.support;
+
+import java.util.Arrays;
+
+/**
+ * 페이징 total 계산 방법.
+ */
+public enum CountMode {
+
+    EXACT,     // count 쿼리 (캐시, 병렬 실행 포함)
+    ESTIMATED; // 통계로 추정. 추정값이 작거나 통계가 없으면 EXACT 와 같다. (EstimatedPage)
+
+    /**
+     * 요청 파라미터용. 대소문자를 구분하지 않는다.
+     *
+     * @throws InvalidSearchParameterException 모르는 값이면 (웹 요청은 400)
+     */
+    public static CountMode of(String value) {
+        if (value == null) {
+            return EXACT;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            throw new InvalidSearchParameterException(
+                "Unknown count mode: " + value + " (allowed: " + Arrays.toString(values()).toLowerCase() + ")", e);
+        }
+    }
+}
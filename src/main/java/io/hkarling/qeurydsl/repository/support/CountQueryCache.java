@@ -0,0 +1,105 @@
+package io.hkarling.qeurydsl.repository.support;
+
+import io.hkarling.qeurydsl.config.QuerydslProperties;
+import io.hkarling.qeurydsl.entity.Member;
+import io.hkarling.qeurydsl.entity.Team;
+import io.hkarling.qeurydsl.event.EntityChangedEvent;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+/**
+ * 페이징 count 쿼리 결과 캐시. 같은 검색 조건으로 페이지를 넘길 때는 content 쿼리만 실행되도록 한다.
+ * 크기 제한(LRU)과 TTL 이 있고, Member/Team 변경이 commit 되면 전체를 무효화한다.
+ */
+@Component
+public class CountQueryCache {
+
+    private final QuerydslProperties.CountCache properties;
+    private final Map<Object, Entry> entries;
+    private final AtomicLong generation = new AtomicLong(); // 무효화 이전에 시작한 count 결과가 캐시에 들어가지 않도록
+
+    public CountQueryCache(QuerydslProperties properties) {
+        this.properties = properties.getCountCache();
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Object, Entry> eldest) {
+                return size() > CountQueryCache.this.properties.getMaxSize();
+            }
+        };
+    }
+
+    /**
+     * @param key        정규화된 검색 조건을 포함한 키 (equals/hashCode 구현 필수)
+     * @param countQuery 캐시에 없을 때 실행할 count 쿼리
+     */
+    public long get(Object key, LongSupplier countQuery) {
+        if (!properties.isEnabled() || !Transactions.isReadOnlyOrAbsent()) {
+            return countQuery.getAsLong();
+        }
+
+        long now = System.nanoTime();
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.expiresAt - now > 0) {
+                return entry.count;
+            }
+        }
+
+        long startGeneration = generation.get();
+        long count = countQuery.getAsLong();
+        synchronized (entries) {
+            if (startGeneration == generation.get()) {
+                entries.put(key, new Entry(count, now + properties.getTtl().toNanos()));
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 만료되지 않은 count 가 있는지. 있으면 count 쿼리를 미리 실행할 필요가 없다.
+     */
+    public boolean contains(Object key) {
+        if (!properties.isEnabled() || !Transactions.isReadOnlyOrAbsent()) {
+            return false;
+        }
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            return entry != null && entry.expiresAt - System.nanoTime() > 0;
+        }
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onEntityChanged(EntityChangedEvent event) {
+        if (properties.isInvalidateOnWrite() && (event.isAbout(Member.class) || event.isAbout(Team.class))) {
+            invalidateAll();
+        }
+    }
+
+    private static class Entry {
+
+        private final long count;
+        private final long expiresAt;
+
+        private Entry(long count, long expiresAt) {
+            this.count = count;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
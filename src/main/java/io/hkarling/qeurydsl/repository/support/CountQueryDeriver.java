@@ -0,0 +1,212 @@
+package io.hkarling.qeurydsl.repository.support;
+
+import com.querydsl.core.JoinExpression;
+import com.querydsl.core.JoinType;
+import com.querydsl.core.QueryMetadata;
+import com.querydsl.core.types.CollectionExpression;
+import com.querydsl.core.types.Constant;
+import com.querydsl.core.types.EntityPath;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.FactoryExpression;
+import com.querydsl.core.types.MapExpression;
+import com.querydsl.core.types.Operation;
+import com.querydsl.core.types.Ops;
+import com.querydsl.core.types.ParamExpression;
+import com.querydsl.core.types.Path;
+import com.querydsl.core.types.SubQueryExpression;
+import com.querydsl.core.types.TemplateExpression;
+import com.querydsl.core.types.Visitor;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.core.types.dsl.PathBuilder;
+import com.querydsl.jpa.JPAQueryMixin;
+import com.querydsl.jpa.JPQLQuery;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.persistence.EntityManager;
+import org.springframework.data.jpa.repository.support.JpaEntityInformation;
+import org.springframework.data.jpa.repository.support.JpaEntityInformationSupport;
+import org.springframework.stereotype.Component;
+
+/**
+ * content 쿼리에서 count 쿼리를 만든다.
+ * <ul>
+ *     <li>select 절, order by, offset/limit 은 버리고 루트 엔티티 id 를 센다. (distinct 면 count(distinct id))</li>
+ *     <li>fetch join 은 일반 join 으로 바꾼다.</li>
+ *     <li>where 절이나 남은 join 이 참조하지 않는 to-one left join 은 뺀다. 행 수가 바뀌지 않는다.</li>
+ *     <li>inner join 과 컬렉션 left join 은 행 수를 바꾸므로 그대로 둔다.</li>
+ * </ul>
+ * group by / having 이 있거나 루트 엔티티가 아닌 값을 distinct 로 조회하는 쿼리는 id 수와 행 수가 다르므로 지원하지 않는다.
+ * 이때는 count 쿼리를 직접 작성한다. (Querydsl4RepositorySupport#applyPagination(pageable, content, count))
+ */
+@Component
+public class CountQueryDeriver {
+
+    private static final RootCollector ROOTS = new RootCollector();
+
+    private final EntityManager em;
+    private final JPAQueryFactory queryFactory;
+    private final Map<Class<?>, Optional<String>> idAttributes = new ConcurrentHashMap<>(); // 복합키면 empty
+
+    public CountQueryDeriver(EntityManager em, JPAQueryFactory queryFactory) {
+        this.em = em;
+        this.queryFactory = queryFactory;
+    }
+
+    /**
+     * content 쿼리는 바꾸지 않는다. 반환한 쿼리는 content 쿼리와 독립적이므로 다른 스레드에서 실행해도 된다.
+     *
+     * @throws IllegalArgumentException group by / having 이 있거나 루트 엔티티가 아닌 값을 distinct 로 조회하는 경우
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public JPAQuery<Long> derive(JPQLQuery<?> content) {
+        QueryMetadata source = content.getMetadata();
+        List<JoinExpression> joins = source.getJoins();
+        if (joins.isEmpty() || !(joins.get(0).getTarget() instanceof EntityPath)) {
+            throw new IllegalArgumentException("Count query can be derived only from a query with a root entity: " + content);
+        }
+        EntityPath<?> root = (EntityPath<?>) joins.get(0).getTarget();
+        if (!source.getGroupBy().isEmpty() || source.getHaving() != null
+            || (source.isDistinct() && source.getProjection() != null && !root.equals(source.getProjection()))) {
+            throw new IllegalArgumentException("Count query cannot be derived from a grouped or distinct projection query: " + content);
+        }
+
+        // 뒤의 join 부터 보면서 참조되지 않는 left join 을 뺀다. 남긴 join 이 참조하는 별칭은 앞의 join 에서 남긴다.
+        Set<Path<?>> referenced = new HashSet<>();
+        collect(source.getWhere(), referenced);
+        boolean[] keep = new boolean[joins.size()];
+        for (int i = joins.size() - 1; i >= 0; i--) {
+            JoinExpression join = joins.get(i);
+            if (isPrunable(join) && !referenced.contains(alias(join))) {
+                continue;
+            }
+            keep[i] = true;
+            collect(join.getTarget(), referenced);
+            collect(join.getCondition(), referenced);
+        }
+
+        JPAQuery<Long> count = queryFactory.select(countOf(root, source.isDistinct()));
+        QueryMetadata metadata = count.getMetadata();
+        for (int i = 0; i < joins.size(); i++) {
+            if (!keep[i]) {
+                continue;
+            }
+            JoinExpression join = joins.get(i);
+            metadata.addJoin(join.getType(), join.getTarget());
+            join.getFlags().stream()
+                .filter(flag -> !JPAQueryMixin.FETCH.equals(flag) && !JPAQueryMixin.FETCH_ALL_PROPERTIES.equals(flag))
+                .forEach(metadata::addJoinFlag);
+            if (join.getCondition() != null) {
+                metadata.addJoinCondition(join.getCondition());
+            }
+        }
+        if (source.getWhere() != null) {
+            metadata.addWhere(source.getWhere());
+        }
+        source.getParams().forEach((param, value) -> metadata.setParam((ParamExpression) param, value));
+        return count;
+    }
+
+    private Expression<Long> countOf(EntityPath<?> root, boolean distinct) {
+        Optional<String> idAttribute = idAttributes.computeIfAbsent(root.getType(), type -> {
+            JpaEntityInformation<?, ?> information = JpaEntityInformationSupport.getEntityInformation(type, em);
+            return information.hasCompositeId() ? Optional.empty() : Optional.of(information.getIdAttribute().getName());
+        });
+        Expression<?> target = idAttribute.<Expression<?>>map(name -> new PathBuilder<>(root.getType(), root.getMetadata()).get(name))
+            .orElse(root);
+        return Expressions.numberOperation(Long.class, distinct ? Ops.AggOps.COUNT_DISTINCT_AGG : Ops.AggOps.COUNT_AGG, target);
+    }
+
+    /**
+     * to-one 연관관계 left join 은 루트 행 수를 바꾸지 않는다.
+     */
+    private static boolean isPrunable(JoinExpression join) {
+        if (join.getType() != JoinType.LEFTJOIN) {
+            return false;
+        }
+        Expression<?> association = isAliased(join) ? ((Operation<?>) join.getTarget()).getArg(0) : join.getTarget();
+        return association instanceof Path
+            && ((Path<?>) association).getMetadata().getParent() != null
+            && !(association instanceof CollectionExpression)
+            && !(association instanceof MapExpression);
+    }
+
+    /**
+     * join(member.team, team) 이면 team, join(member.team) 이면 member.team. 조건은 별칭(의 하위 경로)으로만 참조할 수 있다.
+     */
+    private static Path<?> alias(JoinExpression join) {
+        return isAliased(join) ? ((Path<?>) ((Operation<?>) join.getTarget()).getArg(1)).getRoot() : (Path<?>) join.getTarget();
+    }
+
+    private static boolean isAliased(JoinExpression join) {
+        return join.getTarget() instanceof Operation && ((Operation<?>) join.getTarget()).getOperator() == Ops.ALIAS;
+    }
+
+    private static void collect(Expression<?> expression, Set<Path<?>> roots) {
+        if (expression != null) {
+            expression.accept(ROOTS, roots);
+        }
+    }
+
+    /**
+     * 식에서 참조하는 경로의 루트(별칭)를 모은다. 서브쿼리 안도 본다.
+     */
+    private static class RootCollector implements Visitor<Void, Set<Path<?>>> {
+
+        @Override
+        public Void visit(Constant<?> expr, Set<Path<?>> roots) {
+            return null;
+        }
+
+        @Override
+        public Void visit(FactoryExpression<?> expr, Set<Path<?>> roots) {
+            expr.getArgs().forEach(arg -> collect(arg, roots));
+            return null;
+        }
+
+        @Override
+        public Void visit(Operation<?> expr, Set<Path<?>> roots) {
+            expr.getArgs().forEach(arg -> collect(arg, roots));
+            return null;
+        }
+
+        @Override
+        public Void visit(ParamExpression<?> expr, Set<Path<?>> roots) {
+            return null;
+        }
+
+        @Override
+        public Void visit(Path<?> expr, Set<Path<?>> roots) {
+            roots.add(expr.getRoot());
+            return null;
+        }
+
+        @Override
+        public Void visit(SubQueryExpression<?> expr, Set<Path<?>> roots) {
+            QueryMetadata metadata = expr.getMetadata();
+            for (JoinExpression join : metadata.getJoins()) {
+                collect(join.getTarget(), roots);
+                collect(join.getCondition(), roots);
+            }
+            collect(metadata.getWhere(), roots);
+            collect(metadata.getHaving(), roots);
+            collect(metadata.getProjection(), roots);
+            return null;
+        }
+
+        @Override
+        public Void visit(TemplateExpression<?> expr, Set<Path<?>> roots) {
+            for (Object arg : expr.getArgs()) {
+                if (arg instanceof Expression) {
+                    collect((Expression<?>) arg, roots);
+                }
+            }
+            return null;
+        }
+    }
+}
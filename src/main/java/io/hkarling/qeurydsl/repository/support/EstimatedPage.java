@@ -0,0 +1,23 @@
+package io.hkarling.qeurydsl.repository.support;
+
+import java.util.List;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+
+/**
+ * total 이 추정값일 수 있는 페이지. 응답에 totalEstimated 로 나간다.
+ * 추정값이면 totalElements, totalPages 는 대략적인 값이고, 마지막 페이지에 도달하면 정확한 값으로 바뀐다.
+ */
+public class EstimatedPage<T> extends PageImpl<T> {
+
+    private final boolean totalEstimated;
+
+    public EstimatedPage(List<T> content, Pageable pageable, long total, boolean totalEstimated) {
+        super(content, pageable, total);
+        this.totalEstimated = totalEstimated;
+    }
+
+    public boolean isTotalEstimated() {
+        return totalEstimated;
+    }
+}
@@ -0,0 +1,146 @@
+package io.hkarling.qeurydsl.repository.support;
+
+import com.querydsl.core.types.EntityPath;
+import com.querydsl.core.types.Path;
+import com.querydsl.core.types.dsl.PathBuilder;
+import com.querydsl.jpa.impl.JPAQuery;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import javax.persistence.EntityGraph;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceUnitUtil;
+import org.hibernate.Hibernate;
+import org.hibernate.Session;
+import org.hibernate.graph.GraphSemantic;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.util.Assert;
+
+/**
+ * 조회한 엔티티와 함께 읽어 둘 연관관계(ManyToOne, OneToOne)와 읽는 방법. 지연 로딩 N+1 을 막는다.
+ * <ul>
+ *     <li>FETCH_JOIN : content 쿼리에 left join fetch 를 추가한다. alias 는 연관관계 이름이다. (member.team -> team)</li>
+ *     <li>ENTITY_GRAPH : content 쿼리에 fetchgraph 힌트를 준다. 쿼리 문자열은 그대로다.</li>
+ *     <li>BATCH : content 를 읽은 뒤 아직 로딩되지 않은 연관 엔티티를 id 로 모아 in 쿼리로 한 번에 읽는다.</li>
+ * </ul>
+ * content 쿼리에만 적용한다. count 쿼리에 fetch join 이나 fetchgraph 가 들어가면 Hibernate 가 실패하므로
+ * count 는 적용 전에 복제하거나 따로 만들어야 한다. (Querydsl4RepositorySupport#applyPagination 참고)
+ * 컬렉션은 페이징이 메모리에서 일어나므로 지원하지 않는다.
+ */
+public final class FetchPlan {
+
+    public enum Strategy {
+        FETCH_JOIN, ENTITY_GRAPH, BATCH
+    }
+
+    private static final FetchPlan NONE = new FetchPlan(Strategy.FETCH_JOIN, Collections.emptyList());
+    private static final int BATCH_SIZE = 100;
+
+    private final Strategy strategy;
+    private final List<EntityPath<?>> associations;
+
+    private FetchPlan(Strategy strategy, List<EntityPath<?>> associations) {
+        this.strategy = strategy;
+        this.associations = associations;
+    }
+
+    public static FetchPlan none() {
+        return NONE;
+    }
+
+    public static FetchPlan fetchJoin(EntityPath<?>... associations) {
+        return of(Strategy.FETCH_JOIN, associations);
+    }
+
+    public static FetchPlan entityGraph(EntityPath<?>... associations) {
+        return of(Strategy.ENTITY_GRAPH, associations);
+    }
+
+    public static FetchPlan batch(EntityPath<?>... associations) {
+        return of(Strategy.BATCH, associations);
+    }
+
+    /**
+     * @param associations 루트 엔티티의 연관관계 경로. 예) member.team
+     */
+    public static FetchPlan of(Strategy strategy, EntityPath<?>... associations) {
+        for (EntityPath<?> association : associations) {
+            Path<?> parent = association.getMetadata().getParent();
+            Assert.isTrue(parent != null && parent.getMetadata().isRoot(),
+                "Fetch plan supports direct associations of the root entity only: " + association);
+        }
+        return new FetchPlan(strategy, List.of(associations));
+    }
+
+    public Strategy getStrategy() {
+        return strategy;
+    }
+
+    public boolean isEmpty() {
+        return associations.isEmpty();
+    }
+
+    /**
+     * @return association 을 fetch join 하면 true. 이때는 같은 alias 의 Q 타입(QTeam.team)으로 조건을 걸어야 team 을 다시 join 하지 않는다.
+     */
+    public boolean fetchJoins(EntityPath<?> association) {
+        return strategy == Strategy.FETCH_JOIN && associations.contains(association);
+    }
+
+    /**
+     * content 쿼리에 fetch join 또는 entity graph 힌트를 추가한다. (BATCH 는 {@link #load} 에서 처리)
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public <T> JPAQuery<T> applyTo(JPAQuery<T> query, EntityManager em) {
+        if (isEmpty()) {
+            return query;
+        }
+        switch (strategy) {
+            case FETCH_JOIN:
+                for (EntityPath<?> association : associations) {
+                    query.leftJoin((EntityPath) association, new PathBuilder(association.getType(), association.getMetadata().getName()))
+                        .fetchJoin();
+                }
+                return query;
+            case ENTITY_GRAPH:
+                EntityGraph<?> graph = em.createEntityGraph(associations.get(0).getMetadata().getParent().getType());
+                graph.addAttributeNodes(associations.stream().map(a -> a.getMetadata().getName()).toArray(String[]::new));
+                return query.setHint(GraphSemantic.FETCH.getJpaHintName(), graph);
+            default:
+                return query;
+        }
+    }
+
+    /**
+     * BATCH 이면 content 의 연관 엔티티 중 로딩되지 않은 것(프록시)을 타입별로 모아 id in 쿼리로 읽는다.
+     * 같은 영속성 컨텍스트에 올라오므로 이후 프록시 접근은 SQL 없이 초기화된다.
+     */
+    public <T> List<T> load(List<T> content, EntityManager em) {
+        if (strategy != Strategy.BATCH || isEmpty() || content.isEmpty()) {
+            return content;
+        }
+        PersistenceUnitUtil util = em.getEntityManagerFactory().getPersistenceUnitUtil();
+        Session session = em.unwrap(Session.class);
+        for (EntityPath<?> association : associations) {
+            Set<Object> ids = new LinkedHashSet<>();
+            for (T row : content) {
+                Object value = row == null ? null : new BeanWrapperImpl(row).getPropertyValue(association.getMetadata().getName());
+                if (value != null && !Hibernate.isInitialized(value)) {
+                    ids.add(util.getIdentifier(value));
+                }
+            }
+            if (!ids.isEmpty()) {
+                session.byMultipleIds(association.getType()).withBatchSize(BATCH_SIZE).multiLoad(new ArrayList<>(ids));
+            }
+        }
+        return content;
+    }
+
+    @Override
+    public String toString() {
+        return strategy + Arrays.toString(associations.toArray());
+    }
+}
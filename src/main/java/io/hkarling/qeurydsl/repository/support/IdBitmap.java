@@ -0,0 +1,338 @@
+package io.hkarling.qeurydsl.repository.support;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Roaring bitmap 방식으로 압축한 id 집합. id 를 상위 48비트(container key)와 하위 16비트로 나눠 container 에 넣는다.
+ * <ul>
+ *     <li>원소가 4096 개 이하인 container: 정렬된 char[] (원소당 2바이트)</li>
+ *     <li>그보다 많은 container: 65536 비트 long[1024] (8KB 고정)</li>
+ * </ul>
+ * 시퀀스로 만든 회원 id 처럼 촘촘한 id 는 대부분 bitmap container 가 되어 id 하나에 1비트 남짓을 쓴다.
+ * 음수 id 는 넣을 수 없다. 동기화하지 않으므로 호출하는 쪽에서 lock 을 건다.
+ */
+public final class IdBitmap {
+
+    private static final int ARRAY_MAX = 4096;
+    private static final int WORDS = 1 << 10;
+
+    private long[] keys = new long[0];
+    private Container[] containers = new Container[0];
+    private int size; // container 수
+    private long cardinality;
+
+    /**
+     * @return 새로 추가했으면 true
+     */
+    public boolean add(long id) {
+        if (id < 0) {
+            throw new IllegalArgumentException("Negative id: " + id);
+        }
+        long key = id >>> 16;
+        int index = Arrays.binarySearch(keys, 0, size, key);
+        if (index < 0) {
+            index = insertContainer(-index - 1, key);
+        }
+        Container container = containers[index];
+        int before = container.cardinality();
+        containers[index] = container.add((char) id);
+        if (containers[index].cardinality() == before) {
+            return false;
+        }
+        cardinality++;
+        return true;
+    }
+
+    /**
+     * @return 있어서 지웠으면 true
+     */
+    public boolean remove(long id) {
+        if (id < 0) {
+            return false;
+        }
+        int index = Arrays.binarySearch(keys, 0, size, id >>> 16);
+        if (index < 0) {
+            return false;
+        }
+        Container container = containers[index];
+        int before = container.cardinality();
+        containers[index] = container.remove((char) id);
+        if (containers[index].cardinality() == before) {
+            return false;
+        }
+        cardinality--;
+        if (containers[index].cardinality() == 0) {
+            removeContainer(index);
+        }
+        return true;
+    }
+
+    public boolean contains(long id) {
+        if (id < 0) {
+            return false;
+        }
+        int index = Arrays.binarySearch(keys, 0, size, id >>> 16);
+        return index >= 0 && containers[index].contains((char) id);
+    }
+
+    public long cardinality() {
+        return cardinality;
+    }
+
+    /**
+     * @return 오름차순 id
+     */
+    public long[] toArray() {
+        long[] result = new long[Math.toIntExact(cardinality)];
+        int offset = 0;
+        for (int i = 0; i < size; i++) {
+            offset = containers[i].copyTo(keys[i] << 16, result, offset);
+        }
+        return result;
+    }
+
+    /**
+     * 객체 헤더, 참조, 배열 크기로 계산한 대략적인 값. (compressed oops 기준)
+     */
+    public long estimatedBytes() {
+        long bytes = 32 + 16 + keys.length * 8L + 16 + containers.length * 4L;
+        for (int i = 0; i < size; i++) {
+            bytes += containers[i].bytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * container 단위로 비트를 OR 해서 합집합을 만든다. 정렬하지 않아도 오름차순이다.
+     *
+     * @return 오름차순 id
+     */
+    public static long[] union(List<IdBitmap> bitmaps) {
+        if (bitmaps.isEmpty()) {
+            return new long[0];
+        }
+        if (bitmaps.size() == 1) {
+            return bitmaps.get(0).toArray();
+        }
+        IdBitmap result = new IdBitmap();
+        for (IdBitmap bitmap : bitmaps) {
+            for (int i = 0; i < bitmap.size; i++) {
+                int index = Arrays.binarySearch(result.keys, 0, result.size, bitmap.keys[i]);
+                if (index < 0) {
+                    index = result.insertContainer(-index - 1, bitmap.keys[i]);
+                }
+                BitmapContainer target = result.containers[index].toBitmap();
+                bitmap.containers[i].orInto(target.words);
+                result.containers[index] = target;
+            }
+        }
+        result.cardinality = 0;
+        for (int i = 0; i < result.size; i++) {
+            ((BitmapContainer) result.containers[i]).recount();
+            result.cardinality += result.containers[i].cardinality();
+        }
+        return result.toArray();
+    }
+
+    private int insertContainer(int at, long key) {
+        if (size == keys.length) {
+            int capacity = Math.max(4, size + (size >> 1));
+            keys = Arrays.copyOf(keys, capacity);
+            containers = Arrays.copyOf(containers, capacity);
+        }
+        System.arraycopy(keys, at, keys, at + 1, size - at);
+        System.arraycopy(containers, at, containers, at + 1, size - at);
+        keys[at] = key;
+        containers[at] = new ArrayContainer();
+        size++;
+        return at;
+    }
+
+    private void removeContainer(int index) {
+        System.arraycopy(keys, index + 1, keys, index, size - index - 1);
+        System.arraycopy(containers, index + 1, containers, index, size - index - 1);
+        containers[--size] = null;
+    }
+
+    /**
+     * add/remove 는 바뀐 container 를 돌려준다. (array <-> bitmap 변환)
+     */
+    private abstract static class Container {
+
+        abstract int cardinality();
+
+        abstract boolean contains(char low);
+
+        abstract Container add(char low);
+
+        abstract Container remove(char low);
+
+        abstract int copyTo(long high, long[] target, int offset);
+
+        abstract void orInto(long[] words);
+
+        abstract BitmapContainer toBitmap();
+
+        abstract long bytes();
+    }
+
+    private static final class ArrayContainer extends Container {
+
+        private char[] values = new char[4];
+        private int size;
+
+        @Override
+        int cardinality() {
+            return size;
+        }
+
+        @Override
+        boolean contains(char low) {
+            return Arrays.binarySearch(values, 0, size, low) >= 0;
+        }
+
+        @Override
+        Container add(char low) {
+            int index = Arrays.binarySearch(values, 0, size, low);
+            if (index >= 0) {
+                return this;
+            }
+            if (size == ARRAY_MAX) {
+                return toBitmap().add(low);
+            }
+            int insertAt = -index - 1;
+            if (size == values.length) {
+                values = Arrays.copyOf(values, Math.min(ARRAY_MAX, size + (size >> 1)));
+            }
+            System.arraycopy(values, insertAt, values, insertAt + 1, size - insertAt);
+            values[insertAt] = low;
+            size++;
+            return this;
+        }
+
+        @Override
+        Container remove(char low) {
+            int index = Arrays.binarySearch(values, 0, size, low);
+            if (index >= 0) {
+                System.arraycopy(values, index + 1, values, index, size - index - 1);
+                size--;
+            }
+            return this;
+        }
+
+        @Override
+        int copyTo(long high, long[] target, int offset) {
+            for (int i = 0; i < size; i++) {
+                target[offset++] = high | values[i];
+            }
+            return offset;
+        }
+
+        @Override
+        void orInto(long[] words) {
+            for (int i = 0; i < size; i++) {
+                words[values[i] >>> 6] |= 1L << values[i];
+            }
+        }
+
+        @Override
+        BitmapContainer toBitmap() {
+            BitmapContainer bitmap = new BitmapContainer();
+            orInto(bitmap.words);
+            bitmap.cardinality = size;
+            return bitmap;
+        }
+
+        @Override
+        long bytes() {
+            return 24 + 16 + values.length * 2L;
+        }
+    }
+
+    private static final class BitmapContainer extends Container {
+
+        private final long[] words = new long[WORDS];
+        private int cardinality;
+
+        @Override
+        int cardinality() {
+            return cardinality;
+        }
+
+        @Override
+        boolean contains(char low) {
+            return (words[low >>> 6] & (1L << low)) != 0;
+        }
+
+        @Override
+        Container add(char low) {
+            long before = words[low >>> 6];
+            words[low >>> 6] = before | (1L << low);
+            if (before != words[low >>> 6]) {
+                cardinality++;
+            }
+            return this;
+        }
+
+        @Override
+        Container remove(char low) {
+            long before = words[low >>> 6];
+            words[low >>> 6] = before & ~(1L << low);
+            if (before != words[low >>> 6]) {
+                cardinality--;
+            }
+            return cardinality <= ARRAY_MAX / 2 ? toArrayContainer() : this; // 경계에서 add/remove 가 반복될 때 변환을 되풀이하지 않는다.
+        }
+
+        @Override
+        int copyTo(long high, long[] target, int offset) {
+            for (int i = 0; i < WORDS; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    target[offset++] = high | ((long) i << 6) | Long.numberOfTrailingZeros(word);
+                    word &= word - 1;
+                }
+            }
+            return offset;
+        }
+
+        @Override
+        void orInto(long[] target) {
+            for (int i = 0; i < WORDS; i++) {
+                target[i] |= words[i];
+            }
+        }
+
+        @Override
+        BitmapContainer toBitmap() {
+            return this;
+        }
+
+        @Override
+        long bytes() {
+            return 16 + 16 + WORDS * 8L;
+        }
+
+        private void recount() {
+            int count = 0;
+            for (long word : words) {
+                count += Long.bitCount(word);
+            }
+            cardinality = count;
+        }
+
+        private ArrayContainer toArrayContainer() {
+            ArrayContainer array = new ArrayContainer();
+            array.values = new char[Math.max(4, cardinality)];
+            for (int i = 0; i < WORDS; i++) {
+                long word = words[i];
+                while (word != 0) {
+                    array.values[array.size++] = (char) ((i << 6) | Long.numberOfTrailingZeros(word));
+                    word &= word - 1;
+                }
+            }
+            return array;
+        }
+    }
+}
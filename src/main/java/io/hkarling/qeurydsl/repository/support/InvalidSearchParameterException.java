@@ -0,0 +1,15 @@
+package io.hkarling.qeurydsl.repository.support;
+
+/**
+ * 클라이언트가 보낸 검색 파라미터(cursor, sort 등)가 잘못되었다. 웹 요청이면 400 으로 응답한다. (SearchParameterExceptionHandler)
+ */
+public class InvalidSearchParameterException extends IllegalArgumentException {
+
+    public InvalidSearchParameterException(String message) {
+        super(message);
+    }
+
+    public InvalidSearchParameterException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
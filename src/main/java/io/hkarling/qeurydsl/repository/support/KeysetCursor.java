@@ -0,0 +1,57 @@
+package io.hkarling.qeurydsl.repository.support;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Keyset 페이징에서 마지막으로 조회한 (정렬 키, id) 를 담는 커서.
+ * 클라이언트에게는 {@link #encode()} 결과인 불투명한 문자열로만 노출한다.
+ */
+@Getter
+@EqualsAndHashCode
+@ToString
+public class KeysetCursor {
+
+    private static final String SEPARATOR = ".";
+
+    private final String sort;
+    private final String key; // id 정렬이면 null
+    private final Long id;
+
+    public KeysetCursor(String sort, String key, Long id) {
+        this.sort = sort;
+        this.key = key;
+        this.id = id;
+    }
+
+    public String encode() {
+        return encodePart(sort) + SEPARATOR + encodePart(key == null ? "" : key) + SEPARATOR + id;
+    }
+
+    /**
+     * @throws InvalidSearchParameterException 이 클래스가 만든 형식이 아니면
+     */
+    public static KeysetCursor decode(String token) {
+        String[] parts = token.split("\\.", -1);
+        if (parts.length != 3) {
+            throw new InvalidSearchParameterException("Invalid cursor: " + token);
+        }
+        try {
+            String key = decodePart(parts[1]);
+            return new KeysetCursor(decodePart(parts[0]), key.isEmpty() ? null : key, Long.valueOf(parts[2]));
+        } catch (IllegalArgumentException e) { // NumberFormatException 포함
+            throw new InvalidSearchParameterException("Invalid cursor: " + token, e);
+        }
+    }
+
+    private static String encodePart(String value) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decodePart(String value) {
+        return new String(Base64.getUrlDecoder().decode(value), StandardCharsets.UTF_8);
+    }
+}
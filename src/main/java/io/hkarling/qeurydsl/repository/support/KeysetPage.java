@@ -0,0 +1,25 @@
+package io.hkarling.qeurydsl.repository.support;
+
+import java.util.List;
+import lombok.Getter;
+
+/**
+ * Keyset 페이징 결과. total 을 계산하지 않으며 다음 페이지 요청에 쓸 커서만 돌려준다.
+ */
+@Getter
+public class KeysetPage<T> {
+
+    private final List<T> content;
+    private final String nextCursor;
+    private final boolean hasNext;
+
+    public KeysetPage(List<T> content, String nextCursor, boolean hasNext) {
+        this.content = content;
+        this.nextCursor = nextCursor;
+        this.hasNext = hasNext;
+    }
+
+    public int getSize() {
+        return content.size();
+    }
+}
@@ -0,0 +1,86 @@
+package io.hkarling.qeurydsl.repository.support;
+
+import com.querydsl.core.types.ExpressionUtils;
+import com.querydsl.core.types.Ops;
+import com.querydsl.core.types.OrderSpecifier;
+import com.querydsl.core.types.Predicate;
+import com.querydsl.core.types.dsl.ComparableExpressionBase;
+import com.querydsl.core.types.dsl.Expressions;
+import com.querydsl.core.types.dsl.NumberPath;
+import java.util.function.Function;
+import lombok.Getter;
+
+/**
+ * Keyset 페이징의 정렬 정의. (정렬 키 asc, id asc) 순서로 정렬하고 커서 이후의 row 만 조회한다.
+ * 정렬 키는 not null 컬럼이어야 한다.
+ *
+ * @param <T> 조회 결과 타입
+ * @param <K> 정렬 키 타입
+ */
+public class KeysetSort<T, K extends Comparable<? super K>> {
+
+    @Getter
+    private final String name;
+    private final ComparableExpressionBase<K> key;
+    private final Function<String, K> keyParser;
+    private final Function<T, K> keyOf;
+    private final NumberPath<Long> id;
+    private final Function<T, Long> idOf;
+
+    private KeysetSort(String name, ComparableExpressionBase<K> key, Function<String, K> keyParser, Function<T, K> keyOf,
+        NumberPath<Long> id, Function<T, Long> idOf) {
+        this.name = name;
+        this.key = key;
+        this.keyParser = keyParser;
+        this.keyOf = keyOf;
+        this.id = id;
+        this.idOf = idOf;
+    }
+
+    public static <T> KeysetSort<T, Long> byId(NumberPath<Long> id, Function<T, Long> idOf) {
+        return new KeysetSort<>("id", null, null, null, id, idOf);
+    }
+
+    public static <T, K extends Comparable<? super K>> KeysetSort<T, K> of(String name, ComparableExpressionBase<K> key,
+        Function<String, K> keyParser, Function<T, K> keyOf, NumberPath<Long> id, Function<T, Long> idOf) {
+        return new KeysetSort<>(name, key, keyParser, keyOf, id, idOf);
+    }
+
+    /**
+     * (key, id) > (cursor.key, cursor.id) 조건. row value 비교를 지원하지 않는 DB 를 위해 풀어서 작성한다.
+     */
+    public Predicate after(KeysetCursor cursor) {
+        if (!name.equals(cursor.getSort())) {
+            throw new InvalidSearchParameterException("Cursor was issued for sort '" + cursor.getSort() + "', not '" + name + "'");
+        }
+        if (key == null) {
+            return id.gt(cursor.getId());
+        }
+        K value = parseKey(cursor);
+        return ExpressionUtils.or(
+            Expressions.predicate(Ops.GT, key, Expressions.constant(value)),
+            ExpressionUtils.and(
+                Expressions.predicate(Ops.EQ, key, Expressions.constant(value)),
+                id.gt(cursor.getId())));
+    }
+
+    private K parseKey(KeysetCursor cursor) {
+        try {
+            return keyParser.apply(cursor.getKey());
+        } catch (RuntimeException e) { // 변조된 cursor. 예) age 정렬 cursor 의 key 가 숫자가 아니다.
+            throw new InvalidSearchParameterException("Invalid cursor key for sort '" + name + "': " + cursor.getKey(), e);
+        }
+    }
+
+    public OrderSpecifier<?>[] orderBy() {
+        if (key == null) {
+            return new OrderSpecifier<?>[]{id.asc()};
+        }
+        return new OrderSpecifier<?>[]{key.asc(), id.asc()};
+    }
+
+    public KeysetCursor cursorOf(T last) {
+        String keyValue = key == null ? null : String.valueOf(keyOf.apply(last));
+        return new KeysetCursor(name, keyValue, idOf.apply(last));
+    }
+}
@@ -0,0 +1,121 @@
+package io.hkarling.qeurydsl.repository.support;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import io.hkarling.qeurydsl.config.QuerydslProperties;
+import io.hkarling.qeurydsl.routing.ReadYourWrites;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.sql.SQLException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+import javax.sql.DataSource;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * 페이징 count 쿼리를 별도 스레드의 read-only 트랜잭션(= 다른 커넥션)에서 content 쿼리와 동시에 실행한다.
+ * 페이지 응답 시간이 content + count 에서 max(content, count) 에 가까워진다.
+ * <p>
+ * 다음 경우에는 병렬로 돌리지 않고 호출한 스레드에서 순서대로 실행한다.
+ * <ul>
+ *     <li>querydsl.parallel-count.enabled=false</li>
+ *     <li>쓰기 트랜잭션 안에서 호출된 경우 (다른 커넥션에서는 commit 전 변경이 보이지 않는다)</li>
+ *     <li>요청이 이미 primary 에 쓴 경우 (작업 스레드는 read-your-writes 기록이 없어 replica 에서 읽는다)</li>
+ *     <li>커넥션 풀 idle 커넥션이 부족하거나 커넥션을 기다리는 스레드가 있는 경우</li>
+ *     <li>count 전용 스레드 풀의 큐가 가득 찬 경우</li>
+ * </ul>
+ * count 쿼리는 작업 스레드에서 만들어야 한다. 공유 EntityManager 프록시는 실행 스레드의 트랜잭션에 묶인 EntityManager 를 쓴다.
+ */
+@Component
+public class ParallelCountExecutor implements DisposableBean {
+
+    private final QuerydslProperties.ParallelCount properties;
+    private final DataSource dataSource;
+    private final TransactionTemplate readOnly;
+    private final ThreadPoolExecutor executor;
+    private final Counter parallel;
+    private final Counter sequential;
+
+    public ParallelCountExecutor(QuerydslProperties properties, DataSource dataSource, PlatformTransactionManager transactionManager,
+                                 MeterRegistry registry) {
+        this.properties = properties.getParallelCount();
+        this.dataSource = dataSource;
+        this.readOnly = new TransactionTemplate(transactionManager);
+        this.readOnly.setReadOnly(true);
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(this.properties.getThreads(), this.properties.getThreads(), 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(Math.max(1, this.properties.getQueueCapacity())), runnable -> {
+                Thread thread = new Thread(runnable, "parallel-count-" + threadNumber.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        this.executor.allowCoreThreadTimeOut(true);
+
+        this.parallel = Counter.builder("repository.query.count.mode").tag("mode", "parallel").register(registry);
+        this.sequential = Counter.builder("repository.query.count.mode").tag("mode", "sequential").register(registry);
+    }
+
+    /**
+     * count 를 미리 시작하고, 결과를 기다리는 supplier 를 돌려준다.
+     * 병렬로 실행할 수 없으면 count 를 그대로 돌려주므로 PageableExecutionUtils 가 필요할 때만 실행한다.
+     */
+    public LongSupplier prefetch(LongSupplier count) {
+        if (!properties.isEnabled() || !Transactions.isReadOnlyOrAbsent() || ReadYourWrites.isPinned() || poolUnderPressure()) {
+            sequential.increment();
+            return count;
+        }
+
+        Future<Long> future;
+        try {
+            future = executor.submit(() -> readOnly.execute(status -> count.getAsLong()));
+        } catch (RejectedExecutionException e) {
+            sequential.increment();
+            return count;
+        }
+        parallel.increment();
+
+        return () -> {
+            try {
+                return future.get();
+            } catch (InterruptedException e) {
+                future.cancel(true);
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for count query", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) e.getCause();
+                }
+                throw new IllegalStateException("Count query failed", e.getCause());
+            }
+        };
+    }
+
+    private boolean poolUnderPressure() {
+        HikariPoolMXBean pool = hikariPool();
+        return pool != null
+            && (pool.getIdleConnections() < properties.getMinIdleConnections() || pool.getThreadsAwaitingConnection() > 0);
+    }
+
+    private HikariPoolMXBean hikariPool() {
+        try {
+            return dataSource.isWrapperFor(HikariDataSource.class) ? dataSource.unwrap(HikariDataSource.class).getHikariPoolMXBean() : null;
+        } catch (SQLException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+}
@@ -1,12 +1,15 @@
 package io.hkarling.qeurydsl.repository.support;
 
+import com.querydsl.core.QueryMetadata;
 import com.querydsl.core.types.EntityPath;
 import com.querydsl.core.types.Expression;
 import com.querydsl.core.types.dsl.PathBuilder;
+import com.querydsl.jpa.JPQLQuery;
 import com.querydsl.jpa.impl.JPAQuery;
 import com.querydsl.jpa.impl.JPAQueryFactory;
 import java.util.List;
 import java.util.function.Function;
+import java.util.function.LongSupplier;
 import javax.annotation.PostConstruct;
 import javax.persistence.EntityManager;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -33,6 +36,10 @@ public abstract class Querydsl4RepositorySupport {
     private Querydsl querydsl;
     private EntityManager entityManager;
     private JPAQueryFactory queryFactory;
+    private CountQueryCache countQueryCache;
+    private RepositoryMetrics metrics;
+    private ParallelCountExecutor parallelCountExecutor;
+    private CountQueryDeriver countQueryDeriver;
 
     public Querydsl4RepositorySupport(Class<?> domainClass) {
         Assert.notNull(domainClass, "Domain class must not be null!");
@@ -47,7 +54,31 @@ public abstract class Querydsl4RepositorySupport {
         EntityPath path = resolver.createPath(entityInformation.getJavaType());
         this.entityManager = entityManager;
         this.querydsl = new Querydsl(entityManager, new PathBuilder<>(path.getType(), path.getMetadata()));
-        this.queryFactory = new JPAQueryFactory(entityManager);
+    }
+
+    @Autowired
+    public void setQueryFactory(JPAQueryFactory queryFactory) {
+        this.queryFactory = queryFactory; // 공유 Bean (config.QuerydslConfig)
+    }
+
+    @Autowired
+    public void setCountQueryCache(CountQueryCache countQueryCache) {
+        this.countQueryCache = countQueryCache;
+    }
+
+    @Autowired
+    public void setMetrics(RepositoryMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    @Autowired
+    public void setParallelCountExecutor(ParallelCountExecutor parallelCountExecutor) {
+        this.parallelCountExecutor = parallelCountExecutor;
+    }
+
+    @Autowired
+    public void setCountQueryDeriver(CountQueryDeriver countQueryDeriver) {
+        this.countQueryDeriver = countQueryDeriver;
     }
 
     @PostConstruct
@@ -55,6 +86,10 @@ public abstract class Querydsl4RepositorySupport {
         Assert.notNull(entityManager, "EntityManager must not be null!");
         Assert.notNull(querydsl, "Querydsl must not be null!");
         Assert.notNull(queryFactory, "QueryFactory must not be null!");
+        Assert.notNull(countQueryCache, "CountQueryCache must not be null!");
+        Assert.notNull(metrics, "RepositoryMetrics must not be null!");
+        Assert.notNull(parallelCountExecutor, "ParallelCountExecutor must not be null!");
+        Assert.notNull(countQueryDeriver, "CountQueryDeriver must not be null!");
     }
 
     protected JPAQueryFactory getQueryFactory() {
@@ -77,16 +112,104 @@ public abstract class Querydsl4RepositorySupport {
         return getQueryFactory().selectFrom(from);
     }
 
+    /**
+     * content 쿼리에서 projection, order by, fetch join, 참조되지 않는 to-one left join 을 뺀 id count 쿼리를 만든다.
+     * offset/limit 을 추가하기 전에 호출한다.
+     *
+     * @see CountQueryDeriver
+     */
+    protected JPAQuery<Long> countQuery(JPQLQuery<?> contentQuery) {
+        return countQueryDeriver.derive(contentQuery);
+    }
+
     protected <T> Page<T> applyPagination(Pageable pageable, Function<JPAQueryFactory, JPAQuery> contentQuery) {
+        return applyPagination(pageable, FetchPlan.none(), contentQuery);
+    }
+
+    /**
+     * count 쿼리는 content 쿼리에서 만든다. ({@link #countQuery(JPQLQuery)})
+     *
+     * @param fetchPlan content 와 함께 읽을 연관관계. count 쿼리에는 적용하지 않는다.
+     */
+    protected <T> Page<T> applyPagination(Pageable pageable, FetchPlan fetchPlan, Function<JPAQueryFactory, JPAQuery> contentQuery) {
         JPAQuery jpaQuery = contentQuery.apply(getQueryFactory());
-        List<T> content = getQuerydsl().applyPagination(pageable, jpaQuery).fetch();
-        return PageableExecutionUtils.getPage(content, pageable, jpaQuery::fetchCount);
+        String method = metricName("applyPagination");
+        String shape = RepositoryMetrics.shapeOf(jpaQuery.getMetadata());
+        // count 는 다른 스레드에서 실행될 수 있으므로 applyPagination 이 offset/limit 을 추가하기 전에 별도 쿼리로 만들어 둔다.
+        // fetch join, entity graph 도 그 뒤에 content 쿼리에만 적용한다.
+        JPAQuery<Long> countResult = countQuery(jpaQuery);
+        Object countKey = countCacheKey(countResult.getMetadata());
+        LongSupplier count = prefetchCount(countKey, () -> metrics.count(method, shape, countResult::fetchOne));
+        List<T> content = metrics.content(method, shape, () -> fetchPlan.load(
+            getQuerydsl().applyPagination(pageable, fetchPlan.applyTo(jpaQuery, getEntityManager())).fetch(), getEntityManager()));
+        return PageableExecutionUtils.getPage(content, pageable, count);
     }
 
     protected <T> Page<T> applyPagination(Pageable pageable, Function<JPAQueryFactory, JPAQuery> contentQuery, Function<JPAQueryFactory, JPAQuery> countQuery) {
+        return applyPagination(pageable, FetchPlan.none(), contentQuery, countQuery);
+    }
+
+    protected <T> Page<T> applyPagination(Pageable pageable, FetchPlan fetchPlan, Function<JPAQueryFactory, JPAQuery> contentQuery,
+                                          Function<JPAQueryFactory, JPAQuery> countQuery) {
         JPAQuery jpaContentQuery = contentQuery.apply(getQueryFactory());
-        List<T> content = getQuerydsl().applyPagination(pageable, jpaContentQuery).fetch();
+        String method = metricName("applyPagination");
+        String shape = RepositoryMetrics.shapeOf(jpaContentQuery.getMetadata());
         JPAQuery countResult = countQuery.apply(getQueryFactory());
-        return PageableExecutionUtils.getPage(content, pageable, countResult::fetchCount);
+        Object countKey = countCacheKey(countResult.getMetadata());
+        LongSupplier count = prefetchCount(countKey, () -> metrics.count(method, shape, countResult::fetchCount));
+        List<T> content = metrics.content(method, shape, () -> fetchPlan.load(
+            getQuerydsl().applyPagination(pageable, fetchPlan.applyTo(jpaContentQuery, getEntityManager())).fetch(), getEntityManager()));
+        return PageableExecutionUtils.getPage(content, pageable, count);
+    }
+
+    /**
+     * fetch plan 을 적용해서 조회한다. (fetch join, entity graph 힌트, 또는 조회 후 batch 로딩)
+     */
+    protected <T> List<T> fetch(FetchPlan fetchPlan, JPAQuery<T> query) {
+        return fetchPlan.load(fetchPlan.applyTo(query, getEntityManager()).fetch(), getEntityManager());
+    }
+
+    /**
+     * offset 대신 마지막으로 본 (정렬 키, id) 이후부터 조회한다. 몇 번째 페이지든 비용이 첫 페이지와 같다.
+     * size + 1 건을 조회해서 다음 페이지 존재 여부를 판단하므로 count 쿼리는 실행하지 않는다.
+     */
+    protected <T> KeysetPage<T> applyKeysetPagination(KeysetSort<T, ?> sort, KeysetCursor cursor, int size,
+        Function<JPAQueryFactory, JPAQuery<T>> contentQuery) {
+        JPAQuery<T> jpaQuery = contentQuery.apply(getQueryFactory());
+        String shape = RepositoryMetrics.shapeOf(jpaQuery.getMetadata()); // 커서 조건은 shape 에서 제외
+        if (cursor != null) {
+            jpaQuery.where(sort.after(cursor));
+        }
+        List<T> rows = metrics.content(metricName("applyKeysetPagination"), shape,
+            () -> jpaQuery
+                .orderBy(sort.orderBy())
+                .limit(size + 1L)
+                .fetch());
+
+        boolean hasNext = rows.size() > size;
+        List<T> content = hasNext ? rows.subList(0, size) : rows;
+        String nextCursor = hasNext ? sort.cursorOf(content.get(content.size() - 1)).encode() : null;
+        return new KeysetPage<>(content, nextCursor, hasNext);
+    }
+
+    /**
+     * 캐시에 없는 count 는 content 쿼리와 동시에 시작한다. (querydsl.parallel-count.enabled)
+     * JPAQuery 는 공유 EntityManager 프록시로 만들었으므로 실행하는 스레드의 트랜잭션에서 쿼리가 생성된다.
+     */
+    private LongSupplier prefetchCount(Object countKey, LongSupplier countQuery) {
+        LongSupplier cachedCount = () -> countQueryCache.get(countKey, countQuery);
+        return countQueryCache.contains(countKey) ? cachedCount : parallelCountExecutor.prefetch(cachedCount);
+    }
+
+    private String metricName(String method) {
+        return getClass().getSimpleName() + "." + method;
+    }
+
+    /**
+     * Querydsl 의 QueryMetadata 는 where 조건, join, 파라미터 값까지 포함해 equals 를 구현하므로
+     * 같은 검색 조건으로 만든 count 쿼리는 같은 키가 된다.
+     */
+    private Object countCacheKey(QueryMetadata metadata) {
+        return List.of(getClass().getName(), metadata.clone());
     }
-}
\ No newline at end of file
+}
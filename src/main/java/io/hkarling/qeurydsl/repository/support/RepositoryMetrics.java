@@ -0,0 +1,100 @@
+package io.hkarling.qeurydsl.repository.support;
+
+import com.querydsl.core.QueryMetadata;
+import com.querydsl.core.types.Expression;
+import com.querydsl.core.types.Operation;
+import com.querydsl.core.types.Path;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Repository 쿼리 실행 시간(Timer)과 반환 row 수(DistributionSummary)를 method / shape / phase 태그로 기록한다.
+ * shape 은 where 절에서 실제로 쓰인 조건의 조합이고, phase 는 content 또는 count 이다.
+ */
+@Component
+@RequiredArgsConstructor
+public class RepositoryMetrics {
+
+    public static final String QUERY_TIMER = "repository.query";
+    public static final String QUERY_ROWS = "repository.query.rows";
+
+    public static final String PHASE_CONTENT = "content";
+    public static final String PHASE_COUNT = "count";
+
+    private final MeterRegistry registry;
+    private final Map<List<String>, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<List<String>, DistributionSummary> summaries = new ConcurrentHashMap<>();
+
+    public <T> List<T> content(String method, String shape, Supplier<List<T>> query) {
+        List<T> result = timer(method, shape, PHASE_CONTENT).record(query);
+        rows(method, shape, PHASE_CONTENT).record(result.size());
+        return result;
+    }
+
+    public long count(String method, String shape, LongSupplier query) {
+        long started = System.nanoTime();
+        try {
+            return query.getAsLong();
+        } finally {
+            timer(method, shape, PHASE_COUNT).record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * content 와 count 를 한 번에 실행하는 fetchResults 같은 경우
+     */
+    public <T> T record(String method, String shape, String phase, Supplier<T> query) {
+        return timer(method, shape, phase).record(query);
+    }
+
+    public void recordRows(String method, String shape, String phase, long rows) {
+        rows(method, shape, phase).record(rows);
+    }
+
+    /**
+     * where 절에서 참조하는 path 들로 만든 shape. 예) "member1.age+team.name", 조건이 없으면 "none"
+     */
+    public static String shapeOf(QueryMetadata metadata) {
+        Set<String> paths = new TreeSet<>();
+        collectPaths(metadata.getWhere(), paths);
+        return paths.isEmpty() ? "none" : String.join("+", paths);
+    }
+
+    private static void collectPaths(Expression<?> expression, Set<String> paths) {
+        if (expression instanceof Path) {
+            paths.add(expression.toString());
+        } else if (expression instanceof Operation) {
+            for (Expression<?> arg : ((Operation<?>) expression).getArgs()) {
+                collectPaths(arg, paths);
+            }
+        }
+    }
+
+    private Timer timer(String method, String shape, String phase) {
+        return timers.computeIfAbsent(List.of(method, shape, phase), key -> Timer.builder(QUERY_TIMER)
+            .description("Repository query latency")
+            .tags("method", method, "shape", shape, "phase", phase)
+            .publishPercentiles(0.5, 0.99)
+            .publishPercentileHistogram()
+            .register(registry));
+    }
+
+    private DistributionSummary rows(String method, String shape, String phase) {
+        return summaries.computeIfAbsent(List.of(method, shape, phase), key -> DistributionSummary.builder(QUERY_ROWS)
+            .description("Rows returned by repository queries")
+            .baseUnit("rows")
+            .tags("method", method, "shape", shape, "phase", phase)
+            .register(registry));
+    }
+}
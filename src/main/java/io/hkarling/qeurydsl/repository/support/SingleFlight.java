@@ -0,0 +1,92 @@
+package io.hkarling.qeurydsl.repository.support;
+
+import io.hkarling.qeurydsl.config.QuerydslProperties;
+import io.hkarling.qeurydsl.routing.ReadYourWrites;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import org.springframework.stereotype.Component;
+
+/**
+ * 같은 키로 동시에 들어온 조회를 한 번만 실행하고, 먼저 온 호출(leader)의 결과를 나머지(follower)가 함께 받는다.
+ * 실행이 끝나면 바로 지우므로 캐시가 아니다. 끝난 뒤에 들어온 호출은 다시 실행한다.
+ * <p>
+ * 결과 객체를 여러 호출이 공유하므로 받은 쪽에서 수정하면 안 된다.
+ * 쓰기 트랜잭션 안의 호출과 이미 primary 에 쓴 요청의 호출({@link ReadYourWrites#isPinned()})은 자기 변경이 보여야 하므로 합치지 않는다.
+ * follower 는 querydsl.single-flight.follower-timeout 까지만 기다리고, 그래도 끝나지 않으면 직접 실행한다. (leader 가 멈춰도 함께 멈추지 않는다)
+ * <ul>
+ *     <li>repository.query.coalesced : 다른 호출의 실행 결과를 기다린 호출 수 (method)</li>
+ *     <li>repository.query.coalesced.timeouts : 그중 기다리다 직접 실행한 호출 수 (method)</li>
+ *     <li>repository.query.inflight : 실행 중인 키 수</li>
+ * </ul>
+ */
+@Component
+public class SingleFlight {
+
+    private final Map<Object, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+    private final QuerydslProperties.SingleFlight properties;
+    private final MeterRegistry registry;
+
+    public SingleFlight(QuerydslProperties properties, MeterRegistry registry) {
+        this.properties = properties.getSingleFlight();
+        this.registry = registry;
+        Gauge.builder("repository.query.inflight", inFlight, Map::size).register(registry);
+    }
+
+    /**
+     * @param method 메트릭 태그
+     * @param key    조회 메서드와 파라미터를 포함한 키 (equals/hashCode 구현 필수)
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String method, Object key, Supplier<T> call) {
+        if (!Transactions.isReadOnlyOrAbsent() || ReadYourWrites.isPinned()) {
+            return call.get();
+        }
+
+        CompletableFuture<Object> leader = new CompletableFuture<>();
+        CompletableFuture<Object> existing = inFlight.putIfAbsent(key, leader);
+        if (existing != null) {
+            registry.counter("repository.query.coalesced", "method", method).increment();
+            try {
+                return (T) await(existing);
+            } catch (TimeoutException e) {
+                registry.counter("repository.query.coalesced.timeouts", "method", method).increment();
+                return call.get();
+            }
+        }
+
+        try {
+            T result = call.get();
+            leader.complete(result);
+            return result;
+        } catch (RuntimeException | Error e) {
+            leader.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, leader);
+        }
+    }
+
+    private Object await(CompletableFuture<Object> future) throws TimeoutException {
+        try {
+            return future.get(properties.getFollowerTimeout().toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for coalesced query", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            if (e.getCause() instanceof Error) {
+                throw (Error) e.getCause();
+            }
+            throw new IllegalStateException("Coalesced query failed", e.getCause());
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package io.hkarling.qeurydsl.repository.support;
+
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+public final class Transactions {
+
+    private Transactions() {
+    }
+
+    /**
+     * 현재 스레드에 쓰기 트랜잭션이 없는지 확인한다.
+     * 쓰기 트랜잭션 안에서는 아직 commit 되지 않은 변경이 보이므로 공유 캐시/메모리 인덱스를 쓰거나 채우면 안 된다.
+     */
+    public static boolean isReadOnlyOrAbsent() {
+        return !TransactionSynchronizationManager.isActualTransactionActive()
+            || TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+}
@@ -0,0 +1,14 @@
+package io.hkarling.qeurydsl.routing;
+
+/**
+ * 커넥션을 가져올 데이터소스. 쓰기와 쓰기 트랜잭션은 PRIMARY, 읽기 전용 트랜잭션은 REPLICA 를 쓴다.
+ */
+public enum DataSourceRole {
+
+    PRIMARY,
+    REPLICA;
+
+    public String tag() {
+        return name().toLowerCase();
+    }
+}
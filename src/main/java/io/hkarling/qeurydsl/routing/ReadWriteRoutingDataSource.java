@@ -0,0 +1,87 @@
+package io.hkarling.qeurydsl.routing;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+import javax.sql.DataSource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * 읽기 전용 트랜잭션은 REPLICA, 나머지(쓰기 트랜잭션, 트랜잭션 없는 실행)는 PRIMARY 커넥션을 준다.
+ * 요청 안에서 이미 PRIMARY 에 썼으면({@link ReadYourWrites#isPinned()}) 읽기 전용 트랜잭션도 PRIMARY 를 쓴다.
+ * <p>
+ * 트랜잭션 매니저는 readOnly 속성을 스레드에 알리기 전에 커넥션을 가져가므로 반드시 {@link #lazy()} 로 감싸서 사용한다.
+ * 실제 커넥션은 첫 SQL 을 실행할 때 가져온다.
+ * <ul>
+ *     <li>datasource.routing : 가져간 커넥션 수 (role, reason = read-only, read-write, pinned, no-transaction)</li>
+ * </ul>
+ * 풀별 커넥션 메트릭은 각 HikariDataSource 의 pool-name 으로 구분된다. (hikaricp.connections.*, pool = primary, replica)
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    private final Counter readOnly;
+    private final Counter readWrite;
+    private final Counter pinned;
+    private final Counter noTransaction;
+
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica, MeterRegistry registry) {
+        setTargetDataSources(Map.of(DataSourceRole.PRIMARY, primary, DataSourceRole.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+
+        this.readOnly = counter(registry, DataSourceRole.REPLICA, "read-only");
+        this.readWrite = counter(registry, DataSourceRole.PRIMARY, "read-write");
+        this.pinned = counter(registry, DataSourceRole.PRIMARY, "pinned");
+        this.noTransaction = counter(registry, DataSourceRole.PRIMARY, "no-transaction");
+    }
+
+    public LazyConnectionDataSourceProxy lazy() {
+        return new LazyConnectionDataSourceProxy(this);
+    }
+
+    /**
+     * 부수 효과가 없어야 한다. 커넥션을 가져갈 때 외에도 unwrap, isWrapperFor 에서 호출된다.
+     */
+    @Override
+    protected DataSourceRole determineCurrentLookupKey() {
+        return isReadOnlyTransaction() && !ReadYourWrites.isPinned() ? DataSourceRole.REPLICA : DataSourceRole.PRIMARY;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        record();
+        return super.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        record();
+        return super.getConnection(username, password);
+    }
+
+    private void record() {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            noTransaction.increment();
+        } else if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            readWrite.increment();
+            ReadYourWrites.markWritten();
+        } else if (ReadYourWrites.isPinned()) {
+            pinned.increment();
+        } else {
+            readOnly.increment();
+        }
+    }
+
+    private static boolean isReadOnlyTransaction() {
+        return TransactionSynchronizationManager.isActualTransactionActive()
+            && TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+
+    private static Counter counter(MeterRegistry registry, DataSourceRole role, String reason) {
+        return Counter.builder("datasource.routing").tag("role", role.tag()).tag("reason", reason).register(registry);
+    }
+}
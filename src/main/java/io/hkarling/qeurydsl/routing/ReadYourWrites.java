@@ -0,0 +1,44 @@
+package io.hkarling.qeurydsl.routing;
+
+/**
+ * 요청 안에서 쓰기 트랜잭션이 PRIMARY 커넥션을 사용한 뒤에는 같은 요청의 읽기 전용 트랜잭션도 PRIMARY 로 보낸다. (pinned)
+ * replica 복제 지연 때문에 방금 쓴 내용이 안 보이는 것을 막는다.
+ * <p>
+ * 범위는 {@link #begin()} ~ {@link #end()} 이고 웹 요청은 {@link ReadYourWritesFilter} 가 연다.
+ * 범위 밖(배치, 테스트)에서는 기록하지 않는다. 스레드 단위이므로 다른 스레드에서 실행하는 조회는 따라오지 않는다.
+ */
+public final class ReadYourWrites {
+
+    private static final ThreadLocal<Scope> SCOPE = new ThreadLocal<>();
+
+    private ReadYourWrites() {
+    }
+
+    public static void begin() {
+        SCOPE.set(new Scope());
+    }
+
+    public static void end() {
+        SCOPE.remove();
+    }
+
+    static void markWritten() {
+        Scope scope = SCOPE.get();
+        if (scope != null) {
+            scope.written = true;
+        }
+    }
+
+    /**
+     * @return 현재 요청이 이미 PRIMARY 에 썼으면 true. 이후 읽기는 PRIMARY 에서 해야 하고, 다른 스레드나 다른 요청과 결과를 나누면 안 된다.
+     */
+    public static boolean isPinned() {
+        Scope scope = SCOPE.get();
+        return scope != null && scope.written;
+    }
+
+    private static class Scope {
+
+        private boolean written;
+    }
+}
@@ -0,0 +1,183 @@
+package io.hkarling.qeurydsl.seed;
+
+import io.hkarling.qeurydsl.config.QuerydslProperties.Seed;
+import io.hkarling.qeurydsl.config.QuerydslProperties.Seed.AgeDistribution;
+import io.hkarling.qeurydsl.event.DataVersion;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.sql.DataSource;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.stereotype.Component;
+
+/**
+ * 대량의 Team/Member 데이터를 JDBC batch insert 로 생성한다.
+ * 엔티티를 영속성 컨텍스트에 올리지 않으므로 수천만 건을 넣어도 메모리가 늘지 않고, commitInterval 마다 commit 한다.
+ * id 는 hibernate_sequence 다음 값부터 직접 부여하고, 끝나면 시퀀스를 사용한 id 뒤로 옮긴다. (H2 문법)
+ * 엔티티 이벤트가 없으므로 commit 할 때마다 {@link DataVersion} 을 직접 올린다.
+ * <p>
+ * 기본 설정(team-skew 0, age-distribution sequential)은 난수를 쓰지 않고 기존 예제와 같은 데이터를 만든다.
+ * i 번째 회원은 "member" + i, 나이 i, 팀 i % teams (teamA, teamB 번갈아)
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@DependsOn("entityManagerFactory") // ddl-auto 로 테이블이 만들어진 뒤에 실행
+public class MemberDataGenerator {
+
+    private static final String INSERT_TEAM = "insert into team (team_id, name) values (?, ?)";
+    private static final String INSERT_MEMBER = "insert into member (member_id, age, username, team_id) values (?, ?, ?, ?)";
+
+    private final DataSource dataSource;
+    private final DataVersion dataVersion;
+
+    public void generate(Seed seed) {
+        long started = System.currentTimeMillis();
+        long firstId = nextSequenceValue();
+        long firstMemberId = firstId + seed.getTeams();
+
+        insertTeams(seed, firstId);
+        insertMembers(seed, firstId, firstMemberId);
+        restartSequence(firstMemberId + seed.getMembers());
+
+        log.info("Seeded {} teams and {} members in {} ms", seed.getTeams(), seed.getMembers(),
+            System.currentTimeMillis() - started);
+    }
+
+    private void insertTeams(Seed seed, long firstTeamId) {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement ps = connection.prepareStatement(INSERT_TEAM)) {
+            connection.setAutoCommit(false);
+            for (int i = 0; i < seed.getTeams(); i++) {
+                ps.setLong(1, firstTeamId + i);
+                ps.setString(2, teamName(i));
+                ps.addBatch();
+                if ((i + 1) % seed.getBatchSize() == 0) {
+                    ps.executeBatch();
+                }
+            }
+            ps.executeBatch();
+            connection.commit();
+            dataVersion.bump();
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to insert teams", e);
+        }
+    }
+
+    private void insertMembers(Seed seed, long firstTeamId, long firstMemberId) {
+        int threads = Math.max(1, seed.getThreads());
+        long chunk = (seed.getMembers() + threads - 1) / threads;
+        ZipfDistribution teamDistribution = seed.getTeamSkew() > 0 ? new ZipfDistribution(seed.getTeams(), seed.getTeamSkew()) : null;
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int worker = 0; worker < threads; worker++) {
+                long from = worker * chunk;
+                long to = Math.min(seed.getMembers(), from + chunk);
+                if (from >= to) {
+                    break;
+                }
+                SplittableRandom random = new SplittableRandom(seed.getRandomSeed() + worker); // 같은 설정이면 같은 데이터
+                futures.add(executor.submit(() -> {
+                    insertMembers(seed, teamDistribution, random, firstTeamId, firstMemberId, from, to);
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while seeding members", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Failed to insert members", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private void insertMembers(Seed seed, ZipfDistribution teamDistribution, SplittableRandom random,
+                               long firstTeamId, long firstMemberId, long from, long to) throws SQLException {
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement ps = connection.prepareStatement(INSERT_MEMBER)) {
+            connection.setAutoCommit(false);
+            for (long i = from; i < to; i++) {
+                ps.setLong(1, firstMemberId + i);
+                ps.setInt(2, age(seed, random, i));
+                ps.setString(3, "member" + (seed.getUsernameCardinality() > 0 ? random.nextInt(seed.getUsernameCardinality()) : i));
+                ps.setLong(4, firstTeamId + (teamDistribution == null ? i % seed.getTeams() : teamDistribution.sample(random)));
+                ps.addBatch();
+
+                long done = i - from + 1;
+                if (done % seed.getBatchSize() == 0) {
+                    ps.executeBatch();
+                }
+                if (done % seed.getCommitInterval() == 0) {
+                    ps.executeBatch();
+                    connection.commit();
+                    dataVersion.bump();
+                    log.debug("Seeded members {} ~ {}", from, i);
+                }
+            }
+            ps.executeBatch();
+            connection.commit();
+            dataVersion.bump();
+        }
+    }
+
+    private static int age(Seed seed, SplittableRandom random, long index) {
+        if (seed.getAgeDistribution() == AgeDistribution.SEQUENTIAL) {
+            return seed.getAgeMin() + (int) (index % (seed.getAgeMax() - seed.getAgeMin() + 1));
+        }
+        if (seed.getAgeDistribution() == AgeDistribution.NORMAL) {
+            double gaussian = seed.getAgeMean() + nextGaussian(random) * seed.getAgeStdDev();
+            return (int) Math.max(seed.getAgeMin(), Math.min(seed.getAgeMax(), Math.round(gaussian)));
+        }
+        return seed.getAgeMin() + random.nextInt(seed.getAgeMax() - seed.getAgeMin() + 1);
+    }
+
+    private static double nextGaussian(SplittableRandom random) { // Box-Muller. SplittableRandom 에는 nextGaussian 이 없다.
+        double u1 = 1.0 - random.nextDouble();
+        double u2 = random.nextDouble();
+        return Math.sqrt(-2 * Math.log(u1)) * Math.cos(2 * Math.PI * u2);
+    }
+
+    /**
+     * 기존 예제와 호환되도록 앞의 26개 팀은 teamA ~ teamZ 로 만든다.
+     */
+    static String teamName(int index) {
+        return index < 26 ? "team" + (char) ('A' + index) : "team" + index;
+    }
+
+    private long nextSequenceValue() {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet rs = statement.executeQuery("select next value for hibernate_sequence")) {
+            rs.next();
+            return rs.getLong(1);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to read hibernate_sequence", e);
+        }
+    }
+
+    private void restartSequence(long nextValue) {
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.execute("alter sequence hibernate_sequence restart with " + nextValue);
+        } catch (SQLException e) {
+            throw new IllegalStateException("Failed to restart hibernate_sequence", e);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package io.hkarling.qeurydsl.bulkhead;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.hkarling.qeurydsl.config.BulkheadProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class BulkheadRegistryTest {
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    BulkheadRegistry bulkheadRegistry;
+
+    @BeforeEach
+    public void before() {
+        BulkheadProperties properties = new BulkheadProperties();
+        properties.getList().setMaxConcurrent(1);
+        properties.getList().setQueueDepth(0);
+        properties.getExport().setMaxConcurrent(1);
+        properties.getExport().setQueueDepth(1);
+        properties.getExport().setTimeout(Duration.ofMillis(50));
+        bulkheadRegistry = new BulkheadRegistry(properties, meterRegistry);
+    }
+
+    @Test
+    public void queueFullFailsFast() {
+        bulkheadRegistry.acquire(Lane.LIST);
+
+        assertThatThrownBy(() -> bulkheadRegistry.acquire(Lane.LIST))
+            .isInstanceOf(BulkheadFullException.class)
+            .hasMessageContaining("queue-full");
+        bulkheadRegistry.acquire(Lane.INTERACTIVE); // 다른 구획은 영향이 없다.
+
+        bulkheadRegistry.release(Lane.LIST);
+        bulkheadRegistry.acquire(Lane.LIST);
+        assertThat(meterRegistry.get("bulkhead.rejected").tags("lane", "list", "reason", "queue-full").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    public void waitTimesOut() {
+        bulkheadRegistry.acquire(Lane.EXPORT);
+
+        assertThatThrownBy(() -> bulkheadRegistry.acquire(Lane.EXPORT))
+            .isInstanceOf(BulkheadFullException.class)
+            .hasMessageContaining("timeout");
+        assertThat(meterRegistry.get("bulkhead.queue.wait").tag("lane", "export").timer().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("bulkhead.waiting").tag("lane", "export").gauge().value()).isEqualTo(0);
+    }
+}
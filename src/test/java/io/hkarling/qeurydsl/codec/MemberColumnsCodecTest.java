@@ -0,0 +1,83 @@
+package io.hkarling.qeurydsl.codec;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.hkarling.qeurydsl.dto.MemberTeamDTO;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.mock.http.MockHttpInputMessage;
+
+class MemberColumnsCodecTest {
+
+    private static final Type LIST_TYPE = new ParameterizedTypeReference<List<MemberTeamDTO>>() {}.getType();
+
+    @Test
+    public void roundTrip() throws IOException {
+        List<MemberTeamDTO> rows = List.of(
+            new MemberTeamDTO(10L, "member1", 10, 1L, "teamA"),
+            new MemberTeamDTO(3L, "회원2", -1, 2L, "teamB"), // id 가 줄어드는 정렬, 음수, 한글
+            new MemberTeamDTO(Long.MAX_VALUE, null, 30, null, null),
+            new MemberTeamDTO(4L, "", 40, 1L, "teamA"),
+            new MemberTeamDTO(5L, "member5", 50, 3L, null)); // 이름 없는 팀
+
+        assertThat(decode(encode(rows))).isEqualTo(rows);
+        assertThat(decode(encode(List.of()))).isEmpty();
+    }
+
+    @Test
+    public void smallerThanJson() throws IOException {
+        List<MemberTeamDTO> rows = new ArrayList<>();
+        for (long i = 1; i <= 10000; i++) {
+            rows.add(new MemberTeamDTO(i, "member" + i, (int) (i % 100), i % 2 == 0 ? 1L : 2L, i % 2 == 0 ? "teamA" : "teamB"));
+        }
+
+        byte[] columns = encode(rows);
+
+        assertThat(decode(columns)).isEqualTo(rows);
+        assertThat(columns.length * 3).isLessThan(new ObjectMapper().writeValueAsBytes(rows).length);
+    }
+
+    @Test
+    public void rejectsOtherStreams() {
+        assertThatThrownBy(() -> decode("[{}]".getBytes())).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    public void rejectsMalformedStreams() throws IOException {
+        byte[] bytes = encode(List.of(new MemberTeamDTO(1L, "member1", 10, 1L, "teamA")));
+
+        assertThatThrownBy(() -> decode(Arrays.copyOf(bytes, bytes.length - 1))).isInstanceOf(EOFException.class); // 잘린 입력
+        byte[] badTeam = bytes.clone();
+        badTeam[badTeam.length - 1] = 2; // 팀은 하나뿐이다.
+        assertThatThrownBy(() -> decode(badTeam)).isInstanceOf(IOException.class).hasMessageContaining("Team index");
+        byte[] hugeCount = {'M', 'C', 1, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x7F};
+        assertThatThrownBy(() -> decode(hugeCount)).isInstanceOf(IOException.class).hasMessageContaining("rows");
+        byte[] manyRows = {'M', 'C', 1, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07, 0}; // int 최댓값 행, 내용 없음
+        assertThatThrownBy(() -> decode(manyRows)).isInstanceOf(EOFException.class);
+
+        MockHttpInputMessage message = new MockHttpInputMessage(badTeam);
+        assertThatThrownBy(() -> new MemberColumnsHttpMessageConverter().read(LIST_TYPE, null, message))
+            .isInstanceOf(HttpMessageNotReadableException.class);
+    }
+
+    private static byte[] encode(List<MemberTeamDTO> rows) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        MemberColumnsCodec.encode(rows, out);
+        return out.toByteArray();
+    }
+
+    private static List<MemberTeamDTO> decode(byte[] bytes) throws IOException {
+        return MemberColumnsCodec.decode(new ByteArrayInputStream(bytes));
+    }
+}
@@ -0,0 +1,99 @@
+package io.hkarling.qeurydsl.etag;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.hkarling.qeurydsl.entity.Member;
+import io.hkarling.qeurydsl.entity.Team;
+import io.hkarling.qeurydsl.event.DataVersion;
+import io.hkarling.qeurydsl.event.EntityChangedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.method.HandlerMethod;
+
+class ConditionalGetInterceptorTest {
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    DataVersion dataVersion = new DataVersion();
+    ConditionalGetInterceptor interceptor = new ConditionalGetInterceptor(dataVersion, meterRegistry);
+
+    @Test
+    public void notModifiedUntilDataChanges() throws Exception {
+        String etag = firstResponse(request("teamName", "teamA")).getHeader(HttpHeaders.ETAG);
+
+        MockHttpServletRequest revalidate = request("teamName", "teamA");
+        revalidate.addHeader(HttpHeaders.IF_NONE_MATCH, etag);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        assertThat(interceptor.preHandle(revalidate, response, handler("search"))).isFalse();
+        assertThat(response.getStatus()).isEqualTo(304);
+
+        dataVersion.onEntityChanged(new EntityChangedEvent(Team.class, 1L, EntityChangedEvent.ChangeType.UPDATE, null, null, null));
+        MockHttpServletRequest afterChange = request("teamName", "teamA");
+        afterChange.addHeader(HttpHeaders.IF_NONE_MATCH, etag);
+        assertThat(interceptor.preHandle(afterChange, new MockHttpServletResponse(), handler("search"))).isTrue();
+
+        assertThat(meterRegistry.get("http.conditional.get").tag("result", "not-modified").counter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("http.conditional.get").tag("result", "modified").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    public void etagDependsOnParametersNotTheirOrder() throws Exception {
+        MockHttpServletRequest first = request("teamName", "teamA");
+        first.addParameter("ageGoe", "10");
+        MockHttpServletRequest reordered = request("ageGoe", "10");
+        reordered.addParameter("teamName", "teamA");
+
+        assertThat(interceptor.etag(first)).isEqualTo(interceptor.etag(reordered));
+        assertThat(interceptor.etag(first)).isNotEqualTo(interceptor.etag(request("teamName", "teamB")));
+        MockHttpServletRequest binary = request("teamName", "teamA");
+        binary.addParameter("ageGoe", "10");
+        binary.addHeader(HttpHeaders.ACCEPT, "application/x-member-columns");
+        assertThat(interceptor.etag(first)).isNotEqualTo(interceptor.etag(binary)); // 표현이 다르다.
+
+        dataVersion.onEntityChanged(EntityChangedEvent.bulk(Member.class));
+        assertThat(dataVersion.current()).isEqualTo(1);
+        dataVersion.onEntityChanged(EntityChangedEvent.bulk(String.class)); // Member/Team 이 아니면 그대로
+        assertThat(dataVersion.current()).isEqualTo(1);
+
+        String beforeSeed = interceptor.etag(first);
+        dataVersion.bump(); // 이벤트 없이 JDBC 로 넣은 seed
+        assertThat(interceptor.etag(first)).isNotEqualTo(beforeSeed);
+    }
+
+    @Test
+    public void onlyAnnotatedHandlers() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertThat(interceptor.preHandle(request("teamName", "teamA"), response, handler("stream"))).isTrue();
+        assertThat(response.getHeader(HttpHeaders.ETAG)).isNull();
+    }
+
+    private MockHttpServletResponse firstResponse(MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        assertThat(interceptor.preHandle(request, response, handler("search"))).isTrue();
+        assertThat(response.getHeader(HttpHeaders.ETAG)).startsWith("W/\"");
+        return response;
+    }
+
+    private static MockHttpServletRequest request(String name, String value) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/v3/members");
+        request.addParameter(name, value);
+        return request;
+    }
+
+    private static HandlerMethod handler(String method) throws NoSuchMethodException {
+        return new HandlerMethod(new Handlers(), Handlers.class.getMethod(method));
+    }
+
+    public static class Handlers {
+
+        @ConditionalGet
+        public void search() {
+        }
+
+        public void stream() {
+        }
+    }
+}
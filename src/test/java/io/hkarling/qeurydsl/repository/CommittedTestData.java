@@ -0,0 +1,50 @@
+package io.hkarling.qeurydsl.repository;
+
+import io.hkarling.qeurydsl.entity.Member;
+import io.hkarling.qeurydsl.entity.Team;
+import javax.persistence.EntityManager;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * commit 후 동작을 검증하는 테스트의 데이터 정리. 시작할 때의 마지막 회원/팀 id 를 기억해 두고 그 뒤에 만든 것만 지운다.
+ * bulk delete 와 달리 EntityManager 로 하나씩 지우므로 삭제 이벤트가 나가고, 메모리 구조(사전, 색인, 통계, 캐시)도 함께 맞춰진다.
+ */
+class CommittedTestData {
+
+    private final EntityManager em;
+    private final TransactionTemplate transactionTemplate;
+    private final long lastMemberId;
+    private final long lastTeamId;
+
+    private CommittedTestData(EntityManager em, TransactionTemplate transactionTemplate, long lastMemberId, long lastTeamId) {
+        this.em = em;
+        this.transactionTemplate = transactionTemplate;
+        this.lastMemberId = lastMemberId;
+        this.lastTeamId = lastTeamId;
+    }
+
+    static CommittedTestData mark(EntityManager em, PlatformTransactionManager transactionManager) {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        return transactionTemplate.execute(status -> new CommittedTestData(em, transactionTemplate,
+            em.createQuery("select coalesce(max(m.id), 0) from Member m", Long.class).getSingleResult(),
+            em.createQuery("select coalesce(max(t.id), 0) from Team t", Long.class).getSingleResult()));
+    }
+
+    /**
+     * mark 이후에 만든 회원, 팀을 지운다. 회원이 팀을 참조하므로 회원을 먼저 지운다.
+     */
+    void delete() {
+        transactionTemplate.executeWithoutResult(status -> {
+            em.createQuery("select m from Member m where m.id > :id", Member.class)
+                .setParameter("id", lastMemberId)
+                .getResultList()
+                .forEach(em::remove);
+            em.flush();
+            em.createQuery("select t from Team t where t.id > :id", Team.class)
+                .setParameter("id", lastTeamId)
+                .getResultList()
+                .forEach(em::remove);
+        });
+    }
+}
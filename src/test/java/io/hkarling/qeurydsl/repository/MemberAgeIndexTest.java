@@ -0,0 +1,156 @@
+package io.hkarling.qeurydsl.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.hkarling.qeurydsl.dto.MemberSearchCondition;
+import io.hkarling.qeurydsl.dto.MemberTeamDTO;
+import io.hkarling.qeurydsl.entity.Member;
+import io.hkarling.qeurydsl.entity.Team;
+import io.hkarling.qeurydsl.event.EntityChangedEvent;
+import io.hkarling.qeurydsl.repository.support.CountMode;
+import io.hkarling.qeurydsl.repository.support.EstimatedPage;
+import javax.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * 색인은 commit 된 변경만 반영하므로 트랜잭션 없이(commit 후) 검증하고, 끝나면 만든 데이터만 EntityManager 로 지운다.
+ * 이벤트 없이 바꾸는 테스트가 있으므로 시작할 때 다시 읽는다.
+ */
+@SpringBootTest
+class MemberAgeIndexTest {
+
+    @Autowired
+    private EntityManager em;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MemberAgeIndex ageIndex;
+
+    @Autowired
+    private MemberRepository memberRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    private TransactionTemplate transactionTemplate;
+    private CommittedTestData testData;
+    private Long teamBId;
+
+    @BeforeEach
+    public void before() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        testData = CommittedTestData.mark(em, transactionManager);
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = new Team("teamA");
+            Team teamB = new Team("teamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            for (int i = 0; i < 20; i++) {
+                em.persist(new Member("member" + i, i, i < 15 ? teamA : teamB));
+            }
+            em.persist(new Member("member20", 20));
+            teamBId = teamB.getId();
+        });
+        ageIndex.reload();
+    }
+
+    @AfterEach
+    public void after() {
+        testData.delete();
+    }
+
+    @Test
+    public void countAndIds() {
+        assertThat(ageIndex.count(condition(null, null, null))).hasValue(21);
+        assertThat(ageIndex.count(condition(null, 10, 19))).hasValue(10);
+        assertThat(ageIndex.count(condition("teamA", 10, null))).hasValue(5);
+        assertThat(ageIndex.count(condition("teamB", null, 16))).hasValue(2);
+        assertThat(ageIndex.count(condition("teamC", null, null))).hasValue(0);
+        assertThat(ageIndex.count(condition("teamA", 10, 5))).hasValue(0);
+
+        long[] ids = ageIndex.ids(condition("teamA", 12, null));
+        assertThat(ids).hasSize(3).isSorted();
+        assertThat(ageIndex.ids(condition(null, 18, null))).hasSize(3).isSorted();
+
+        MemberSearchCondition username = condition(null, 10, null);
+        username.setUsernamePrefix("member1");
+        assertThat(ageIndex.count(username)).isEmpty();
+    }
+
+    @Test
+    public void changesAreAppliedAfterCommit() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Member member0 = em.createQuery("select m from Member m where m.username = 'member0'", Member.class).getSingleResult();
+            member0.setAge(30);
+            member0.changeTeam(em.find(Team.class, teamBId));
+            em.persist(new Member("member21", 31, em.find(Team.class, teamBId)));
+            em.flush();
+            assertThat(ageIndex.count(condition(null, null, null))).isEmpty(); // 쓰기 트랜잭션 안에서는 쿼리로 센다.
+        });
+        transactionTemplate.executeWithoutResult(status ->
+            em.remove(em.createQuery("select m from Member m where m.username = 'member20'", Member.class).getSingleResult()));
+
+        assertThat(ageIndex.count(condition("teamA", null, null))).hasValue(14);
+        assertThat(ageIndex.count(condition("teamB", 30, null))).hasValue(2);
+        assertThat(ageIndex.count(condition(null, null, null))).hasValue(21);
+        assertThat(ageIndex.size()).isEqualTo(21);
+    }
+
+    @Test
+    public void searchPageComplexEstimatesWithIndex() {
+        Page<MemberTeamDTO> page = memberRepository.searchPageComplex(condition("teamA", 5, null), PageRequest.of(0, 3), CountMode.ESTIMATED);
+        assertThat(page.getContent()).hasSize(3);
+        assertThat(page.getTotalElements()).isEqualTo(10);
+        assertThat(((EstimatedPage<MemberTeamDTO>) page).isTotalEstimated()).isTrue();
+    }
+
+    @Test
+    public void changesWithoutEventsAreReconciled() {
+        transactionTemplate.executeWithoutResult(status ->
+            em.createQuery("update Member m set m.age = m.age + 100 where m.team.id <> :teamBId")
+                .setParameter("teamBId", teamBId)
+                .executeUpdate()); // 이벤트 없음
+
+        // exact 는 색인을 쓰지 않는다.
+        Page<MemberTeamDTO> exact = memberRepository.searchPageComplex(condition("teamA", 100, null), PageRequest.of(0, 3));
+        assertThat(exact.getTotalElements()).isEqualTo(15);
+        assertThat(ageIndex.count(condition("teamA", 100, null))).hasValue(0);
+
+        assertThat(ageIndex.reconcile()).isFalse();
+        assertThat(ageIndex.count(condition("teamA", 100, null))).hasValue(15);
+        assertThat(ageIndex.reconcile()).isTrue();
+    }
+
+    @Test
+    public void bulkChangeReloads() throws InterruptedException {
+        transactionTemplate.executeWithoutResult(status -> {
+            em.createQuery("update Member m set m.age = m.age + 100").executeUpdate();
+            eventPublisher.publishEvent(EntityChangedEvent.bulk(Member.class));
+        });
+
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (ageIndex.count(condition(null, 100, null)).orElse(0) < 21 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10); // commit 후 예약된 reload 를 기다린다.
+        }
+        assertThat(ageIndex.count(condition(null, 100, null))).hasValue(21);
+    }
+
+    private static MemberSearchCondition condition(String teamName, Integer ageGoe, Integer ageLoe) {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName(teamName);
+        condition.setAgeGoe(ageGoe);
+        condition.setAgeLoe(ageLoe);
+        return condition;
+    }
+}
@@ -0,0 +1,127 @@
+package io.hkarling.qeurydsl.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.hkarling.qeurydsl.config.QuerydslProperties;
+import io.hkarling.qeurydsl.dto.MemberSearchCondition;
+import io.hkarling.qeurydsl.entity.Member;
+import io.hkarling.qeurydsl.entity.Team;
+import java.util.List;
+import javax.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * chunk 마다 commit 하므로 트랜잭션 없이 실행하고, 끝나면 만든 데이터만 EntityManager 로 지운다. (삭제 이벤트로 메모리 구조도 맞춰진다)
+ */
+@SpringBootTest
+class MemberBulkOperationsTest {
+
+    @Autowired
+    private EntityManager em;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MemberBulkOperations bulkOperations;
+
+    @Autowired
+    private QuerydslProperties properties;
+
+    private TransactionTemplate transactionTemplate;
+    private CommittedTestData testData;
+    private Long teamAId;
+    private Long teamBId;
+
+    @BeforeEach
+    public void before() {
+        properties.getBulk().setChunkSize(2);
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        testData = CommittedTestData.mark(em, transactionManager);
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = new Team("teamA");
+            Team teamB = new Team("teamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            for (int i = 0; i < 5; i++) {
+                em.persist(new Member("member" + i, i * 10, teamA));
+            }
+            teamAId = teamA.getId();
+            teamBId = teamB.getId();
+        });
+    }
+
+    @AfterEach
+    public void after() {
+        properties.getBulk().setChunkSize(10000);
+        testData.delete();
+    }
+
+    @Test
+    public void adjustAgeInChunks() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(20);
+
+        long updated = bulkOperations.adjustAge(condition, 1);
+
+        assertThat(updated).isEqualTo(3);
+        assertThat(ages()).containsExactly(0, 10, 21, 31, 41);
+    }
+
+    @Test
+    public void changeTeamAndDeleteByTeamName() {
+        MemberSearchCondition teamA = new MemberSearchCondition();
+        teamA.setTeamName("teamA");
+        teamA.setAgeLoe(10);
+
+        assertThat(bulkOperations.changeTeam(teamA, teamBId)).isEqualTo(2);
+
+        MemberSearchCondition teamB = new MemberSearchCondition();
+        teamB.setTeamName("teamB");
+        assertThat(bulkOperations.delete(teamB)).isEqualTo(2);
+        assertThat(ages()).containsExactly(20, 30, 40);
+    }
+
+    @Test
+    public void evictsOnlyAffectedEntities() {
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+        readOnly.executeWithoutResult(status -> {
+            List<Member> members = em.createQuery("select m from Member m order by m.id", Member.class).getResultList();
+            Team teamA = em.find(Team.class, teamAId);
+            Team teamB = em.find(Team.class, teamBId);
+            teamA.getMembers().size(); // 컬렉션 로딩
+
+            MemberSearchCondition condition = new MemberSearchCondition();
+            condition.setUsername("member0");
+            bulkOperations.changeTeam(condition, teamBId);
+
+            assertThat(em.contains(members.get(0))).isFalse();
+            assertThat(em.contains(members.get(4))).isTrue(); // 다른 chunk
+            assertThat(em.contains(teamA)).isFalse(); // members 컬렉션이 바뀌었다.
+            assertThat(em.contains(teamB)).isTrue(); // members 컬렉션을 로딩하지 않았다.
+        });
+    }
+
+    @Test
+    public void rejectsReadWriteTransaction() {
+        assertThatThrownBy(() -> transactionTemplate.executeWithoutResult(
+            status -> bulkOperations.delete(new MemberSearchCondition())))
+            .isInstanceOf(IllegalStateException.class);
+    }
+
+    private List<Integer> ages() {
+        return transactionTemplate.execute(status -> em.createQuery(
+                "select m.age from Member m where m.team.id in (:teamAId, :teamBId) order by m.id", Integer.class)
+            .setParameter("teamAId", teamAId)
+            .setParameter("teamBId", teamBId)
+            .getResultList());
+    }
+}
@@ -0,0 +1,45 @@
+package io.hkarling.qeurydsl.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.hkarling.qeurydsl.entity.Member;
+import io.hkarling.qeurydsl.entity.Team;
+import io.hkarling.qeurydsl.repository.MemberIndexAdvisor.Advice;
+import java.util.List;
+import javax.persistence.EntityManager;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+@SpringBootTest
+@Transactional
+class MemberIndexAdvisorTest {
+
+    @Autowired
+    private EntityManager em;
+
+    @Autowired
+    private MemberIndexAdvisor indexAdvisor;
+
+    @Test
+    public void explainEveryShape() {
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        for (int i = 0; i < 100; i++) {
+            em.persist(new Member("member" + i, i, teamA));
+        }
+        em.flush();
+
+        List<Advice> advice = indexAdvisor.analyze();
+
+        // 조건이 있는 모양 x (join, dictionary, read-model) x (content, content order by age, count)
+        assertThat(advice).hasSize((MemberSearchPredicate.SHAPE_COUNT - 1) * 3 * 3);
+        Advice usernameContent = advice.stream()
+            .filter(a -> a.getShape().equals("username") && a.getVariant().equals("join") && a.getQuery().equals("content"))
+            .findFirst()
+            .orElseThrow();
+        assertThat(usernameContent.getPlan()).containsIgnoringCase("idx_member_username");
+        assertThat(usernameContent.getScannedTables()).doesNotContain("member");
+    }
+}
@@ -3,7 +3,11 @@ package io.hkarling.qeurydsl.repository;
 import io.hkarling.qeurydsl.dto.MemberSearchCondition;
 import io.hkarling.qeurydsl.dto.MemberTeamDTO;
 import io.hkarling.qeurydsl.entity.Member;
+import io.hkarling.qeurydsl.entity.QMember;
 import io.hkarling.qeurydsl.entity.Team;
+import io.hkarling.qeurydsl.repository.support.FetchPlan;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -13,6 +17,8 @@ import javax.persistence.EntityManager;
 import javax.transaction.Transactional;
 
 import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.*;
 import static org.junit.jupiter.api.Assertions.*;
@@ -85,4 +91,66 @@ class MemberJpaRepositoryTest {
 
 
     }
-}
\ No newline at end of file
+
+    @Test
+    public void searchStreamTest() {
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        for (int i = 0; i < 10; i++) {
+            em.persist(new Member("member" + i, i * 10, teamA));
+        }
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(50);
+
+        try (Stream<MemberTeamDTO> stream = memberJpaRepository.searchStream(condition)) {
+            List<MemberTeamDTO> result = stream.collect(Collectors.toList());
+            assertThat(result).extracting("username").containsExactly("member5", "member6", "member7", "member8", "member9");
+        }
+    }
+
+    @Test
+    public void searchMemberFetchPlanTest() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        for (int i = 0; i < 4; i++) {
+            em.persist(new Member("member" + i, i * 10, i % 2 == 0 ? teamA : teamB));
+        }
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeGoe(0);
+        condition.setAgeLoe(100);
+        MemberSearchCondition teamCondition = new MemberSearchCondition();
+        teamCondition.setTeamName("teamA");
+        teamCondition.setAgeGoe(0);
+        teamCondition.setAgeLoe(100);
+
+        // BATCH 는 프록시를 초기화하지 않고 영속성 컨텍스트에 올려 둔다. 어느 방법이든 team 에 접근할 때 SQL 이 없어야 한다.
+        Statistics statistics = em.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        try {
+            for (FetchPlan fetchPlan : List.of(FetchPlan.fetchJoin(QMember.member.team), FetchPlan.entityGraph(QMember.member.team),
+                FetchPlan.batch(QMember.member.team))) {
+                em.flush();
+                em.clear();
+
+                List<Member> result = memberJpaRepository.searchMember(condition, fetchPlan);
+                assertThat(result).hasSize(4);
+                statistics.clear();
+                assertThat(result).extracting(m -> m.getTeam().getName()).containsOnly("teamA", "teamB");
+                assertThat(statistics.getPrepareStatementCount()).as(fetchPlan.toString()).isZero();
+
+                em.clear();
+                List<Member> teamA = memberJpaRepository.searchMember(teamCondition, fetchPlan); // fetch join 한 team 으로 거른다.
+                assertThat(teamA).extracting("username").containsExactlyInAnyOrder("member0", "member2");
+                statistics.clear();
+                assertThat(teamA).extracting(m -> m.getTeam().getName()).containsOnly("teamA");
+                assertThat(statistics.getPrepareStatementCount()).as(fetchPlan.toString()).isZero();
+            }
+        } finally {
+            statistics.setStatisticsEnabled(false);
+        }
+    }
+}
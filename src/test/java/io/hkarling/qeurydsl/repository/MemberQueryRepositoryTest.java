@@ -0,0 +1,90 @@
+package io.hkarling.qeurydsl.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.hkarling.qeurydsl.dto.MemberSearchCondition;
+import io.hkarling.qeurydsl.dto.MemberTeamDTO;
+import io.hkarling.qeurydsl.entity.Member;
+import io.hkarling.qeurydsl.entity.Team;
+import io.hkarling.qeurydsl.repository.support.InvalidSearchParameterException;
+import io.hkarling.qeurydsl.repository.support.KeysetPage;
+import javax.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+@SpringBootTest
+@Transactional
+class MemberQueryRepositoryTest {
+
+    @Autowired
+    private EntityManager em;
+
+    @Autowired
+    private MemberQueryRepository memberQueryRepository;
+
+    @BeforeEach
+    public void before() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        em.persist(new Member("member1", 40, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 20, teamB));
+        em.persist(new Member("member4", 10, teamB));
+    }
+
+    @Test
+    public void keysetById() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+
+        KeysetPage<MemberTeamDTO> page1 = memberQueryRepository.searchByKeyset(condition, "id", null, 3);
+        assertThat(page1.getContent()).extracting("username").containsExactly("member1", "member2", "member3");
+        assertThat(page1.isHasNext()).isTrue();
+
+        KeysetPage<MemberTeamDTO> page2 = memberQueryRepository.searchByKeyset(condition, "id", page1.getNextCursor(), 3);
+        assertThat(page2.getContent()).extracting("username").containsExactly("member4");
+        assertThat(page2.isHasNext()).isFalse();
+        assertThat(page2.getNextCursor()).isNull();
+    }
+
+    @Test
+    public void keysetByAge() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+
+        KeysetPage<MemberTeamDTO> page1 = memberQueryRepository.searchByKeyset(condition, "age", null, 2);
+        assertThat(page1.getContent()).extracting("username").containsExactly("member4", "member2");
+
+        // 같은 나이(20)가 페이지 경계에 걸려도 id 로 이어서 조회된다.
+        KeysetPage<MemberTeamDTO> page2 = memberQueryRepository.searchByKeyset(condition, "age", page1.getNextCursor(), 2);
+        assertThat(page2.getContent()).extracting("username").containsExactly("member3", "member1");
+        assertThat(page2.isHasNext()).isFalse();
+    }
+
+    @Test
+    public void keysetWithCondition() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamB");
+
+        KeysetPage<MemberTeamDTO> page = memberQueryRepository.searchByKeyset(condition, "age", null, 10);
+        assertThat(page.getContent()).extracting("username").containsExactly("member4", "member3");
+    }
+
+    @Test
+    public void invalidCursor() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        String ageCursor = memberQueryRepository.searchByKeyset(condition, "age", null, 1).getNextCursor();
+
+        assertThatThrownBy(() -> memberQueryRepository.searchByKeyset(condition, "id", "not-a-cursor", 3))
+            .isInstanceOf(InvalidSearchParameterException.class);
+        assertThatThrownBy(() -> memberQueryRepository.searchByKeyset(condition, "id", ageCursor, 3)) // 다른 정렬의 cursor
+            .isInstanceOf(InvalidSearchParameterException.class);
+        assertThatThrownBy(() -> memberQueryRepository.searchByKeyset(condition, "username", null, 3))
+            .isInstanceOf(InvalidSearchParameterException.class);
+    }
+}
@@ -28,6 +28,9 @@ class MemberRepositoryTest {
     @Autowired
     private MemberRepository memberRepository;
 
+    @Autowired
+    private MemberSearchQueryRegistry searchQueryRegistry;
+
     @Test
     public void basicTest() {
         Member member = new Member("member1", 10);
@@ -96,6 +99,28 @@ class MemberRepositoryTest {
     }
 
 
+    @Test
+    public void searchQueryRegistryTest() {
+        Team teamA = new Team("teamA");
+        em.persist(teamA);
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+
+        MemberSearchCondition condition1 = new MemberSearchCondition();
+        condition1.setTeamName("teamA");
+        condition1.setAgeGoe(15);
+        MemberSearchCondition condition2 = new MemberSearchCondition();
+        condition2.setTeamName("teamA");
+        condition2.setAgeGoe(5);
+
+        memberRepository.search(condition1);
+        long hits = searchQueryRegistry.getStatistics().getHits();
+        List<MemberTeamDTO> result = memberRepository.search(condition2); // 같은 shape, 다른 값
+
+        assertThat(result).extracting("username").containsExactlyInAnyOrder("member1", "member2"); // order by 가 없다.
+        assertThat(searchQueryRegistry.getStatistics().getHits()).isEqualTo(hits + 1);
+    }
+
     @Test
     public void querydslPredicateExecutorTest() {
         Team teamA = new Team("teamA");
@@ -0,0 +1,129 @@
+package io.hkarling.qeurydsl.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.hkarling.qeurydsl.dto.MemberSearchCondition;
+import io.hkarling.qeurydsl.dto.MemberTeamDTO;
+import io.hkarling.qeurydsl.entity.Member;
+import io.hkarling.qeurydsl.entity.Team;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.List;
+import javax.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * 캐시는 쓰기 트랜잭션 밖에서만 쓰이고 commit 후에 지워지므로 트랜잭션 없이 검증하고, 끝나면 만든 데이터만 EntityManager 로 지운다. (삭제 이벤트로 캐시도 지워진다)
+ */
+@SpringBootTest
+class MemberSearchCacheTest {
+
+    @Autowired
+    private EntityManager em;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MemberRepository memberRepository;
+
+    @Autowired
+    private MeterRegistry registry;
+
+    private TransactionTemplate transactionTemplate;
+    private CommittedTestData testData;
+
+    @BeforeEach
+    public void before() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        testData = CommittedTestData.mark(em, transactionManager);
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = new Team("teamA");
+            Team teamB = new Team("teamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            em.persist(new Member("member1", 10, teamA));
+            em.persist(new Member("member2", 20, teamA));
+            em.persist(new Member("member3", 30, teamB));
+        });
+    }
+
+    @AfterEach
+    public void after() {
+        testData.delete();
+    }
+
+    @Test
+    public void sameConditionHitsCache() {
+        double hits = hits();
+        List<MemberTeamDTO> first = memberRepository.search(teamA());
+        List<MemberTeamDTO> second = memberRepository.search(teamA());
+
+        assertThat(second).isSameAs(first);
+        assertThat(hits() - hits).isEqualTo(1);
+
+        Page<MemberTeamDTO> page = memberRepository.searchPageComplex(teamA(), PageRequest.of(0, 1));
+        assertThat(memberRepository.searchPageComplex(teamA(), PageRequest.of(0, 1))).isSameAs(page);
+        assertThat(memberRepository.searchPageComplex(teamA(), PageRequest.of(1, 1))).isNotSameAs(page); // 다른 페이지
+    }
+
+    @Test
+    public void memberChangeInvalidatesItsTeamAndUnfilteredEntries() {
+        MemberSearchCondition all = new MemberSearchCondition();
+        List<MemberTeamDTO> teamA = memberRepository.search(teamA());
+        memberRepository.search(all);
+
+        transactionTemplate.executeWithoutResult(status ->
+            em.createQuery("select m from Member m where m.username = 'member3'", Member.class).getSingleResult().setAge(31));
+
+        assertThat(memberRepository.search(teamA())).isSameAs(teamA); // teamB 회원의 변경
+        assertThat(memberRepository.search(all)).extracting("age").contains(31);
+
+        transactionTemplate.executeWithoutResult(status ->
+            em.createQuery("select m from Member m where m.username = 'member1'", Member.class).getSingleResult().setAge(11));
+
+        assertThat(memberRepository.search(teamA())).extracting("age").containsExactlyInAnyOrder(11, 20);
+    }
+
+    @Test
+    public void teamChangeInvalidatesAll() {
+        memberRepository.search(teamA());
+
+        transactionTemplate.executeWithoutResult(status ->
+            em.createQuery("select t from Team t where t.name = 'teamB'", Team.class).getSingleResult().setName("teamA"));
+
+        assertThat(memberRepository.search(teamA())).extracting("username").containsExactlyInAnyOrder("member1", "member2", "member3");
+    }
+
+    @Test
+    public void writeTransactionBypassesCache() {
+        memberRepository.search(teamA());
+
+        transactionTemplate.executeWithoutResult(status -> {
+            Team team = em.createQuery("select t from Team t where t.name = 'teamA'", Team.class).getSingleResult();
+            em.persist(new Member("member4", 40, team));
+            em.flush();
+            assertThat(memberRepository.search(teamA())).hasSize(3); // 아직 commit 되지 않은 회원이 보인다.
+            status.setRollbackOnly();
+        });
+
+        assertThat(memberRepository.search(teamA())).hasSize(2);
+    }
+
+    private double hits() {
+        return registry.get("cache.gets").tag("cache", MemberSearchCache.CACHE_NAME).tag("result", "hit").functionCounter().count();
+    }
+
+    private static MemberSearchCondition teamA() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+        return condition;
+    }
+}
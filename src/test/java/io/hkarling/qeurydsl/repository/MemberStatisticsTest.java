@@ -0,0 +1,135 @@
+package io.hkarling.qeurydsl.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.hkarling.qeurydsl.config.QuerydslProperties;
+import io.hkarling.qeurydsl.dto.MemberSearchCondition;
+import io.hkarling.qeurydsl.dto.MemberTeamDTO;
+import io.hkarling.qeurydsl.entity.Member;
+import io.hkarling.qeurydsl.entity.Team;
+import io.hkarling.qeurydsl.repository.support.CountMode;
+import io.hkarling.qeurydsl.repository.support.EstimatedPage;
+import io.hkarling.qeurydsl.repository.support.InvalidSearchParameterException;
+import javax.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * 통계는 commit 된 데이터로 계산하고 read-write 트랜잭션 안에서는 추정하지 않으므로 트랜잭션 없이 검증하고, 끝나면 만든 데이터만 EntityManager 로 지운 뒤 다시 계산한다.
+ */
+@SpringBootTest
+class MemberStatisticsTest {
+
+    @Autowired
+    private EntityManager em;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private MemberStatistics memberStatistics;
+
+    @Autowired
+    private TeamNameDictionary teamNameDictionary;
+
+    @Autowired
+    private MemberRepository memberRepository;
+
+    @Autowired
+    private QuerydslProperties properties;
+
+    private TransactionTemplate transactionTemplate;
+    private CommittedTestData testData;
+
+    @BeforeEach
+    public void before() {
+        properties.getEstimatedCount().setExactThreshold(5);
+        properties.getAgeIndex().setEnabled(false); // 나이/팀 색인이 있으면 통계 대신 색인으로 센다.
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        testData = CommittedTestData.mark(em, transactionManager);
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = new Team("teamA");
+            Team teamB = new Team("teamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            for (int i = 0; i < 20; i++) {
+                em.persist(new Member("member" + i, i, i < 15 ? teamA : teamB));
+            }
+        });
+        teamNameDictionary.reload();
+        memberStatistics.refresh();
+    }
+
+    @AfterEach
+    public void after() {
+        properties.getEstimatedCount().setExactThreshold(10_000);
+        properties.getAgeIndex().setEnabled(true);
+        testData.delete();
+        memberStatistics.refresh(); // 통계는 이벤트로 바뀌지 않는다.
+    }
+
+    @Test
+    public void estimate() {
+        MemberSearchCondition teamA = new MemberSearchCondition();
+        teamA.setTeamName("teamA");
+        assertThat(memberStatistics.estimate(teamA)).hasValue(15);
+
+        MemberSearchCondition ages = new MemberSearchCondition();
+        ages.setAgeGoe(10);
+        ages.setAgeLoe(19);
+        assertThat(memberStatistics.estimate(ages)).hasValue(10);
+
+        teamA.setAgeGoe(10); // teamA 의 나이 히스토그램으로 센다. (독립 가정이면 15 * 10 / 20 = 8)
+        assertThat(memberStatistics.estimate(teamA)).hasValue(5);
+
+        MemberSearchCondition small = new MemberSearchCondition();
+        small.setAgeLoe(3);
+        assertThat(memberStatistics.estimate(small)).isEmpty(); // exact-threshold 미만
+
+        MemberSearchCondition username = new MemberSearchCondition();
+        username.setUsername("member1");
+        assertThat(memberStatistics.estimate(username)).isEmpty();
+    }
+
+    @Test
+    public void estimatedPage() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+
+        Page<MemberTeamDTO> first = memberRepository.searchPageComplex(condition, PageRequest.of(0, 10), CountMode.ESTIMATED);
+        assertThat(first.getContent()).hasSize(10);
+        assertThat(first.getContent()).extracting("teamName").containsOnly("teamA");
+        assertThat(first.getTotalElements()).isEqualTo(15);
+        assertThat(((EstimatedPage<MemberTeamDTO>) first).isTotalEstimated()).isTrue();
+
+        Page<MemberTeamDTO> last = memberRepository.searchPageComplex(condition, PageRequest.of(1, 10), CountMode.ESTIMATED);
+        assertThat(last.getContent()).hasSize(5);
+        assertThat(last.getTotalElements()).isEqualTo(15);
+        assertThat(((EstimatedPage<MemberTeamDTO>) last).isTotalEstimated()).isFalse(); // 마지막 페이지는 정확하다.
+    }
+
+    @Test
+    public void fallsBackToExactCount() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setAgeLoe(3);
+
+        Page<MemberTeamDTO> page = memberRepository.searchPageComplex(condition, PageRequest.of(0, 2), CountMode.ESTIMATED);
+        assertThat(page.getTotalElements()).isEqualTo(4);
+        assertThat(((EstimatedPage<MemberTeamDTO>) page).isTotalEstimated()).isFalse();
+    }
+
+    @Test
+    public void countModeParameter() {
+        assertThat(CountMode.of(null)).isEqualTo(CountMode.EXACT);
+        assertThat(CountMode.of(" Estimated ")).isEqualTo(CountMode.ESTIMATED);
+        assertThatThrownBy(() -> CountMode.of("foo")).isInstanceOf(InvalidSearchParameterException.class); // 400
+    }
+}
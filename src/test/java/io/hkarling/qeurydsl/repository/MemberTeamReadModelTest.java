@@ -0,0 +1,112 @@
+package io.hkarling.qeurydsl.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.hkarling.qeurydsl.config.QuerydslProperties;
+import io.hkarling.qeurydsl.dto.MemberSearchCondition;
+import io.hkarling.qeurydsl.dto.MemberTeamDTO;
+import io.hkarling.qeurydsl.entity.Member;
+import io.hkarling.qeurydsl.entity.MemberTeamView;
+import io.hkarling.qeurydsl.entity.Team;
+import java.util.List;
+import javax.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * 읽기 모델은 같은 트랜잭션에서 고쳐지므로 롤백하는 테스트 트랜잭션 안에서 검증한다.
+ */
+@SpringBootTest
+@Transactional
+class MemberTeamReadModelTest {
+
+    @Autowired
+    private EntityManager em;
+
+    @Autowired
+    private MemberTeamReadModel readModel;
+
+    @Autowired
+    private MemberRepository memberRepository;
+
+    @Autowired
+    private QuerydslProperties properties;
+
+    private Team teamA;
+    private Member member1;
+
+    @BeforeEach
+    public void before() {
+        properties.getReadModel().setMaintain(true);
+        properties.getReadModel().setRead(true);
+        teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        member1 = new Member("member1", 10, teamA);
+        em.persist(member1);
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 40));
+        em.flush();
+    }
+
+    @AfterEach
+    public void after() {
+        properties.getReadModel().setRead(false);
+        properties.getReadModel().setMaintain(false);
+    }
+
+    @Test
+    public void maintainedInSameTransaction() {
+        Long memberId = member1.getId();
+        Long teamId = teamA.getId();
+        assertThat(view(memberId).getTeamName()).isEqualTo("teamA");
+
+        em.find(Team.class, teamId).setName("teamC");
+        em.find(Member.class, memberId).setAge(11);
+        em.flush();
+        assertThat(view(memberId).getTeamName()).isEqualTo("teamC");
+        assertThat(view(memberId).getAge()).isEqualTo(11);
+
+        em.remove(em.find(Member.class, memberId));
+        em.flush();
+        assertThat(view(memberId)).isNull();
+    }
+
+    @Test
+    public void searchReadsReadModel() {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+        condition.setAgeGoe(15);
+
+        List<MemberTeamDTO> result = memberRepository.search(condition);
+        assertThat(result).extracting("username").containsExactly("member2");
+        assertThat(result).extracting("teamName").containsExactly("teamA");
+
+        Page<MemberTeamDTO> page = memberRepository.searchPageSimple(new MemberSearchCondition(), PageRequest.of(0, 3));
+        assertThat(page.getContent()).hasSize(3);
+        assertThat(page.getTotalElements()).isGreaterThanOrEqualTo(4);
+    }
+
+    @Test
+    public void rebuild() {
+        long members = em.createQuery("select count(m) from Member m", Long.class).getSingleResult();
+        em.createNativeQuery("delete from member_team_view").executeUpdate();
+
+        assertThat(readModel.rebuild()).isEqualTo(members);
+        assertThat(view(member1.getId()).getUsername()).isEqualTo("member1");
+        assertThat(view(member1.getId()).getTeamName()).isEqualTo("teamA");
+    }
+
+    private MemberTeamView view(Long memberId) {
+        em.clear(); // JDBC 로 바뀐 행을 다시 읽는다.
+        return em.find(MemberTeamView.class, memberId);
+    }
+}
@@ -0,0 +1,94 @@
+package io.hkarling.qeurydsl.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.hkarling.qeurydsl.dto.MemberSearchCondition;
+import io.hkarling.qeurydsl.entity.Member;
+import io.hkarling.qeurydsl.entity.QMember;
+import io.hkarling.qeurydsl.entity.Team;
+import io.hkarling.qeurydsl.repository.support.FetchPlan;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import javax.persistence.EntityManager;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StringUtils;
+
+/**
+ * 실행된 SQL 을 StatementInspector 로 모아 join 수를 확인한다.
+ */
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+    + "io.hkarling.qeurydsl.repository.MemberTestRepositoryTest$SqlRecorder")
+@Transactional
+class MemberTestRepositoryTest {
+
+    private static final Pattern COMMENT = Pattern.compile("/\\*.*?\\*/", Pattern.DOTALL); // use_sql_comments 의 JPQL
+
+    @Autowired
+    private EntityManager em;
+
+    @Autowired
+    private MemberTestRepository memberTestRepository;
+
+    @Test
+    public void fetchJoinWithTeamNameJoinsTeamOnce() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamA));
+        em.persist(new Member("member4", 40, teamB));
+        em.flush();
+        em.clear();
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+
+        SqlRecorder.start();
+        Page<Member> page = memberTestRepository.applyPagination(condition, PageRequest.of(0, 2), FetchPlan.fetchJoin(QMember.member.team));
+        List<String> statements = SqlRecorder.stop();
+
+        assertThat(page.getContent()).extracting("username").containsExactlyInAnyOrder("member1", "member2");
+        assertThat(page.getTotalElements()).isEqualTo(3);
+        assertThat(statements).hasSize(2); // content, count
+        for (String sql : statements) {
+            assertThat(StringUtils.countOccurrencesOf(sql, "join team")).as(sql).isEqualTo(1);
+        }
+    }
+
+    /**
+     * start 한 스레드의 SQL 만 모은다. (기동 후 예약된 작업의 SQL 은 섞이지 않는다)
+     */
+    public static class SqlRecorder implements StatementInspector {
+
+        private static final ThreadLocal<List<String>> RECORDED = new ThreadLocal<>();
+
+        @Override
+        public String inspect(String sql) {
+            List<String> recorded = RECORDED.get();
+            if (recorded != null) {
+                recorded.add(sql);
+            }
+            return sql;
+        }
+
+        private static void start() {
+            RECORDED.set(new ArrayList<>());
+        }
+
+        private static List<String> stop() {
+            List<String> recorded = RECORDED.get();
+            RECORDED.remove();
+            return recorded.stream().map(sql -> COMMENT.matcher(sql).replaceAll("").toLowerCase()).collect(Collectors.toList());
+        }
+    }
+}
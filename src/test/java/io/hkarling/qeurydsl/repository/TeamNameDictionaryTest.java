@@ -0,0 +1,89 @@
+package io.hkarling.qeurydsl.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.hkarling.qeurydsl.dto.MemberSearchCondition;
+import io.hkarling.qeurydsl.dto.MemberTeamDTO;
+import io.hkarling.qeurydsl.entity.Member;
+import io.hkarling.qeurydsl.entity.Team;
+import java.util.List;
+import javax.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * 사전은 commit 된 변경만 반영하므로 트랜잭션 없이(commit 후) 검증하고, 끝나면 만든 데이터만 지운다. (삭제 이벤트로 사전도 맞춰진다)
+ */
+@SpringBootTest
+class TeamNameDictionaryTest {
+
+    @Autowired
+    private EntityManager em;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private TeamNameDictionary teamNameDictionary;
+
+    @Autowired
+    private MemberRepository memberRepository;
+
+    private CommittedTestData testData;
+
+    @BeforeEach
+    public void before() {
+        testData = CommittedTestData.mark(em, transactionManager);
+    }
+
+    @AfterEach
+    public void after() {
+        testData.delete();
+    }
+
+    @Test
+    public void searchWithoutJoin() {
+        Team teamA = new TransactionTemplate(transactionManager).execute(status -> {
+            Team team = new Team("teamA");
+            em.persist(team);
+            em.persist(new Member("member1", 10, team));
+            em.persist(new Member("member2", 20));
+            return team;
+        });
+
+        assertThat(teamNameDictionary.isAvailable()).isTrue();
+        assertThat(teamNameDictionary.idsOf("teamA")).containsExactly(teamA.getId());
+
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setTeamName("teamA");
+        List<MemberTeamDTO> result = memberRepository.search(condition);
+        assertThat(result).extracting("username").containsExactly("member1");
+        assertThat(result).extracting("teamName").containsExactly("teamA");
+
+        condition.setTeamName("teamB");
+        assertThat(memberRepository.search(condition)).isEmpty();
+    }
+
+    @Test
+    public void renameIsAppliedAfterCommit() {
+        TransactionTemplate transactionTemplate = new TransactionTemplate(transactionManager);
+        Long teamId = transactionTemplate.execute(status -> {
+            Team team = new Team("teamA");
+            em.persist(team);
+            return team.getId();
+        });
+
+        transactionTemplate.executeWithoutResult(status -> {
+            em.find(Team.class, teamId).setName("teamB");
+            assertThat(teamNameDictionary.isAvailable()).isFalse(); // 쓰기 트랜잭션 안에서는 사용하지 않는다.
+        });
+
+        assertThat(teamNameDictionary.idsOf("teamA")).isEmpty();
+        assertThat(teamNameDictionary.nameOf(teamId)).isEqualTo("teamB");
+    }
+}
@@ -0,0 +1,114 @@
+package io.hkarling.qeurydsl.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.hkarling.qeurydsl.dto.TeamStatisticsDTO;
+import io.hkarling.qeurydsl.entity.Member;
+import io.hkarling.qeurydsl.entity.Team;
+import javax.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * 통계는 commit 된 변경만 반영하므로 트랜잭션 없이(commit 후) 검증하고, 끝나면 만든 데이터만 EntityManager 로 지운다. (삭제 이벤트로 통계도 맞춰진다)
+ */
+@SpringBootTest
+class TeamStatisticsTest {
+
+    @Autowired
+    private EntityManager em;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private TeamStatistics teamStatistics;
+
+    private TransactionTemplate transactionTemplate;
+    private CommittedTestData testData;
+    private Long teamAId;
+    private Long teamBId;
+    private Long member1Id;
+
+    @BeforeEach
+    public void before() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        testData = CommittedTestData.mark(em, transactionManager);
+        transactionTemplate.executeWithoutResult(status -> {
+            Team teamA = new Team("teamA");
+            Team teamB = new Team("teamB");
+            em.persist(teamA);
+            em.persist(teamB);
+            Member member1 = new Member("member1", 10, teamA);
+            em.persist(member1);
+            em.persist(new Member("member2", 20, teamA));
+            em.persist(new Member("member3", 30, teamB));
+            em.persist(new Member("member4", 40, teamB));
+            teamAId = teamA.getId();
+            teamBId = teamB.getId();
+            member1Id = member1.getId();
+        });
+        teamStatistics.reconcile();
+    }
+
+    @AfterEach
+    public void after() {
+        testData.delete();
+    }
+
+    @Test
+    public void aggregation() {
+        TeamStatisticsDTO teamA = teamStatistics.find(teamAId).get();
+        assertThat(teamA.getTeamName()).isEqualTo("teamA");
+        assertThat(teamA.getCount()).isEqualTo(2);
+        assertThat(teamA.getSum()).isEqualTo(30);
+        assertThat(teamA.getAvg()).isEqualTo(15);
+        assertThat(teamA.getMin()).isEqualTo(10);
+        assertThat(teamA.getMax()).isEqualTo(20);
+        assertThat(teamStatistics.findAll()).extracting("teamName").containsExactly("teamA", "teamB");
+    }
+
+    @Test
+    public void incrementalChanges() {
+        transactionTemplate.executeWithoutResult(status -> {
+            Member member1 = em.find(Member.class, member1Id);
+            member1.setAge(50);
+            member1.changeTeam(em.find(Team.class, teamBId)); // teamA -> teamB
+            em.persist(new Member("member5", 5, em.find(Team.class, teamAId)));
+            em.find(Team.class, teamAId).setName("teamC");
+        });
+        transactionTemplate.executeWithoutResult(status ->
+            em.remove(em.createQuery("select m from Member m where m.username = 'member4'", Member.class).getSingleResult()));
+
+        TeamStatisticsDTO teamA = teamStatistics.find(teamAId).get();
+        assertThat(teamA.getTeamName()).isEqualTo("teamC");
+        assertThat(teamA.getCount()).isEqualTo(2);
+        assertThat(teamA.getMin()).isEqualTo(5);
+        assertThat(teamA.getMax()).isEqualTo(20);
+
+        TeamStatisticsDTO teamB = teamStatistics.find(teamBId).get();
+        assertThat(teamB.getCount()).isEqualTo(2);
+        assertThat(teamB.getSum()).isEqualTo(80);
+        assertThat(teamB.getMax()).isEqualTo(50);
+        assertThat(teamB.getAges()).containsOnlyKeys(30, 50);
+
+        assertThat(teamStatistics.reconcile()).isZero(); // DB 와 같다.
+    }
+
+    @Test
+    public void rollbackIsNotApplied() {
+        TransactionTemplate rollback = new TransactionTemplate(transactionManager);
+        rollback.executeWithoutResult(status -> {
+            em.persist(new Member("member5", 99, em.find(Team.class, teamAId)));
+            em.flush();
+            status.setRollbackOnly();
+        });
+
+        assertThat(teamStatistics.find(teamAId).get().getMax()).isEqualTo(20);
+    }
+}
@@ -0,0 +1,135 @@
+package io.hkarling.qeurydsl.repository;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.hkarling.qeurydsl.config.QuerydslProperties;
+import io.hkarling.qeurydsl.dto.MemberSearchCondition;
+import io.hkarling.qeurydsl.dto.MemberTeamDTO;
+import io.hkarling.qeurydsl.entity.Member;
+import java.util.List;
+import java.util.stream.Collectors;
+import javax.persistence.EntityManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * 색인은 commit 된 변경만 반영하므로 트랜잭션 없이(commit 후) 검증하고, 끝나면 만든 데이터만 EntityManager 로 지운다.
+ */
+@SpringBootTest
+class UsernameIndexTest {
+
+    @Autowired
+    private EntityManager em;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private UsernameIndex usernameIndex;
+
+    @Autowired
+    private MemberRepository memberRepository;
+
+    @Autowired
+    private QuerydslProperties properties;
+
+    private TransactionTemplate transactionTemplate;
+    private CommittedTestData testData;
+
+    @BeforeEach
+    public void before() {
+        properties.getSearchCache().setEnabled(false); // 색인을 거친 조회 결과를 본다.
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        testData = CommittedTestData.mark(em, transactionManager);
+        transactionTemplate.executeWithoutResult(status -> {
+            em.persist(new Member("alice", 10));
+            em.persist(new Member("alicia", 20));
+            em.persist(new Member("malik", 30));
+            em.persist(new Member("bob", 40));
+            em.persist(new Member("bo_b", 50));
+        });
+    }
+
+    @AfterEach
+    public void after() {
+        properties.getUsernameIndex().setMaxCandidates(1000);
+        properties.getSearchCache().setEnabled(true);
+        testData.delete();
+        usernameIndex.reload(); // 이벤트 없이 바꾼 테스트가 중간에 실패해도 다음 테스트는 새로 읽은 색인으로 시작한다.
+    }
+
+    @Test
+    public void prefixAndContains() {
+        assertThat(usernames(prefix("ali"))).containsExactly("alice", "alicia");
+        assertThat(usernames(contains("lic"))).containsExactly("alice", "alicia");
+        assertThat(usernames(contains("li"))).containsExactly("alice", "alicia", "malik");
+        assertThat(usernames(contains("_"))).containsExactly("bo_b"); // like 패턴 문자가 아니다.
+        assertThat(usernames(contains("xyz"))).isEmpty();
+
+        MemberSearchCondition both = prefix("a");
+        both.setUsernameContains("cia");
+        assertThat(usernames(both)).containsExactly("alicia");
+        assertThat(usernameIndex.candidates(both)).hasSize(1);
+    }
+
+    @Test
+    public void changesAreAppliedAfterCommit() {
+        Long bobId = transactionTemplate.execute(status -> {
+            Member bob = em.createQuery("select m from Member m where m.username = 'bob'", Member.class).getSingleResult();
+            bob.setUsername("alina");
+            em.persist(new Member("alister", 60));
+            em.flush();
+            assertThat(usernameIndex.isAvailable()).isFalse(); // 쓰기 트랜잭션 안에서는 like 로 조회한다.
+            assertThat(usernameIndex.candidates(prefix("ali"))).isNull();
+            return bob.getId();
+        });
+
+        assertThat(usernames(prefix("ali"))).containsExactly("alice", "alicia", "alina", "alister");
+        assertThat(usernameIndex.candidates(contains("bob"))).doesNotContain(bobId);
+        assertThat(usernameIndex.estimatedBytes()).isPositive();
+    }
+
+    @Test
+    public void eventlessChangeFallsBackToLikeUntilReconciled() {
+        transactionTemplate.executeWithoutResult(status -> em.createQuery("update Member m set m.username = 'alibaba' where m.username = 'bob'")
+            .executeUpdate()); // 이벤트가 없다.
+        assertThat(usernames(prefix("ali"))).containsExactly("alice", "alicia"); // 색인에 없는 회원은 빠진다.
+
+        assertThat(usernameIndex.reconcile()).isFalse();
+        assertThat(usernameIndex.isAvailable()).isFalse();
+        assertThat(usernameIndex.candidates(prefix("ali"))).isNull();
+        assertThat(usernames(prefix("ali"))).containsExactly("alibaba", "alice", "alicia");
+
+        assertThat(usernameIndex.reconcile()).isTrue(); // 그 사이 이벤트 없는 변경이 없으면 다시 색인을 쓴다.
+        assertThat(usernameIndex.candidates(prefix("ali"))).hasSize(3);
+    }
+
+    @Test
+    public void tooManyCandidatesFallBackToLike() {
+        properties.getUsernameIndex().setMaxCandidates(1);
+
+        assertThat(usernameIndex.candidates(prefix("ali"))).isNull();
+        assertThat(usernames(prefix("ali"))).containsExactly("alice", "alicia");
+    }
+
+    private List<String> usernames(MemberSearchCondition condition) {
+        return memberRepository.search(condition).stream().map(MemberTeamDTO::getUsername).sorted().collect(Collectors.toList());
+    }
+
+    private static MemberSearchCondition prefix(String prefix) {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsernamePrefix(prefix);
+        return condition;
+    }
+
+    private static MemberSearchCondition contains(String text) {
+        MemberSearchCondition condition = new MemberSearchCondition();
+        condition.setUsernameContains(text);
+        return condition;
+    }
+}
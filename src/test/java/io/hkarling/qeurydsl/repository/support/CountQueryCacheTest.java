@@ -0,0 +1,77 @@
+package io.hkarling.qeurydsl.repository.support;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.hkarling.qeurydsl.config.QuerydslProperties;
+import io.hkarling.qeurydsl.dto.MemberSearchCondition;
+import io.hkarling.qeurydsl.entity.Member;
+import io.hkarling.qeurydsl.event.EntityChangedEvent;
+import io.hkarling.qeurydsl.event.EntityChangedEvent.ChangeType;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class CountQueryCacheTest {
+
+    QuerydslProperties properties;
+    CountQueryCache cache;
+    AtomicInteger executed;
+
+    @BeforeEach
+    public void before() {
+        properties = new QuerydslProperties();
+        properties.getCountCache().setMaxSize(2);
+        cache = new CountQueryCache(properties);
+        executed = new AtomicInteger();
+    }
+
+    @Test
+    public void sameConditionHitsCache() {
+        MemberSearchCondition condition1 = new MemberSearchCondition();
+        condition1.setTeamName("teamA");
+        condition1.setUsername("");
+        MemberSearchCondition condition2 = new MemberSearchCondition();
+        condition2.setTeamName("teamA");
+
+        long count1 = cache.get(List.of("search", condition1.normalized()), this::count);
+        long count2 = cache.get(List.of("search", condition2.normalized()), this::count);
+
+        assertThat(count1).isEqualTo(count2);
+        assertThat(executed.get()).isEqualTo(1);
+    }
+
+    @Test
+    public void expiredAfterTtl() throws InterruptedException {
+        properties.getCountCache().setTtl(Duration.ofMillis(1));
+
+        cache.get("key", this::count);
+        Thread.sleep(5);
+        cache.get("key", this::count);
+
+        assertThat(executed.get()).isEqualTo(2);
+    }
+
+    @Test
+    public void boundedSize() {
+        cache.get("key1", this::count);
+        cache.get("key2", this::count);
+        cache.get("key3", this::count);
+
+        assertThat(cache.size()).isEqualTo(2);
+    }
+
+    @Test
+    public void invalidatedOnWrite() {
+        cache.get("key", this::count);
+        cache.onEntityChanged(new EntityChangedEvent(Member.class, 1L, ChangeType.INSERT, null, null, null));
+        cache.get("key", this::count);
+
+        assertThat(executed.get()).isEqualTo(2);
+    }
+
+    private long count() {
+        return executed.incrementAndGet() * 10L;
+    }
+}
@@ -0,0 +1,116 @@
+package io.hkarling.qeurydsl.repository.support;
+
+import static io.hkarling.qeurydsl.entity.QMember.member;
+import static io.hkarling.qeurydsl.entity.QTeam.team;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.querydsl.jpa.JPAExpressions;
+import com.querydsl.jpa.impl.JPAQuery;
+import com.querydsl.jpa.impl.JPAQueryFactory;
+import io.hkarling.qeurydsl.entity.Member;
+import io.hkarling.qeurydsl.entity.QMember;
+import io.hkarling.qeurydsl.entity.Team;
+import javax.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+@SpringBootTest
+@Transactional
+class CountQueryDeriverTest {
+
+    @Autowired
+    private EntityManager em;
+
+    @Autowired
+    private JPAQueryFactory queryFactory;
+
+    @Autowired
+    private CountQueryDeriver countQueryDeriver;
+
+    @BeforeEach
+    public void before() {
+        Team teamA = new Team("teamA");
+        Team teamB = new Team("teamB");
+        em.persist(teamA);
+        em.persist(teamB);
+
+        em.persist(new Member("member1", 10, teamA));
+        em.persist(new Member("member2", 20, teamA));
+        em.persist(new Member("member3", 30, teamB));
+        em.persist(new Member("member4", 40, null));
+    }
+
+    @Test
+    public void stripsFetchJoinOrderAndUnreferencedLeftJoin() {
+        JPAQuery<Member> content = queryFactory
+            .selectFrom(member)
+            .leftJoin(member.team, team).fetchJoin()
+            .where(member.age.goe(20))
+            .orderBy(member.username.desc())
+            .offset(1)
+            .limit(1);
+
+        JPAQuery<Long> count = countQueryDeriver.derive(content);
+
+        assertThat(count.toString()).contains("count(member1.id)").doesNotContain("join", "order by");
+        assertThat(count.fetchOne()).isEqualTo(3);
+        assertThat(content.toString()).contains("fetch"); // content 쿼리는 그대로
+    }
+
+    @Test
+    public void keepsJoinsThatFilterOrAreReferenced() {
+        JPAQuery<String> byTeamName = queryFactory
+            .select(member.username)
+            .from(member)
+            .leftJoin(member.team, team)
+            .where(team.name.eq("teamA"));
+        JPAQuery<Member> innerJoin = queryFactory
+            .selectFrom(member)
+            .join(member.team, team);
+        QMember sub = new QMember("sub");
+        JPAQuery<Member> bySubQuery = queryFactory
+            .selectFrom(member)
+            .leftJoin(member.team, team)
+            .where(member.age.eq(JPAExpressions.select(sub.age.max()).from(sub).where(sub.team.eq(team))));
+
+        assertThat(countQueryDeriver.derive(byTeamName).fetchOne()).isEqualTo(2);
+        assertThat(countQueryDeriver.derive(innerJoin).fetchOne()).isEqualTo(3); // 팀 없는 회원 제외
+        assertThat(countQueryDeriver.derive(bySubQuery).toString()).contains("left join");
+    }
+
+    @Test
+    public void keepsCollectionJoins() {
+        JPAQuery<Team> content = queryFactory
+            .selectFrom(team)
+            .leftJoin(team.members, member);
+
+        JPAQuery<Long> count = countQueryDeriver.derive(content);
+
+        assertThat(count.toString()).contains("left join");
+        assertThat(count.fetchOne()).isEqualTo(content.fetch().size());
+    }
+
+    @Test
+    public void countsDistinctRoots() {
+        JPAQuery<Team> content = queryFactory
+            .selectFrom(team)
+            .distinct()
+            .join(team.members, member);
+
+        assertThat(countQueryDeriver.derive(content).fetchOne()).isEqualTo(2);
+    }
+
+    @Test
+    public void rejectsGroupedQueries() {
+        JPAQuery<Integer> grouped = queryFactory
+            .select(member.age.max())
+            .from(member)
+            .groupBy(member.team);
+
+        assertThatThrownBy(() -> countQueryDeriver.derive(grouped)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,58 @@
+package io.hkarling.qeurydsl.repository.support;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+import org.junit.jupiter.api.Test;
+
+class IdBitmapTest {
+
+    @Test
+    public void addAndRemove() {
+        IdBitmap bitmap = new IdBitmap();
+        assertThat(bitmap.add(3)).isTrue();
+        assertThat(bitmap.add(3)).isFalse();
+        assertThat(bitmap.add(70_000)).isTrue(); // 다른 container
+        assertThat(bitmap.add(1)).isTrue();
+
+        assertThat(bitmap.toArray()).containsExactly(1, 3, 70_000);
+        assertThat(bitmap.contains(70_000)).isTrue();
+        assertThat(bitmap.remove(70_000)).isTrue();
+        assertThat(bitmap.remove(70_000)).isFalse();
+        assertThat(bitmap.contains(70_000)).isFalse();
+        assertThat(bitmap.cardinality()).isEqualTo(2);
+    }
+
+    @Test
+    public void denseContainerIsSmallerThanIds() {
+        IdBitmap bitmap = new IdBitmap();
+        for (long id = 0; id < 60_000; id++) {
+            bitmap.add(id);
+        }
+        assertThat(bitmap.cardinality()).isEqualTo(60_000);
+        assertThat(bitmap.estimatedBytes()).isLessThan(60_000 * 2); // array container 보다 작다.
+
+        for (long id = 0; id < 59_000; id++) {
+            bitmap.remove(id); // 다시 array container 로 바뀐다.
+        }
+        assertThat(bitmap.toArray()).hasSize(1_000).startsWith(59_000).endsWith(59_999);
+    }
+
+    @Test
+    public void union() {
+        Random random = new Random(42);
+        IdBitmap a = new IdBitmap();
+        IdBitmap b = new IdBitmap();
+        TreeSet<Long> expected = new TreeSet<>();
+        for (int i = 0; i < 20_000; i++) {
+            long id = random.nextInt(200_000);
+            (i % 2 == 0 ? a : b).add(id);
+            expected.add(id);
+        }
+
+        assertThat(IdBitmap.union(List.of(a, b))).containsExactly(expected.stream().mapToLong(Long::longValue).toArray());
+        assertThat(IdBitmap.union(List.of())).isEmpty();
+    }
+}
@@ -0,0 +1,50 @@
+package io.hkarling.qeurydsl.repository.support;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import io.hkarling.qeurydsl.config.QuerydslProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+
+class ParallelCountExecutorTest {
+
+    QuerydslProperties properties = new QuerydslProperties();
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    ParallelCountExecutor executor;
+
+    @AfterEach
+    public void after() {
+        executor.destroy();
+    }
+
+    @Test
+    public void disabledRunsOnCallerThread() {
+        executor = new ParallelCountExecutor(properties, mock(DataSource.class), mock(PlatformTransactionManager.class), registry);
+        LongSupplier count = () -> 10L;
+
+        assertThat(executor.prefetch(count)).isSameAs(count);
+        assertThat(registry.get("repository.query.count.mode").tag("mode", "sequential").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    public void enabledRunsOnWorkerThread() {
+        properties.getParallelCount().setEnabled(true);
+        executor = new ParallelCountExecutor(properties, mock(DataSource.class), mock(PlatformTransactionManager.class), registry);
+        AtomicReference<String> threadName = new AtomicReference<>();
+
+        LongSupplier count = executor.prefetch(() -> {
+            threadName.set(Thread.currentThread().getName());
+            return 10L;
+        });
+
+        assertThat(count.getAsLong()).isEqualTo(10);
+        assertThat(threadName.get()).startsWith("parallel-count-");
+        assertThat(registry.get("repository.query.count.mode").tag("mode", "parallel").counter().count()).isEqualTo(1);
+    }
+}
@@ -0,0 +1,42 @@
+package io.hkarling.qeurydsl.repository.support;
+
+import static io.hkarling.qeurydsl.entity.QMember.member;
+import static io.hkarling.qeurydsl.entity.QTeam.team;
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.querydsl.core.DefaultQueryMetadata;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class RepositoryMetricsTest {
+
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    RepositoryMetrics metrics = new RepositoryMetrics(registry);
+
+    @Test
+    public void contentAndCount() {
+        metrics.content("Repo.search", "teamName", () -> List.of("a", "b", "c"));
+        long count = metrics.count("Repo.search", "teamName", () -> 3L);
+
+        Timer content = registry.find(RepositoryMetrics.QUERY_TIMER).tags("method", "Repo.search", "shape", "teamName", "phase", "content").timer();
+        Timer countTimer = registry.find(RepositoryMetrics.QUERY_TIMER).tags("phase", "count").timer();
+        assertThat(count).isEqualTo(3);
+        assertThat(content.count()).isEqualTo(1);
+        assertThat(countTimer.count()).isEqualTo(1);
+        assertThat(registry.find(RepositoryMetrics.QUERY_ROWS).tags("phase", "content").summary().totalAmount()).isEqualTo(3);
+    }
+
+    @Test
+    public void shapeOfQueryMetadata() {
+        DefaultQueryMetadata metadata = new DefaultQueryMetadata();
+        assertThat(RepositoryMetrics.shapeOf(metadata)).isEqualTo("none");
+
+        metadata.addWhere(team.name.eq("teamA"));
+        metadata.addWhere(member.age.goe(10));
+        metadata.addWhere(member.age.loe(20));
+
+        assertThat(RepositoryMetrics.shapeOf(metadata)).isEqualTo("member1.age+team.name");
+    }
+}
@@ -0,0 +1,84 @@
+package io.hkarling.qeurydsl.repository.support;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.hkarling.qeurydsl.config.QuerydslProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class SingleFlightTest {
+
+    SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    QuerydslProperties properties = new QuerydslProperties();
+    SingleFlight singleFlight = new SingleFlight(properties, registry);
+    AtomicInteger executed = new AtomicInteger();
+
+    @Test
+    public void concurrentCallsShareOneExecution() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> leader = CompletableFuture.supplyAsync(() -> singleFlight.execute("search", List.of("a", 1), () -> {
+            executed.incrementAndGet();
+            await(release);
+            return "result";
+        }));
+        while (registry.get("repository.query.inflight").gauge().value() == 0) {
+            Thread.sleep(1);
+        }
+
+        CompletableFuture<String> follower = CompletableFuture.supplyAsync(() -> singleFlight.execute("search", List.of("a", 1), () -> {
+            executed.incrementAndGet();
+            return "other";
+        }));
+        while (registry.find("repository.query.coalesced").counter() == null) {
+            Thread.sleep(1);
+        }
+        release.countDown();
+
+        assertThat(leader.get(5, TimeUnit.SECONDS)).isEqualTo("result");
+        assertThat(follower.get(5, TimeUnit.SECONDS)).isEqualTo("result");
+        assertThat(executed.get()).isEqualTo(1);
+        assertThat(registry.get("repository.query.coalesced").tag("method", "search").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    public void followerRunsItselfAfterTimeout() throws Exception {
+        properties.getSingleFlight().setFollowerTimeout(Duration.ofMillis(50));
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<String> leader = CompletableFuture.supplyAsync(() -> singleFlight.execute("search", "key", () -> {
+            await(release);
+            return "result";
+        }));
+        while (registry.get("repository.query.inflight").gauge().value() == 0) {
+            Thread.sleep(1);
+        }
+
+        assertThat(singleFlight.execute("search", "key", () -> "own")).isEqualTo("own"); // leader 가 멈춰 있어도 기다리지 않는다.
+        assertThat(registry.get("repository.query.coalesced.timeouts").tag("method", "search").counter().count()).isEqualTo(1);
+
+        release.countDown();
+        assertThat(leader.get(5, TimeUnit.SECONDS)).isEqualTo("result");
+    }
+
+    @Test
+    public void notCachedAfterCompletion() {
+        singleFlight.execute("search", "key", executed::incrementAndGet);
+        singleFlight.execute("search", "key", executed::incrementAndGet);
+
+        assertThat(executed.get()).isEqualTo(2);
+        assertThat(registry.get("repository.query.inflight").gauge().value()).isEqualTo(0);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
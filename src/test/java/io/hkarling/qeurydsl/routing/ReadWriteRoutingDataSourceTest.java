@@ -0,0 +1,109 @@
+package io.hkarling.qeurydsl.routing;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.List;
+import javax.sql.DataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * H2 메모리 DB 두 개를 primary, replica 로 쓴다. replica 는 {@link #replicate()} 를 호출해야 primary 를 따라온다. (복제 지연)
+ */
+class ReadWriteRoutingDataSourceTest {
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    DataSource primary = h2("primary");
+    DataSource replica = h2("replica");
+    JdbcTemplate jdbcTemplate;
+    TransactionTemplate readWrite;
+    TransactionTemplate readOnly;
+
+    @BeforeEach
+    public void before() {
+        for (DataSource dataSource : List.of(primary, replica)) {
+            new JdbcTemplate(dataSource).execute("create table member (id bigint primary key, username varchar(255))");
+        }
+        DataSource routing = new ReadWriteRoutingDataSource(primary, replica, meterRegistry).lazy();
+        DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(routing);
+        jdbcTemplate = new JdbcTemplate(routing);
+        readWrite = new TransactionTemplate(transactionManager);
+        readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+    }
+
+    @AfterEach
+    public void after() {
+        ReadYourWrites.end();
+        for (DataSource dataSource : List.of(primary, replica)) {
+            new JdbcTemplate(dataSource).execute("drop table member");
+        }
+    }
+
+    @Test
+    public void readOnlyTransactionUsesReplica() {
+        insert(1L, "member1");
+
+        assertThat(readOnly.execute(status -> count())).isEqualTo(0); // 아직 복제되지 않았다.
+        assertThat(readWrite.execute(status -> count())).isEqualTo(1);
+        assertThat(count()).isEqualTo(1); // 트랜잭션이 없으면 primary
+
+        replicate();
+        assertThat(readOnly.execute(status -> count())).isEqualTo(1);
+        assertThat(meterRegistry.get("datasource.routing").tags("role", "replica", "reason", "read-only").counter().count()).isEqualTo(2);
+    }
+
+    @Test
+    public void readsAfterWriteStayOnPrimaryWithinRequest() {
+        ReadYourWrites.begin();
+        assertThat(readOnly.execute(status -> count())).isEqualTo(0);
+        assertThat(ReadYourWrites.isPinned()).isFalse();
+
+        insert(1L, "member1");
+        assertThat(ReadYourWrites.isPinned()).isTrue();
+        assertThat(readOnly.execute(status -> count())).isEqualTo(1); // 복제 전이지만 자기가 쓴 내용이 보인다.
+        assertThat(meterRegistry.get("datasource.routing").tags("role", "primary", "reason", "pinned").counter().count()).isEqualTo(1);
+
+        ReadYourWrites.end(); // 요청이 끝나면 다시 replica
+        ReadYourWrites.begin();
+        assertThat(readOnly.execute(status -> count())).isEqualTo(0);
+    }
+
+    @Test
+    public void writesOutsideRequestDoNotPin() {
+        insert(1L, "member1");
+
+        assertThat(ReadYourWrites.isPinned()).isFalse();
+        assertThat(readOnly.execute(status -> count())).isEqualTo(0);
+    }
+
+    private void insert(Long id, String username) {
+        readWrite.executeWithoutResult(status -> jdbcTemplate.update("insert into member (id, username) values (?, ?)", id, username));
+    }
+
+    private Integer count() {
+        return jdbcTemplate.queryForObject("select count(*) from member", Integer.class);
+    }
+
+    /**
+     * 테스트용 복제. primary 의 행을 replica 에 그대로 옮긴다.
+     */
+    private void replicate() {
+        JdbcTemplate target = new JdbcTemplate(replica);
+        target.update("delete from member");
+        new JdbcTemplate(primary).query("select id, username from member",
+            row -> {
+                target.update("insert into member (id, username) values (?, ?)", row.getLong("id"), row.getString("username"));
+            });
+    }
+
+    private static DataSource h2(String name) {
+        return new DriverManagerDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1", "sa", "");
+    }
+}
@@ -0,0 +1,43 @@
+package io.hkarling.qeurydsl.seed;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.SplittableRandom;
+import org.junit.jupiter.api.Test;
+
+class ZipfDistributionTest {
+
+    @Test
+    public void uniformWhenExponentIsZero() {
+        int[] counts = sample(new ZipfDistribution(4, 0), 40_000);
+
+        for (int count : counts) {
+            assertThat(count).isBetween(9_000, 11_000);
+        }
+    }
+
+    @Test
+    public void skewedTowardsFirstRanks() {
+        int[] counts = sample(new ZipfDistribution(100, 1.2), 100_000);
+
+        assertThat(counts[0]).isGreaterThan(counts[1]);
+        assertThat(counts[1]).isGreaterThan(counts[10]);
+        assertThat(counts[0]).isGreaterThan(counts[99] * 50);
+    }
+
+    @Test
+    public void teamNames() {
+        assertThat(MemberDataGenerator.teamName(0)).isEqualTo("teamA");
+        assertThat(MemberDataGenerator.teamName(1)).isEqualTo("teamB");
+        assertThat(MemberDataGenerator.teamName(26)).isEqualTo("team26");
+    }
+
+    private static int[] sample(ZipfDistribution distribution, int n) {
+        SplittableRandom random = new SplittableRandom(1);
+        int[] counts = new int[100];
+        for (int i = 0; i < n; i++) {
+            counts[distribution.sample(random)]++;
+        }
+        return counts;
+    }
+}